@@ -3,16 +3,23 @@ echo Compiling Library Book Manager...
 
 if not exist target\classes mkdir target\classes
 
+echo Compiling utils classes...
+javac -encoding UTF-8 -cp target/classes -d target/classes src/main/java/org/library/utils/MyHashTable.java src/main/java/org/library/utils/MyTable.java src/main/java/org/library/utils/MyOpenHashTable.java src/main/java/org/library/utils/MyConcurrentHashTable.java src/main/java/org/library/utils/MySortedMap.java src/main/java/org/library/utils/MyStringPool.java src/main/java/org/library/utils/MyRingBuffer.java
+
 echo Compiling model classes...
-javac -encoding UTF-8 -d target/classes src/main/java/org/library/model/Book.java
-javac -encoding UTF-8 -cp target/classes -d target/classes src/main/java/org/library/model/User.java
+javac -encoding UTF-8 -cp target/classes -d target/classes src/main/java/org/library/model/Names.java src/main/java/org/library/model/BookKey.java src/main/java/org/library/model/Book.java src/main/java/org/library/model/User.java
 
-echo Compiling utils classes...
-javac -encoding UTF-8 -cp target/classes -d target/classes src/main/java/org/library/utils/MyHashTable.java
+echo Compiling sort utilities...
 javac -encoding UTF-8 -cp target/classes -d target/classes src/main/java/org/library/utils/MySorts.java
 
 echo Compiling service classes...
-javac -encoding UTF-8 -cp target/classes -d target/classes src/main/java/org/library/service/LibraryService.java
+javac -encoding UTF-8 -cp target/classes -d target/classes src/main/java/org/library/service/LibraryService.java src/main/java/org/library/service/TitleIndex.java src/main/java/org/library/service/SearchIndex.java src/main/java/org/library/service/LibraryListener.java src/main/java/org/library/service/MappedCatalog.java src/main/java/org/library/service/Page.java src/main/java/org/library/service/ParallelScan.java src/main/java/org/library/service/SessionTable.java src/main/java/org/library/service/CirculationStatus.java src/main/java/org/library/service/CirculationResult.java
+
+echo Compiling persistence classes...
+javac -encoding UTF-8 -cp target/classes -d target/classes src/main/java/org/library/persistence/CatalogJournal.java src/main/java/org/library/persistence/LibraryStore.java src/main/java/org/library/persistence/AuditLog.java
+
+echo Compiling import classes...
+javac -encoding UTF-8 -cp target/classes -d target/classes src/main/java/org/library/io/ImportStats.java src/main/java/org/library/io/CatalogImporter.java src/main/java/org/library/io/ExportStats.java src/main/java/org/library/io/CatalogExporter.java
 
 echo Compiling app classes...
 javac -encoding UTF-8 -cp target/classes -d target/classes src/main/java/org/library/app/LibraryApp.java
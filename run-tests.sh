@@ -16,11 +16,39 @@ javac -encoding UTF-8 -cp "target/classes:lib/*" -d target/test-classes src/test
 javac -encoding UTF-8 -cp "target/classes:lib/*" -d target/test-classes src/test/java/org/library/utils/BinarySearchStressTest.java
 javac -encoding UTF-8 -cp "target/classes:lib/*" -d target/test-classes src/test/java/org/library/service/LibraryServiceTest.java
 javac -encoding UTF-8 -cp "target/classes:lib/*" -d target/test-classes src/test/java/org/library/service/LibraryServiceStressTest.java
+javac -encoding UTF-8 -cp "target/classes:lib/*" -d target/test-classes src/test/java/org/library/utils/MyOpenHashTableTest.java
+javac -encoding UTF-8 -cp "target/classes:lib/*" -d target/test-classes src/test/java/org/library/utils/MyConcurrentHashTableTest.java
+javac -encoding UTF-8 -cp "target/classes:lib/*" -d target/test-classes src/test/java/org/library/utils/MyConcurrentHashTableStressTest.java
+javac -encoding UTF-8 -cp "target/classes:lib/*" -d target/test-classes src/test/java/org/library/utils/MySortedMapTest.java
+javac -encoding UTF-8 -cp "target/classes:lib/*" -d target/test-classes src/test/java/org/library/service/SearchIndexTest.java
+javac -encoding UTF-8 -cp "target/classes:lib/*" -d target/test-classes src/test/java/org/library/persistence/CatalogJournalTest.java
+javac -encoding UTF-8 -cp "target/classes:lib/*" -d target/test-classes src/test/java/org/library/persistence/LibraryStoreTest.java
+javac -encoding UTF-8 -cp "target/classes:lib/*" -d target/test-classes src/test/java/org/library/service/MappedCatalogTest.java
+javac -encoding UTF-8 -cp "target/classes:lib/*" -d target/test-classes src/test/java/org/library/io/CatalogImporterTest.java
+javac -encoding UTF-8 -cp "target/classes:lib/*" -d target/test-classes src/test/java/org/library/io/CatalogImporterStressTest.java
+javac -encoding UTF-8 -cp "target/classes:lib/*" -d target/test-classes src/test/java/org/library/io/CatalogExporterTest.java
+javac -encoding UTF-8 -cp "target/classes:lib/*" -d target/test-classes src/test/java/org/library/io/CatalogExporterStressTest.java
+javac -encoding UTF-8 -cp "target/classes:lib/*" -d target/test-classes src/test/java/org/library/utils/MyStringPoolTest.java
+javac -encoding UTF-8 -cp "target/classes:lib/*" -d target/test-classes src/test/java/org/library/persistence/AuditLogTest.java
+javac -encoding UTF-8 -cp "target/classes:lib/*" -d target/test-classes src/test/java/org/library/utils/MyRingBufferTest.java
+javac -encoding UTF-8 -cp "target/classes:lib/*" -d target/test-classes src/test/java/org/library/service/TitleIndexStressTest.java
 
 echo "Running basic tests..."
 java -cp "target/classes:target/test-classes" org.junit.platform.console.ConsoleLauncher --class-path "target/classes:target/test-classes" --select-class org.library.utils.MyHashTableTest
 java -cp "target/classes:target/test-classes" org.junit.platform.console.ConsoleLauncher --class-path "target/classes:target/test-classes" --select-class org.library.utils.MySortsTest
 java -cp "target/classes:target/test-classes" org.junit.platform.console.ConsoleLauncher --class-path "target/classes:target/test-classes" --select-class org.library.service.LibraryServiceTest
+java -cp "target/classes:target/test-classes" org.junit.platform.console.ConsoleLauncher --class-path "target/classes:target/test-classes" --select-class org.library.utils.MyOpenHashTableTest
+java -cp "target/classes:target/test-classes" org.junit.platform.console.ConsoleLauncher --class-path "target/classes:target/test-classes" --select-class org.library.utils.MyConcurrentHashTableTest
+java -cp "target/classes:target/test-classes" org.junit.platform.console.ConsoleLauncher --class-path "target/classes:target/test-classes" --select-class org.library.utils.MySortedMapTest
+java -cp "target/classes:target/test-classes" org.junit.platform.console.ConsoleLauncher --class-path "target/classes:target/test-classes" --select-class org.library.service.SearchIndexTest
+java -cp "target/classes:target/test-classes" org.junit.platform.console.ConsoleLauncher --class-path "target/classes:target/test-classes" --select-class org.library.persistence.CatalogJournalTest
+java -cp "target/classes:target/test-classes" org.junit.platform.console.ConsoleLauncher --class-path "target/classes:target/test-classes" --select-class org.library.persistence.LibraryStoreTest
+java -cp "target/classes:target/test-classes" org.junit.platform.console.ConsoleLauncher --class-path "target/classes:target/test-classes" --select-class org.library.service.MappedCatalogTest
+java -cp "target/classes:target/test-classes" org.junit.platform.console.ConsoleLauncher --class-path "target/classes:target/test-classes" --select-class org.library.io.CatalogImporterTest
+java -cp "target/classes:target/test-classes" org.junit.platform.console.ConsoleLauncher --class-path "target/classes:target/test-classes" --select-class org.library.io.CatalogExporterTest
+java -cp "target/classes:target/test-classes" org.junit.platform.console.ConsoleLauncher --class-path "target/classes:target/test-classes" --select-class org.library.utils.MyStringPoolTest
+java -cp "target/classes:target/test-classes" org.junit.platform.console.ConsoleLauncher --class-path "target/classes:target/test-classes" --select-class org.library.persistence.AuditLogTest
+java -cp "target/classes:target/test-classes" org.junit.platform.console.ConsoleLauncher --class-path "target/classes:target/test-classes" --select-class org.library.utils.MyRingBufferTest
 
 echo ""
 echo "Note: Stress tests require JUnit 5 dependencies."
@@ -0,0 +1,83 @@
+package org.library.benchmarks;
+
+import org.library.model.Book;
+import org.library.service.LibraryService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Поиск и выдача книг в каталоге заданного размера
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LibraryServiceBenchmark {
+
+    @Param({"10000", "1000000"})
+    public int size;
+
+    private LibraryService service;
+    private String session;
+    private String[] titles;
+    private String[] queries;
+    private int cursor;
+
+    @Setup
+    public void setUp() {
+        service = new LibraryService();
+        titles = new String[size];
+        for (int i = 0; i < size; i++) {
+            titles[i] = "Book " + i;
+            service.addBook(new Book(titles[i], "Author " + (i % 1000), 1000 + i % 1025));
+        }
+        service.registerUser("bench", "bench");
+        session = service.loginUser("bench", "bench");
+
+        Random random = new Random(42);
+        queries = new String[1024];
+        for (int i = 0; i < queries.length; i++) {
+            queries[i] = random.nextBoolean()
+                    ? "book " + random.nextInt(size)
+                    : "author " + random.nextInt(1000);
+        }
+        cursor = 0;
+    }
+
+
+    private int next() {
+        return cursor++ & 1023;
+    }
+
+    @Benchmark
+    public List<Book> searchBooks() {
+        return service.searchBooks(queries[next()]);
+    }
+
+    @Benchmark
+    public Book binarySearchBookByTitle() {
+        return service.binarySearchBookByTitle(titles[(int) Math.floorMod(cursor++ * 0x9E3779B1L, (long) size)]);
+    }
+
+    // Выдача с возвратом, чтобы экземпляр оставался доступным
+    @Benchmark
+    public boolean borrowAndReturn() {
+        String title = titles[(int) Math.floorMod(cursor++ * 0x9E3779B1L, (long) size)];
+        boolean borrowed = service.borrowBook(session, title).isSuccess();
+        service.returnBook(session, title);
+        return borrowed;
+    }
+}
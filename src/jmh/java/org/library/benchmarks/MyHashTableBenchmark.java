@@ -0,0 +1,112 @@
+package org.library.benchmarks;
+
+import org.library.utils.MyHashTable;
+import org.library.utils.MyOpenHashTable;
+import org.library.utils.MyTable;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// put/get/remove хеш-таблиц на разных размерах и коэффициентах загрузки.
+// put строит таблицу целиком (с расширениями), get/remove работают с заполненной
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MyHashTableBenchmark {
+
+    @Param({"CHAINING", "CHAINING_INCREMENTAL", "CHAINING_ORDERED", "OPEN_ADDRESSING"})
+    public String engine;
+
+    @Param({"1000", "100000", "1000000"})
+    public int size;
+
+    // Для открытой адресации коэффициент ограничен сверху 1
+    @Param({"0.5", "0.75", "0.9"})
+    public double loadFactor;
+
+    private String[] keys;
+    private String[] missingKeys;
+    private int[] order;
+    private MyTable<String, Integer> filled;
+    private int cursor;
+
+    @Setup
+    public void setUp() {
+        keys = new String[size];
+        missingKeys = new String[size];
+        for (int i = 0; i < size; i++) {
+            keys[i] = "key-" + i;
+            missingKeys[i] = "missing-" + i;
+        }
+        // Случайный порядок обращений, чтобы не проходить корзины подряд
+        Random random = new Random(42);
+        order = new int[size];
+        for (int i = 0; i < size; i++) order[i] = i;
+        for (int i = size - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int t = order[i];
+            order[i] = order[j];
+            order[j] = t;
+        }
+        filled = newTable();
+        for (int i = 0; i < size; i++) filled.put(keys[i], i);
+        cursor = 0;
+    }
+
+    private MyTable<String, Integer> newTable() {
+        switch (engine) {
+            case "CHAINING_INCREMENTAL": return new MyHashTable<>(16, loadFactor, true);
+            case "CHAINING_ORDERED": return new MyHashTable<>(16, loadFactor, false, true);
+            case "OPEN_ADDRESSING": return new MyOpenHashTable<>(16, loadFactor);
+            default: return new MyHashTable<>(16, loadFactor);
+        }
+    }
+
+    private int next() {
+        int i = order[cursor];
+        if (++cursor == size) cursor = 0;
+        return i;
+    }
+
+    // Полное заполнение пустой таблицы: время на всю серию из size вставок
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public MyTable<String, Integer> putAll() {
+        MyTable<String, Integer> table = newTable();
+        for (int i = 0; i < size; i++) table.put(keys[i], i);
+        return table;
+    }
+
+    @Benchmark
+    public Integer getHit() {
+        return filled.get(keys[next()]);
+    }
+
+    @Benchmark
+    public Integer getMiss() {
+        return filled.get(missingKeys[next()]);
+    }
+
+    // Удаление с возвратом ключа на место, чтобы размер таблицы не менялся
+    @Benchmark
+    public boolean removeAndPut() {
+        int i = next();
+        boolean removed = filled.remove(keys[i]);
+        filled.put(keys[i], i);
+        return removed;
+    }
+}
@@ -0,0 +1,101 @@
+package org.library.benchmarks;
+
+import org.library.model.Book;
+import org.library.utils.MySorts;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Все алгоритмы MySorts на случайных, отсортированных и обратно отсортированных
+// книгах. Сортируется копия исходного списка, подготовленная перед каждым вызовом
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MySortsBenchmark {
+
+    private static final Comparator<Book> BY_YEAR = Comparator.comparingInt(Book::getYear);
+
+    // Пузырьковая сортировка квадратичная, поэтому размеры скромные
+    @Param({"1000", "10000"})
+    public int size;
+
+    @Param({"RANDOM", "SORTED", "REVERSED"})
+    public String input;
+
+    private List<Book> source;
+    private List<Book> list;
+
+    @Setup(Level.Trial)
+    public void createInput() {
+        Random random = new Random(42);
+        source = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            source.add(new Book("Book " + i, "Author " + (i % 100), 1000 + random.nextInt(1025)));
+        }
+        if (input.equals("SORTED")) {
+            source.sort(BY_YEAR);
+        } else if (input.equals("REVERSED")) {
+            source.sort(BY_YEAR.reversed());
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void copyInput() {
+        list = new ArrayList<>(source);
+    }
+
+    @Benchmark
+    public List<Book> bubbleSort() {
+        MySorts.bubbleSort(list, BY_YEAR);
+        return list;
+    }
+
+    @Benchmark
+    public List<Book> insertionSort() {
+        MySorts.insertionSort(list, BY_YEAR);
+        return list;
+    }
+
+    @Benchmark
+    public List<Book> mergeSort() {
+        MySorts.mergeSort(list, BY_YEAR);
+        return list;
+    }
+
+    @Benchmark
+    public List<Book> parallelMergeSort() {
+        MySorts.parallelMergeSort(list, BY_YEAR);
+        return list;
+    }
+
+    @Benchmark
+    public List<Book> countingSort() {
+        MySorts.countingSort(list, Book::getYear);
+        return list;
+    }
+
+    // Точка отсчёта — встроенная сортировка
+    @Benchmark
+    public List<Book> listSort() {
+        list.sort(BY_YEAR);
+        return list;
+    }
+}
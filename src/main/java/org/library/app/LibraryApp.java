@@ -1,15 +1,34 @@
 package org.library.app;
 
+import java.io.IOException;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.List;
 import java.util.Scanner;
+import java.util.function.IntFunction;
 
+import org.library.io.CatalogExporter;
+import org.library.io.CatalogImporter;
+import org.library.io.ExportStats;
+import org.library.io.ImportStats;
 import org.library.model.Book;
 import org.library.model.User;
+import org.library.persistence.AuditLog;
+import org.library.persistence.LibraryStore;
+import org.library.service.CirculationResult;
 import org.library.service.LibraryService;
+import org.library.service.Page;
 
 public class LibraryApp {
     private static final Scanner scanner = new Scanner(System.in);
+    // Сколько книг выводится за раз в длинных списках
+    private static final int PAGE_SIZE = 20;
     private static final LibraryService libraryService = new LibraryService();
+    private static LibraryStore libraryStore;
+    private static AuditLog auditLog;
+    // Токен сессии вошедшего пользователя или null
+    private static String session;
 
     public static void main(String[] args) {
         System.out.println("╔══════════════════════════════════════════════════════════════╗");
@@ -17,8 +36,12 @@ public class LibraryApp {
         System.out.println("║                    Library Book Manager                      ║");
         System.out.println("╚══════════════════════════════════════════════════════════════╝");
         
-        // Добавляем несколько тестовых книг для демонстрации
-        addSampleBooks();
+        openStore();
+
+        // Тестовые книги добавляем только в пустой каталог
+        if (libraryService.getBookCount() == 0) {
+            addSampleBooks();
+        }
         
         User currentUser = null;
 
@@ -42,6 +65,44 @@ public class LibraryApp {
         
         System.out.println("\nСпасибо за использование системы управления библиотекой!");
         scanner.close();
+        closeStore();
+    }
+
+    // Каталог хранится в папке library-data (или -Dlibrary.data=...),
+    // журнал аудита — в её подпапке audit
+    private static void openStore() {
+        Path dataDir = Paths.get(System.getProperty("library.data", "library-data"));
+        try {
+            libraryStore = LibraryStore.open(dataDir, libraryService);
+            Runtime.getRuntime().addShutdownHook(new Thread(LibraryApp::closeStore));
+        } catch (IOException e) {
+            System.out.println("⚠️ Не удалось открыть хранилище " + dataDir + ": " + e.getMessage());
+            System.out.println("Данные не будут сохранены после выхода.");
+            return;
+        }
+        try {
+            auditLog = AuditLog.open(dataDir.resolve("audit"), libraryService);
+        } catch (IOException e) {
+            System.out.println("⚠️ Не удалось открыть журнал аудита: " + e.getMessage());
+        }
+    }
+
+    private static synchronized void closeStore() {
+        if (auditLog != null) {
+            try {
+                auditLog.close();
+            } catch (IOException e) {
+                System.out.println("⚠️ Ошибка при записи журнала аудита: " + e.getMessage());
+            }
+            auditLog = null;
+        }
+        if (libraryStore == null) return;
+        try {
+            libraryStore.close();
+        } catch (IOException e) {
+            System.out.println("⚠️ Ошибка при сохранении данных: " + e.getMessage());
+        }
+        libraryStore = null;
     }
 
     private static void addSampleBooks() {
@@ -78,6 +139,8 @@ public class LibraryApp {
             System.out.println("6. 📥 Вернуть книгу");
             System.out.println("7. 🎯 Точный поиск книги (бинарный поиск)");
             System.out.println("8. 🚪 Выйти из аккаунта");
+            System.out.println("9. 📂 Импорт книг из файла CSV/TSV");
+            System.out.println("10. 💾 Экспорт каталога в файл CSV/TSV");
         }
         System.out.println("0. ❌ Выход из программы");
         System.out.println("═".repeat(60));
@@ -122,7 +185,7 @@ public class LibraryApp {
         
         if (libraryService.registerUser(username, password)) {
             System.out.println("✅ Пользователь " + username + " успешно зарегистрирован.");
-            return libraryService.getLoggedInUser();
+            return null;
         } else {
             System.out.println("❌ Пользователь с таким именем уже существует.");
             return null;
@@ -136,8 +199,9 @@ public class LibraryApp {
         System.out.print("Введите пароль: ");
         String password = scanner.nextLine().trim();
         
-        if (libraryService.loginUser(username, password)) {
-            User user = libraryService.getLoggedInUser();
+        session = libraryService.loginUser(username, password);
+        if (session != null) {
+            User user = libraryService.getSessionUser(session);
             System.out.println("✅ Добро пожаловать, " + user.getUsername() + "!");
             return user;
         } else {
@@ -170,9 +234,16 @@ public class LibraryApp {
                 handleBinarySearch();
                 break;
             case "8":
-                libraryService.logoutUser();
+                libraryService.logoutUser(session);
+                session = null;
                 System.out.println("👋 Вы вышли из аккаунта.");
                 break;
+            case "9":
+                handleImportBooks();
+                break;
+            case "10":
+                handleExportBooks();
+                break;
             case "0":
                 break;
             default:
@@ -206,13 +277,83 @@ public class LibraryApp {
         System.out.println("✅ Книга \"" + title + "\" успешно добавлена в библиотеку.");
     }
 
+    private static void handleImportBooks() {
+        System.out.println("\n📂 ИМПОРТ КНИГ");
+        System.out.println("Формат: название, автор, год — по строке на книгу (.csv через запятую, .tsv через табуляцию).");
+        System.out.print("Введите путь к файлу: ");
+        String path = scanner.nextLine().trim();
+
+        if (path.isEmpty()) {
+            System.out.println("❌ Путь к файлу не может быть пустым.");
+            return;
+        }
+
+        CatalogImporter importer = new CatalogImporter(libraryService);
+        importer.setProgressListener(progress -> {
+            if (progress.getImported() % 1_000_000 < CatalogImporter.DEFAULT_BATCH_SIZE) {
+                System.out.println("   … " + progress);
+            }
+        });
+        try {
+            ImportStats stats = importer.importFile(Paths.get(path));
+            System.out.println("✅ Импорт завершён: " + stats);
+            for (String error : stats.getErrors()) {
+                System.out.println("   ⚠️ " + error);
+            }
+            if (stats.getRejected() > stats.getErrors().size()) {
+                System.out.println("   … и ещё " + (stats.getRejected() - stats.getErrors().size()) + " отклонённых строк.");
+            }
+        } catch (IOException | InvalidPathException e) {
+            System.out.println("❌ Не удалось прочитать файл: " + e.getMessage());
+        }
+    }
+
+    private static void handleExportBooks() {
+        System.out.println("\n💾 ЭКСПОРТ КАТАЛОГА");
+        System.out.println("Выберите порядок книг в файле:");
+        System.out.println("1. 📖 По названию");
+        System.out.println("2. 👤 По автору");
+        System.out.println("3. 📅 По году издания");
+
+        String sortType = getValidChoice();
+        CatalogExporter.SortKey key;
+        switch (sortType) {
+            case "1":
+                key = CatalogExporter.SortKey.TITLE;
+                break;
+            case "2":
+                key = CatalogExporter.SortKey.AUTHOR;
+                break;
+            case "3":
+                key = CatalogExporter.SortKey.YEAR;
+                break;
+            default:
+                System.out.println("❌ Некорректный выбор критерия сортировки.");
+                return;
+        }
+
+        System.out.print("Введите путь к файлу (.csv или .tsv): ");
+        String path = scanner.nextLine().trim();
+        if (path.isEmpty()) {
+            System.out.println("❌ Путь к файлу не может быть пустым.");
+            return;
+        }
+
+        try {
+            ExportStats stats = new CatalogExporter(libraryService).exportFile(Paths.get(path), key);
+            System.out.println("✅ Экспорт завершён: " + stats);
+        } catch (IOException | InvalidPathException e) {
+            System.out.println("❌ Не удалось записать файл: " + e.getMessage());
+        }
+    }
+
     private static int getValidYear() {
         while (true) {
             System.out.print("Введите год издания: ");
             try {
                 int year = Integer.parseInt(scanner.nextLine().trim());
-                if (year < 1000 || year > 2024) {
-                    System.out.println("❌ Год должен быть между 1000 и 2024.");
+                if (year < LibraryService.MIN_YEAR || year > LibraryService.MAX_YEAR) {
+                    System.out.println("❌ Год должен быть между " + LibraryService.MIN_YEAR + " и " + LibraryService.MAX_YEAR + ".");
                     continue;
                 }
                 return year;
@@ -237,9 +378,7 @@ public class LibraryApp {
             System.out.println("📭 Книги не найдены.");
         } else {
             System.out.println("📚 Найденные книги (" + found.size() + "):");
-            for (int i = 0; i < found.size(); i++) {
-                System.out.println((i + 1) + ". " + found.get(i));
-            }
+            printPages(offset -> Page.slice(found, offset, PAGE_SIZE));
         }
     }
 
@@ -261,34 +400,65 @@ public class LibraryApp {
         System.out.println("2. 🔄 Сортировка слиянием");
         System.out.println("3. 📌 Сортировка вставками");
         System.out.println("4. ⚡ Встроенная сортировка Java");
+        System.out.println("5. 🚀 Параллельная сортировка слиянием");
+        System.out.println("6. 🏆 Постранично: первые книги через ограниченную кучу");
         
         String algorithmType = getValidChoice();
-        if (!algorithmType.matches("[1-4]")) {
+        if (!algorithmType.matches("[1-6]")) {
             System.out.println("❌ Некорректный выбор алгоритма сортировки.");
             return;
         }
-        
-        List<Book> sorted = libraryService.sortBooks(sortType, algorithmType);
-        if (sorted.isEmpty()) {
+
+        if (libraryService.getBookCount() == 0) {
             System.out.println("📭 В библиотеке нет книг для сортировки.");
-        } else {
-            System.out.println("📚 Отсортированные книги (" + sorted.size() + "):");
-            for (int i = 0; i < sorted.size(); i++) {
-                System.out.println((i + 1) + ". " + sorted.get(i));
-            }
+            return;
+        }
+        if (algorithmType.equals("6")) {
+            // Каждая страница отбирается заново за O(n log k), весь каталог не сортируется
+            System.out.println("📚 Отсортированные книги (" + libraryService.getBookCount() + "):");
+            printPages(offset -> libraryService.sortBooksPage(sortType, offset, PAGE_SIZE));
+            return;
+        }
+        
+        List<Book> sorted;
+        try {
+            sorted = libraryService.sortBooks(sortType, algorithmType);
+        } catch (IllegalArgumentException e) {
+            System.out.println("❌ " + e.getMessage());
+            return;
         }
+        System.out.println("📚 Отсортированные книги (" + sorted.size() + "):");
+        printPages(offset -> Page.slice(sorted, offset, PAGE_SIZE));
     }
 
     private static void handleShowAllBooks() {
         System.out.println("\n📖 ВСЕ КНИГИ В БИБЛИОТЕКЕ");
-        List<Book> allBooks = libraryService.getAllBooks();
-        if (allBooks.isEmpty()) {
+        int total = libraryService.getBookCount();
+        if (total == 0) {
             System.out.println("📭 В библиотеке нет книг.");
         } else {
-            System.out.println("📚 Всего книг: " + allBooks.size());
-            for (int i = 0; i < allBooks.size(); i++) {
-                System.out.println((i + 1) + ". " + allBooks.get(i));
+            System.out.println("📚 Всего книг: " + total);
+            printPages(offset -> libraryService.getBooksPage(offset, PAGE_SIZE));
+        }
+    }
+
+    // Выводит страницы по PAGE_SIZE книг; следующая запрашивается по Enter
+    private static void printPages(IntFunction<Page> pages) {
+        int offset = 0;
+        while (true) {
+            Page page = pages.apply(offset);
+            List<Book> books = page.getBooks();
+            for (int i = 0; i < books.size(); i++) {
+                System.out.println((page.getOffset() + i + 1) + ". " + books.get(i));
+            }
+            if (!page.hasNext() || books.isEmpty()) {
+                return;
             }
+            System.out.print("Показано " + page.getNextOffset() + " из " + page.getTotal() + ". Enter — следующая страница, 0 — достаточно: ");
+            if (!scanner.nextLine().trim().isEmpty()) {
+                return;
+            }
+            offset = page.getNextOffset();
         }
     }
 
@@ -302,10 +472,7 @@ public class LibraryApp {
             return;
         }
         
-        boolean success = libraryService.borrowBook(title);
-        if (success) {
-            System.out.println("✅ Книга успешно выдана.");
-        }
+        printCirculation(libraryService.borrowBook(session, title));
     }
 
     private static void handleReturnBook() {
@@ -318,9 +485,35 @@ public class LibraryApp {
             return;
         }
         
-        boolean success = libraryService.returnBook(title);
-        if (success) {
-            System.out.println("✅ Книга успешно возвращена.");
+        printCirculation(libraryService.returnBook(session, title));
+    }
+
+    // Сервис возвращает только исход выдачи или возврата; текст для
+    // пользователя собирается здесь
+    private static void printCirculation(CirculationResult result) {
+        String title = result.getBook() != null ? result.getBook().getTitle() : result.getTitle();
+        switch (result.getStatus()) {
+            case BORROWED:
+                System.out.println("✅ Книга \"" + title + "\" выдана пользователю " + result.getBorrowedBy() + ".");
+                break;
+            case RETURNED:
+                System.out.println("✅ Книга \"" + title + "\" возвращена.");
+                break;
+            case ALREADY_BORROWED:
+                System.out.println("❌ Книга \"" + title + "\" уже выдана пользователю " + result.getBorrowedBy() + ".");
+                break;
+            case NOT_OWNER:
+                System.out.println("❌ Книга \"" + title + "\" была взята другим пользователем: " + result.getBorrowedBy() + ". Вы не можете ее вернуть.");
+                break;
+            case NOT_BORROWED:
+                System.out.println("❌ Книга \"" + title + "\" не была выдана.");
+                break;
+            case NOT_FOUND:
+                System.out.println("❌ Книга с названием \"" + title + "\" не найдена.");
+                break;
+            case NOT_LOGGED_IN:
+                System.out.println("❌ Сессия истекла. Войдите в систему снова.");
+                break;
         }
     }
 
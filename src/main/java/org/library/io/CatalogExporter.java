@@ -0,0 +1,460 @@
+package org.library.io;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import org.library.io.CatalogImporter.Format;
+import org.library.model.Book;
+import org.library.service.LibraryService;
+import org.library.utils.MySorts;
+
+// Выгрузка каталога в CSV или TSV, отсортированного по названию, автору или
+// году. Формат тот же, что читает CatalogImporter: строка заголовка, затем
+// название, автор, год. Строки кодируются в UTF-8 вручную в переиспользуемый
+// буфер, который сбрасывается в OutputStream или канал, — без промежуточных
+// строк и массивов на каждую книгу.
+//
+// Книги копятся в прогон, пока оценка его размера в памяти не превысит
+// бюджет. Если уместился весь каталог, прогон сортируется и пишется сразу.
+// Иначе каждый полный прогон сортируется и сбрасывается во временный файл,
+// а в конце файлы сливаются через двоичную кучу. Книги снимка приходят из
+// LibraryService.forEachBook временными копиями, поэтому в куче живёт не
+// больше одного прогона и выгрузить можно каталог больше кучи.
+//
+// Сортировка устойчива: книги с равным ключом идут в порядке обхода каталога
+public class CatalogExporter {
+    public enum SortKey {
+        TITLE(Comparator.comparing(Book::getTitle, String.CASE_INSENSITIVE_ORDER)),
+        AUTHOR(Comparator.comparing(Book::getAuthor, String.CASE_INSENSITIVE_ORDER)),
+        YEAR(Comparator.comparingInt(Book::getYear));
+
+        final Comparator<Book> comparator;
+
+        SortKey(Comparator<Book> comparator) {
+            this.comparator = comparator;
+        }
+    }
+
+    private static final int BUFFER_SIZE = 64 << 10;
+    // Книга в прогоне: объект Book, две строки со своими массивами и ссылка
+    // в массиве прогона; символы строк считаются по два байта
+    private static final int BOOK_OVERHEAD = 112;
+
+    private final LibraryService service;
+    private long memoryBudget = Runtime.getRuntime().maxMemory() / 8;
+    private Path tempDirectory;
+
+    public CatalogExporter(LibraryService service) {
+        this.service = service;
+    }
+
+    // Сколько памяти может занять один прогон; по умолчанию 1/8 кучи
+    public void setMemoryBudget(long memoryBudget) {
+        if (memoryBudget <= 0) {
+            throw new IllegalArgumentException("Бюджет памяти должен быть положительным: " + memoryBudget);
+        }
+        this.memoryBudget = memoryBudget;
+    }
+
+    // Папка для временных файлов сортировки; по умолчанию системная
+    public void setTempDirectory(Path tempDirectory) {
+        this.tempDirectory = tempDirectory;
+    }
+
+    public ExportStats exportFile(Path file, SortKey key) throws IOException {
+        return exportFile(file, key, Format.forFile(file));
+    }
+
+    public ExportStats exportFile(Path file, SortKey key, Format format) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            return exportTo(channel, key, format);
+        }
+    }
+
+    // Поток и канал не закрываются
+    public ExportStats exportTo(OutputStream out, SortKey key, Format format) throws IOException {
+        return new Run(key, format).write(new Utf8Writer(out, null));
+    }
+
+    public ExportStats exportTo(WritableByteChannel channel, SortKey key, Format format) throws IOException {
+        return new Run(key, format).write(new Utf8Writer(null, channel));
+    }
+
+    // Состояние одной выгрузки
+    private final class Run {
+        private final SortKey key;
+        private final byte delimiter;
+        private final boolean quoting;
+        private final long startNanos = System.nanoTime();
+
+        private Book[] run = new Book[1024];
+        private int size;
+        private long runBytes;
+        private final List<Path> spills = new ArrayList<>();
+        private long[] spillCounts = new long[8];
+        private Utf8Writer spillWriter;
+        private long books;
+
+        Run(SortKey key, Format format) {
+            this.key = key;
+            this.delimiter = format.delimiter;
+            this.quoting = format == Format.CSV;
+        }
+
+        ExportStats write(Utf8Writer out) throws IOException {
+            try {
+                try {
+                    service.forEachBook(this::collect);
+                } catch (UncheckedIOException e) {
+                    throw e.getCause();
+                }
+                writeHeader(out);
+                if (spills.isEmpty()) {
+                    sort();
+                    for (int i = 0; i < size; i++) {
+                        writeRow(out, run[i]);
+                    }
+                } else {
+                    if (size > 0) spill();
+                    merge(out);
+                }
+                out.flush();
+                return new ExportStats(books, out.written, spills.size(), System.nanoTime() - startNanos);
+            } finally {
+                for (Path file : spills) {
+                    try {
+                        Files.deleteIfExists(file);
+                    } catch (IOException ignored) {
+                        // Временный файл останется в системной папке
+                    }
+                }
+            }
+        }
+
+        private void collect(Book book) {
+            if (size == run.length) run = Arrays.copyOf(run, size * 2);
+            run[size++] = book;
+            runBytes += BOOK_OVERHEAD + 2L * (book.getTitle().length() + book.getAuthor().length());
+            if (runBytes >= memoryBudget) {
+                try {
+                    spill();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        }
+
+        private void sort() {
+            if (key == SortKey.YEAR) {
+                MySorts.countingSort(run, 0, size, Book::getYear);
+            } else {
+                MySorts.mergeSort(run, 0, size, key.comparator);
+            }
+        }
+
+        // Сортирует прогон и пишет его во временный файл: длина и байты
+        // названия, длина и байты автора, год
+        private void spill() throws IOException {
+            sort();
+            Path file = tempDirectory == null
+                    ? Files.createTempFile("catalog-export-", ".run")
+                    : Files.createTempFile(tempDirectory, "catalog-export-", ".run");
+            if (spills.size() == spillCounts.length) spillCounts = Arrays.copyOf(spillCounts, spills.size() * 2);
+            spillCounts[spills.size()] = size;
+            spills.add(file);
+            try (OutputStream out = Files.newOutputStream(file)) {
+                if (spillWriter == null) {
+                    spillWriter = new Utf8Writer(out, null);
+                } else {
+                    spillWriter.reset(out);
+                }
+                for (int i = 0; i < size; i++) {
+                    Book book = run[i];
+                    spillWriter.writeSized(book.getTitle());
+                    spillWriter.writeSized(book.getAuthor());
+                    spillWriter.writeInt(book.getYear());
+                }
+                spillWriter.flush();
+            }
+            Arrays.fill(run, 0, size, null);
+            size = 0;
+            runBytes = 0;
+        }
+
+        // k-путевое слияние: в вершине кучи — номер файла с наименьшей
+        // текущей книгой; при равенстве выигрывает более ранний файл
+        private void merge(Utf8Writer out) throws IOException {
+            SpillReader[] readers = new SpillReader[spills.size()];
+            int[] heap = new int[readers.length];
+            int heapSize = 0;
+            try {
+                for (int i = 0; i < readers.length; i++) {
+                    readers[i] = new SpillReader(spills.get(i), spillCounts[i]);
+                    if (readers[i].advance()) heap[heapSize++] = i;
+                }
+                for (int i = heapSize / 2 - 1; i >= 0; i--) {
+                    siftDown(readers, heap, heapSize, i);
+                }
+                while (heapSize > 0) {
+                    SpillReader top = readers[heap[0]];
+                    writeRow(out, top.current);
+                    if (!top.advance()) {
+                        heap[0] = heap[--heapSize];
+                    }
+                    siftDown(readers, heap, heapSize, 0);
+                }
+            } finally {
+                for (SpillReader reader : readers) {
+                    if (reader != null) reader.in.close();
+                }
+            }
+        }
+
+        private void siftDown(SpillReader[] readers, int[] heap, int heapSize, int i) {
+            int item = heap[i];
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= heapSize) break;
+                if (child + 1 < heapSize && less(readers, heap[child + 1], heap[child])) child++;
+                if (!less(readers, heap[child], item)) break;
+                heap[i] = heap[child];
+                i = child;
+            }
+            heap[i] = item;
+        }
+
+        private boolean less(SpillReader[] readers, int a, int b) {
+            int c = key.comparator.compare(readers[a].current, readers[b].current);
+            return c < 0 || (c == 0 && a < b);
+        }
+
+        private void writeHeader(Utf8Writer out) throws IOException {
+            out.writeUtf8("title", 0, 5);
+            out.writeByte(delimiter);
+            out.writeUtf8("author", 0, 6);
+            out.writeByte(delimiter);
+            out.writeUtf8("year", 0, 4);
+            out.writeByte('\n');
+        }
+
+        private void writeRow(Utf8Writer out, Book book) throws IOException {
+            writeField(out, book.getTitle());
+            out.writeByte(delimiter);
+            writeField(out, book.getAuthor());
+            out.writeByte(delimiter);
+            out.writeDecimal(book.getYear());
+            out.writeByte('\n');
+            books++;
+        }
+
+        // CSV: поле с разделителем, кавычкой или переводом строки берётся в
+        // кавычки, кавычки внутри удваиваются. В TSV кавычек нет, поэтому
+        // табуляции и переводы строк заменяются пробелами
+        private void writeField(Utf8Writer out, String value) throws IOException {
+            int length = value.length();
+            if (!quoting) {
+                int start = 0;
+                for (int i = 0; i < length; i++) {
+                    char c = value.charAt(i);
+                    if (c == '\t' || c == '\n' || c == '\r') {
+                        out.writeUtf8(value, start, i);
+                        out.writeByte(' ');
+                        start = i + 1;
+                    }
+                }
+                out.writeUtf8(value, start, length);
+                return;
+            }
+            boolean needsQuotes = false;
+            for (int i = 0; i < length && !needsQuotes; i++) {
+                char c = value.charAt(i);
+                needsQuotes = c == delimiter || c == '"' || c == '\n' || c == '\r';
+            }
+            if (!needsQuotes) {
+                out.writeUtf8(value, 0, length);
+                return;
+            }
+            out.writeByte('"');
+            int start = 0;
+            for (int i = 0; i < length; i++) {
+                if (value.charAt(i) == '"') {
+                    out.writeUtf8(value, start, i + 1);
+                    out.writeByte('"');
+                    start = i + 1;
+                }
+            }
+            out.writeUtf8(value, start, length);
+            out.writeByte('"');
+        }
+    }
+
+    // Чтение отсортированного прогона из временного файла
+    private static final class SpillReader {
+        final DataInputStream in;
+        private long remaining;
+        private byte[] scratch = new byte[64];
+        Book current;
+
+        SpillReader(Path file, long count) throws IOException {
+            this.in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), BUFFER_SIZE));
+            this.remaining = count;
+        }
+
+        boolean advance() throws IOException {
+            if (remaining == 0) {
+                current = null;
+                return false;
+            }
+            remaining--;
+            String title = readSized();
+            String author = readSized();
+            current = new Book(title, author, in.readInt());
+            return true;
+        }
+
+        private String readSized() throws IOException {
+            int length = in.readInt();
+            if (length > scratch.length) scratch = new byte[Math.max(length, scratch.length * 2)];
+            in.readFully(scratch, 0, length);
+            return new String(scratch, 0, length, StandardCharsets.UTF_8);
+        }
+    }
+
+    // Буфер, в который строки кодируются в UTF-8 посимвольно; заполненный
+    // буфер сбрасывается в поток или канал и используется заново.
+    // Одиночные суррогаты заменяются на '?', как при String.getBytes
+    private static final class Utf8Writer {
+        private OutputStream out;
+        private final WritableByteChannel channel;
+        private final byte[] buf = new byte[BUFFER_SIZE];
+        private final ByteBuffer wrapped = ByteBuffer.wrap(buf);
+        private int pos;
+        long written;
+
+        Utf8Writer(OutputStream out, WritableByteChannel channel) {
+            this.out = out;
+            this.channel = channel;
+        }
+
+        void reset(OutputStream out) {
+            this.out = out;
+            this.pos = 0;
+            this.written = 0;
+        }
+
+        void writeByte(int b) throws IOException {
+            if (pos == buf.length) drain();
+            buf[pos++] = (byte) b;
+        }
+
+        void writeInt(int v) throws IOException {
+            if (buf.length - pos < 4) drain();
+            buf[pos++] = (byte) (v >>> 24);
+            buf[pos++] = (byte) (v >>> 16);
+            buf[pos++] = (byte) (v >>> 8);
+            buf[pos++] = (byte) v;
+        }
+
+        void writeDecimal(int v) throws IOException {
+            if (buf.length - pos < 11) drain();
+            if (v < 0) {
+                buf[pos++] = '-';
+                if (v == Integer.MIN_VALUE) {
+                    writeUtf8("2147483648", 0, 10);
+                    return;
+                }
+                v = -v;
+            }
+            int digits = 1;
+            for (int rest = v / 10; rest != 0; rest /= 10) digits++;
+            for (int i = pos + digits - 1; i >= pos; i--) {
+                buf[i] = (byte) ('0' + v % 10);
+                v /= 10;
+            }
+            pos += digits;
+        }
+
+        // Строка с длиной в байтах впереди — для временных файлов
+        void writeSized(String s) throws IOException {
+            writeInt(utf8Length(s));
+            writeUtf8(s, 0, s.length());
+        }
+
+        void writeUtf8(String s, int from, int to) throws IOException {
+            for (int i = from; i < to; i++) {
+                char c = s.charAt(i);
+                if (buf.length - pos < 4) drain();
+                if (c < 0x80) {
+                    buf[pos++] = (byte) c;
+                } else if (c < 0x800) {
+                    buf[pos++] = (byte) (0xC0 | (c >> 6));
+                    buf[pos++] = (byte) (0x80 | (c & 0x3F));
+                } else if (Character.isHighSurrogate(c) && i + 1 < to && Character.isLowSurrogate(s.charAt(i + 1))) {
+                    int cp = Character.toCodePoint(c, s.charAt(++i));
+                    buf[pos++] = (byte) (0xF0 | (cp >> 18));
+                    buf[pos++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+                    buf[pos++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+                    buf[pos++] = (byte) (0x80 | (cp & 0x3F));
+                } else if (Character.isSurrogate(c)) {
+                    buf[pos++] = '?';
+                } else {
+                    buf[pos++] = (byte) (0xE0 | (c >> 12));
+                    buf[pos++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                    buf[pos++] = (byte) (0x80 | (c & 0x3F));
+                }
+            }
+        }
+
+        static int utf8Length(String s) {
+            int length = 0;
+            for (int i = 0; i < s.length(); i++) {
+                char c = s.charAt(i);
+                if (c < 0x80) {
+                    length++;
+                } else if (c < 0x800) {
+                    length += 2;
+                } else if (Character.isHighSurrogate(c) && i + 1 < s.length() && Character.isLowSurrogate(s.charAt(i + 1))) {
+                    length += 4;
+                    i++;
+                } else if (Character.isSurrogate(c)) {
+                    length++;
+                } else {
+                    length += 3;
+                }
+            }
+            return length;
+        }
+
+        void flush() throws IOException {
+            drain();
+            if (out != null) out.flush();
+        }
+
+        private void drain() throws IOException {
+            if (pos == 0) return;
+            if (out != null) {
+                out.write(buf, 0, pos);
+            } else {
+                wrapped.clear().limit(pos);
+                while (wrapped.hasRemaining()) channel.write(wrapped);
+            }
+            written += pos;
+            pos = 0;
+        }
+    }
+}
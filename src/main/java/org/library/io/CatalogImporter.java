@@ -0,0 +1,310 @@
+package org.library.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+
+import org.library.model.Book;
+import org.library.service.LibraryService;
+
+// Массовый импорт каталога из CSV или TSV: название, автор, год (лишние
+// столбцы игнорируются). Файл читается через канал большими блоками, строки
+// разбираются по байтам конечным автоматом без регулярных выражений и split;
+// строки String создаются только для названия и автора принятой книги.
+//
+// Проверки те же, что при вводе с консоли: после обрезки пробелов название
+// и автор не пусты, год — число от MIN_YEAR до MAX_YEAR. Отклонённые строки
+// считаются и описываются, импорт при этом продолжается. Первая строка с
+// нечисловым годом считается заголовком.
+//
+// Перед вставкой таблицы сервиса заранее расширяются по оценке числа строк,
+// книги добавляются пакетами через LibraryService.addBooks
+public class CatalogImporter {
+    public enum Format {
+        CSV((byte) ','),
+        TSV((byte) '\t');
+
+        final byte delimiter;
+
+        Format(byte delimiter) {
+            this.delimiter = delimiter;
+        }
+
+        // По расширению файла: .tsv и .tab — TSV, остальное — CSV
+        public static Format forFile(Path file) {
+            String name = file.getFileName().toString().toLowerCase();
+            return name.endsWith(".tsv") || name.endsWith(".tab") ? TSV : CSV;
+        }
+    }
+
+    public static final int DEFAULT_BATCH_SIZE = 10_000;
+    public static final int MAX_REPORTED_ERRORS = 100;
+    private static final int BUFFER_SIZE = 1 << 20;
+    // Столбцы, которые нужны: название, автор, год
+    private static final int FIELDS = 3;
+    // Оценка числа строк по размеру файла не должна раздувать таблицы
+    // из-за одной короткой строки в начале
+    private static final int MAX_PRESIZE = 50_000_000;
+
+    private final LibraryService service;
+    private int batchSize = DEFAULT_BATCH_SIZE;
+    private Consumer<ImportStats> progressListener;
+
+    public CatalogImporter(LibraryService service) {
+        this.service = service;
+    }
+
+    public void setBatchSize(int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Размер пакета должен быть положительным: " + batchSize);
+        }
+        this.batchSize = batchSize;
+    }
+
+    // Вызывается после каждого пакета с текущими счётчиками
+    public void setProgressListener(Consumer<ImportStats> progressListener) {
+        this.progressListener = progressListener;
+    }
+
+    public ImportStats importFile(Path file) throws IOException {
+        return importFile(file, Format.forFile(file));
+    }
+
+    public ImportStats importFile(Path file, Format format) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return importFrom(channel, format, channel.size());
+        }
+    }
+
+    // sizeHint — ожидаемый размер данных в байтах или -1, если неизвестен
+    public ImportStats importFrom(ReadableByteChannel channel, Format format, long sizeHint) throws IOException {
+        return new Run(format, sizeHint).read(channel);
+    }
+
+    // Состояние одного импорта
+    private final class Run {
+        private final byte delimiter;
+        private final boolean quoting;
+        private final long sizeHint;
+        private final long startNanos = System.nanoTime();
+
+        private final byte[][] fields = new byte[FIELDS][64];
+        private final int[] lengths = new int[FIELDS];
+        private int field;
+        private boolean inQuotes;
+        private boolean quotePending;
+        private boolean rowHasData;
+
+        private final List<Book> batch = new ArrayList<>();
+        private final List<String> errors = new ArrayList<>();
+        private long rowsRead;
+        private long imported;
+        private long rejected;
+        private long bytesRead;
+        private long line = 1;
+        private long rowLine = 1;
+        private boolean headerChecked;
+        private boolean presized;
+
+        Run(Format format, long sizeHint) {
+            this.delimiter = format.delimiter;
+            this.quoting = format == Format.CSV;
+            this.sizeHint = sizeHint;
+        }
+
+        ImportStats read(ReadableByteChannel channel) throws IOException {
+            ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+            byte[] data = buffer.array();
+            boolean first = true;
+            int n;
+            while ((n = channel.read(buffer)) >= 0) {
+                if (n == 0) continue;
+                int from = 0;
+                if (first) {
+                    first = false;
+                    // Метка порядка байтов UTF-8
+                    if (buffer.position() >= 3 && data[0] == (byte) 0xEF && data[1] == (byte) 0xBB && data[2] == (byte) 0xBF) {
+                        from = 3;
+                    }
+                }
+                parse(data, from, buffer.position());
+                bytesRead += buffer.position();
+                buffer.clear();
+                if (!presized) {
+                    presize();
+                    if (batch.size() >= batchSize) flush();
+                }
+            }
+            if (rowHasData || field > 0) endRow();
+            flush();
+            return stats();
+        }
+
+        private void parse(byte[] data, int from, int to) {
+            for (int i = from; i < to; i++) {
+                byte b = data[i];
+                if (inQuotes) {
+                    if (quotePending) {
+                        quotePending = false;
+                        if (b == '"') {
+                            // Удвоенная кавычка внутри кавычек — сама кавычка
+                            append(b);
+                            continue;
+                        }
+                        inQuotes = false;
+                        // Закрывающая кавычка: символ обрабатывается ниже как обычный
+                    } else {
+                        if (b == '"') {
+                            quotePending = true;
+                        } else {
+                            if (b == '\n') line++;
+                            append(b);
+                        }
+                        continue;
+                    }
+                }
+                if (b == delimiter) {
+                    field++;
+                    rowHasData = true;
+                } else if (b == '\n') {
+                    endRow();
+                    line++;
+                    rowLine = line;
+                } else if (b == '\r') {
+                    // Конец строки в стиле Windows: ждём следующий \n
+                } else if (b == '"' && quoting) {
+                    inQuotes = true;
+                    rowHasData = true;
+                } else {
+                    append(b);
+                }
+            }
+        }
+
+        private void append(byte b) {
+            rowHasData = true;
+            if (field >= FIELDS) return;
+            byte[] buf = fields[field];
+            int len = lengths[field];
+            if (len == buf.length) {
+                buf = Arrays.copyOf(buf, len * 2);
+                fields[field] = buf;
+            }
+            buf[len] = b;
+            lengths[field] = len + 1;
+        }
+
+        private void endRow() {
+            // Незакрытая кавычка в конце файла закрывается неявно
+            inQuotes = false;
+            quotePending = false;
+            if (rowHasData) {
+                processRow();
+            }
+            field = 0;
+            rowHasData = false;
+            Arrays.fill(lengths, 0);
+        }
+
+        private void processRow() {
+            boolean firstRow = !headerChecked;
+            headerChecked = true;
+            int year = parseYear();
+            if (year == Integer.MIN_VALUE && firstRow && field + 1 >= FIELDS) {
+                return; // заголовок
+            }
+            rowsRead++;
+            String error = validate(year);
+            if (error != null) {
+                rejected++;
+                if (errors.size() < MAX_REPORTED_ERRORS) {
+                    errors.add("Строка " + rowLine + ": " + error);
+                }
+                return;
+            }
+            batch.add(new Book(trimmed(0), trimmed(1), year));
+            // До оценки размера файла книги копятся, чтобы первый же пакет
+            // попал в заранее расширенные таблицы
+            if (presized && batch.size() >= batchSize) flush();
+        }
+
+        private String validate(int year) {
+            if (field + 1 < FIELDS) return "ожидалось " + FIELDS + " столбца, найдено " + (field + 1);
+            if (trimmedStart(0) == trimmedEnd(0)) return "название книги не может быть пустым";
+            if (trimmedStart(1) == trimmedEnd(1)) return "имя автора не может быть пустым";
+            if (year == Integer.MIN_VALUE) return "некорректный год";
+            if (year < LibraryService.MIN_YEAR || year > LibraryService.MAX_YEAR) {
+                return "год должен быть между " + LibraryService.MIN_YEAR + " и " + LibraryService.MAX_YEAR;
+            }
+            return null;
+        }
+
+        // Год из третьего столбца или Integer.MIN_VALUE, если это не число
+        private int parseYear() {
+            int start = trimmedStart(2);
+            int end = trimmedEnd(2);
+            if (start == end || end - start > 9) return Integer.MIN_VALUE;
+            byte[] buf = fields[2];
+            boolean negative = buf[start] == '-';
+            if (negative || buf[start] == '+') start++;
+            if (start == end) return Integer.MIN_VALUE;
+            int value = 0;
+            for (int i = start; i < end; i++) {
+                int digit = buf[i] - '0';
+                if (digit < 0 || digit > 9) return Integer.MIN_VALUE;
+                value = value * 10 + digit;
+            }
+            return negative ? -value : value;
+        }
+
+        // Границы поля без пробельных символов по краям, как у String.trim:
+        // все такие символы однобайтовые в UTF-8
+        private int trimmedStart(int f) {
+            int i = 0;
+            while (i < lengths[f] && (fields[f][i] & 0xFF) <= ' ') i++;
+            return i;
+        }
+
+        private int trimmedEnd(int f) {
+            int start = trimmedStart(f);
+            int i = lengths[f];
+            while (i > start && (fields[f][i - 1] & 0xFF) <= ' ') i--;
+            return i;
+        }
+
+        private String trimmed(int f) {
+            int start = trimmedStart(f);
+            return new String(fields[f], start, trimmedEnd(f) - start, StandardCharsets.UTF_8);
+        }
+
+        // По средней длине строк первого блока оцениваем, сколько их в файле
+        private void presize() {
+            presized = true;
+            if (sizeHint <= 0 || rowsRead == 0) return;
+            long rows = sizeHint * rowsRead / bytesRead;
+            service.ensureCapacity((int) Math.min(MAX_PRESIZE, rows + rows / 8));
+        }
+
+        private void flush() {
+            if (batch.isEmpty()) return;
+            service.addBooks(batch);
+            imported += batch.size();
+            batch.clear();
+            if (progressListener != null) progressListener.accept(stats());
+        }
+
+        private ImportStats stats() {
+            return new ImportStats(rowsRead, imported, rejected, bytesRead, System.nanoTime() - startNanos,
+                    Collections.unmodifiableList(new ArrayList<>(errors)));
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package org.library.io;
+
+// Итог выгрузки каталога
+public class ExportStats {
+    private final long books;
+    private final long bytesWritten;
+    private final int spillFiles;
+    private final long elapsedNanos;
+
+    ExportStats(long books, long bytesWritten, int spillFiles, long elapsedNanos) {
+        this.books = books;
+        this.bytesWritten = bytesWritten;
+        this.spillFiles = spillFiles;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public long getBooks() { return books; }
+    public long getBytesWritten() { return bytesWritten; }
+    public long getElapsedNanos() { return elapsedNanos; }
+
+    // Число временных файлов внешней сортировки; 0 — каталог уместился в бюджет памяти
+    public int getSpillFiles() { return spillFiles; }
+
+    public double getBooksPerSecond() {
+        return elapsedNanos == 0 ? 0 : books * 1e9 / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("книг: %d, %.1f МБ, временных файлов: %d, %.1f с, %.0f книг/с",
+                books, bytesWritten / (double) (1 << 20), spillFiles, elapsedNanos / 1e9, getBooksPerSecond());
+    }
+}
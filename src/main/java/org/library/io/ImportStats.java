@@ -0,0 +1,46 @@
+package org.library.io;
+
+import java.util.List;
+
+// Счётчики импорта на момент отчёта: промежуточного (после каждого пакета)
+// или итогового
+public class ImportStats {
+    private final long rowsRead;
+    private final long imported;
+    private final long rejected;
+    private final long bytesRead;
+    private final long elapsedNanos;
+    private final List<String> errors;
+
+    ImportStats(long rowsRead, long imported, long rejected, long bytesRead, long elapsedNanos, List<String> errors) {
+        this.rowsRead = rowsRead;
+        this.imported = imported;
+        this.rejected = rejected;
+        this.bytesRead = bytesRead;
+        this.elapsedNanos = elapsedNanos;
+        this.errors = errors;
+    }
+
+    public long getRowsRead() { return rowsRead; }
+    public long getImported() { return imported; }
+    public long getRejected() { return rejected; }
+    public long getBytesRead() { return bytesRead; }
+    public long getElapsedNanos() { return elapsedNanos; }
+
+    // Описания первых отклонённых строк (не больше CatalogImporter.MAX_REPORTED_ERRORS)
+    public List<String> getErrors() { return errors; }
+
+    public double getRowsPerSecond() {
+        return elapsedNanos == 0 ? 0 : rowsRead * 1e9 / elapsedNanos;
+    }
+
+    public double getMegabytesPerSecond() {
+        return elapsedNanos == 0 ? 0 : bytesRead * 1e9 / elapsedNanos / (1 << 20);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("строк: %d, добавлено: %d, отклонено: %d, %.1f с, %.0f строк/с, %.1f МБ/с",
+                rowsRead, imported, rejected, elapsedNanos / 1e9, getRowsPerSecond(), getMegabytesPerSecond());
+    }
+}
@@ -1,49 +1,82 @@
 package org.library.model;
 
-import java.util.Objects;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
 
-public class Book {
-    private String title;
-    private String author;
-    private int year;
-    private boolean isBorrowed;
-    private String borrowedBy;
+// Читатель хранится номером из пула имён пользователей вместо ссылки на
+// строку. Название, автор, год и хеш книга наследует от BookKey: она сама
+// служит своим ключом в каталоге и сравнивается по нему, поэтому на книгу
+// приходится один объект (32 байта при сжатых ссылках).
+//
+// Состояние выдачи — одно поле borrowedBy: 0 — книга свободна, иначе номер
+// читателя. Выдача и возврат меняют его одним compareAndSet (0 -> читатель,
+// читатель -> 0), без блокировок: из нескольких одновременных попыток взять
+// книгу удаётся ровно одна, а признак выдачи и читатель не расходятся
+public class Book extends BookKey {
+    private static final VarHandle BORROWED_BY;
 
+    static {
+        try {
+            BORROWED_BY = MethodHandles.lookup().findVarHandle(Book.class, "borrowedBy", int.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    // Номер в Names.USERNAMES, 0 — книга никому не выдана
+    private volatile int borrowedBy;
+
+    // Автор, который уже есть в общем пуле, берётся оттуда ещё до создания
+    // ключа; сам конструктор пул не пополняет, иначе временные копии (обход
+    // снимка, выгрузка) растили бы его без конца
     public Book(String title, String author, int year) {
-        this.title = title;
-        this.author = author;
-        this.year = year;
-        this.isBorrowed = false;
-        this.borrowedBy = null;
+        super(title, Names.AUTHORS.canonical(author), year);
     }
 
-    public String getTitle() { return title; }
-    public String getAuthor() { return author; }
-    public int getYear() { return year; }
-    public boolean isBorrowed() { return isBorrowed; }
-    public String getBorrowedBy() { return borrowedBy; }
+    // Делает автора этой книги образцом в пуле, если такого автора там ещё
+    // нет. Вызывается, когда книга входит в каталог: следующие книги этого
+    // автора получат ту же строку прямо в конструкторе
+    public void registerAuthor() {
+        Names.AUTHORS.intern(getAuthor());
+    }
 
-    public void setBorrowed(boolean borrowed) { isBorrowed = borrowed; }
-    public void setBorrowedBy(String borrowedBy) { this.borrowedBy = borrowedBy; }
+    // Книга сама является своим ключом
+    public BookKey getKey() { return this; }
+    public boolean isBorrowed() { return borrowedBy != 0; }
+    public String getBorrowedBy() { return Names.USERNAMES.get(borrowedBy); }
 
-    @Override
-    public String toString() {
-        return String.format("%s, %s (%d) [Статус: %s%s]",
-                             title, author, year,
-                             isBorrowed ? "Выдана" : "Доступна",
-                             isBorrowed ? ", Пользователь: " + borrowedBy : "");
+    // Выдаёт свободную книгу читателю; false, если книга уже выдана.
+    // Имя добавляется в пул, только если выдача действительно состоится:
+    // зарегистрированные читатели там уже есть
+    public boolean tryBorrow(String username) {
+        int id = Names.USERNAMES.find(username);
+        if (id < 0) {
+            if (borrowedBy != 0) return false;
+            id = Names.USERNAMES.idOf(username);
+        }
+        return BORROWED_BY.compareAndSet(this, 0, id);
     }
 
-    @Override
-    public boolean equals(Object o) {
-        if (this == o) return true;
-        if (o == null || getClass() != o.getClass()) return false;
-        Book book = (Book) o;
-        return year == book.year && Objects.equals(title, book.title) && Objects.equals(author, book.author);
+    // Возвращает книгу, только если она выдана именно этому читателю.
+    // Имени, которого нет в пуле, ни одна книга не выдана
+    public boolean tryReturn(String username) {
+        int id = Names.USERNAMES.find(username);
+        return id > 0 && BORROWED_BY.compareAndSet(this, id, 0);
+    }
+
+    // Безусловно задаёт состояние (null — книга свободна): для восстановления
+    // из снимка и журнала, а не для выдачи
+    public void setBorrowedBy(String borrowedBy) {
+        this.borrowedBy = borrowedBy == null ? 0 : Names.USERNAMES.idOf(borrowedBy);
     }
 
     @Override
-    public int hashCode() {
-        return Objects.hash(title, author, year);
+    public String toString() {
+        // Состояние читается один раз, чтобы статус и читатель были согласованы
+        String borrower = getBorrowedBy();
+        return String.format("%s, %s (%d) [Статус: %s%s]",
+                             getTitle(), getAuthor(), getYear(),
+                             borrower != null ? "Выдана" : "Доступна",
+                             borrower != null ? ", Пользователь: " + borrower : "");
     }
-} 
\ No newline at end of file
+}
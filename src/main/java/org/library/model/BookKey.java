@@ -0,0 +1,49 @@
+package org.library.model;
+
+import java.util.Objects;
+
+// Ключ книги в каталоге: название, автор и год. Хеш считается один раз в
+// конструкторе. В отличие от склейки строк title + author + year, поля
+// сравниваются по отдельности, поэтому "AB" + "C" и "A" + "BC" — разные ключи.
+//
+// Book наследует ключ, а не хранит его отдельным объектом: книга сама служит
+// ключом в таблице каталога, и на книгу приходится один объект. Отдельный
+// BookKey создаётся только для поиска (findBook, returnBatchByKey); книга и
+// ключ с теми же полями равны. Все поля неизменяемы, поэтому ключ в таблице
+// нельзя испортить после вставки
+public class BookKey {
+    private final String title;
+    private final String author;
+    private final int year;
+    private final int hash;
+
+    public BookKey(String title, String author, int year) {
+        this.title = title;
+        this.author = author;
+        this.year = year;
+        this.hash = (31 * Objects.hashCode(title) + Objects.hashCode(author)) * 31 + year;
+    }
+
+    public String getTitle() { return title; }
+    public String getAuthor() { return author; }
+    public int getYear() { return year; }
+
+    @Override
+    public final boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof BookKey)) return false;
+        BookKey key = (BookKey) o;
+        return hash == key.hash && year == key.year
+                && Objects.equals(title, key.title) && Objects.equals(author, key.author);
+    }
+
+    @Override
+    public final int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return title + ", " + author + " (" + year + ")";
+    }
+}
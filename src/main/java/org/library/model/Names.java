@@ -0,0 +1,13 @@
+package org.library.model;
+
+import org.library.utils.MyStringPool;
+
+// Общие пулы повторяющихся строк модели. Авторы повторяются у тысяч книг,
+// а имя пользователя в книге хранится номером из пула USERNAMES
+final class Names {
+    static final MyStringPool AUTHORS = new MyStringPool();
+    static final MyStringPool USERNAMES = new MyStringPool();
+
+    private Names() {
+    }
+}
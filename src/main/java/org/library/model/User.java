@@ -6,11 +6,19 @@ public class User {
     private String username;
     private String password;
 
+    // Имя из пула берётся, только если оно там уже есть: неудачная регистрация
+    // и пользователи из снимка пул имён не пополняют
     public User(String username, String password) {
-        this.username = username;
+        this.username = Names.USERNAMES.canonical(username);
         this.password = password;
     }
 
+    // Добавляет имя в пул после успешной регистрации: Book.getBorrowedBy
+    // возвращает тот же экземпляр строки
+    public void registerName() {
+        Names.USERNAMES.intern(username);
+    }
+
     public String getUsername() {
         return username;
     }
@@ -29,7 +37,7 @@ public class User {
 
     @Override
     public int hashCode() {
-        return Objects.hash(username);
+        return Objects.hashCode(username);
     }
 
     @Override
@@ -0,0 +1,370 @@
+package org.library.persistence;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import org.library.model.Book;
+import org.library.model.User;
+import org.library.service.LibraryListener;
+import org.library.service.LibraryService;
+import org.library.utils.MyRingBuffer;
+
+// Журнал аудита: кто, когда и что взял, вернул, добавил или кем
+// зарегистрировался. Поток запроса только кладёт событие в ограниченное
+// кольцо без блокировок (MyRingBuffer); отдельный поток забирает события
+// пачками и дописывает их в файлы audit-<номер>.ndjson, по одному объекту
+// JSON на строку. Файл сменяется, когда вырастает сверх maxFileBytes.
+//
+// В отличие от CatalogJournal, аудит не нужен для восстановления каталога,
+// поэтому при переполнении очереди можно выбрать, чем платить:
+//   BLOCK  — поток запроса ждёт места в очереди, ничего не теряется;
+//   DROP   — событие отбрасывается и считается в getDropped;
+//   SAMPLE — когда очередь заполнена больше чем наполовину, принимается
+//            только каждое sampleEvery-е событие, остальные отбрасываются.
+// Пароли в аудит не пишутся
+public class AuditLog implements LibraryListener, Closeable {
+    public enum Overflow { BLOCK, DROP, SAMPLE }
+
+    public static final int DEFAULT_CAPACITY = 1 << 16;
+    public static final long DEFAULT_MAX_FILE_BYTES = 64L << 20;
+    public static final int DEFAULT_SAMPLE_EVERY = 10;
+    private static final int BATCH_SIZE = 4096;
+    private static final int BUFFER_SIZE = 1 << 20;
+    // Сколько спит писатель на пустой очереди и поток запроса в режиме BLOCK
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long FULL_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+    private static final class Event {
+        final String type;
+        final long timeMillis;
+        final String title;
+        final String author;
+        final int year;
+        final String username;
+
+        Event(String type, Book book, String username) {
+            this.type = type;
+            this.timeMillis = System.currentTimeMillis();
+            this.title = book == null ? null : book.getTitle();
+            this.author = book == null ? null : book.getAuthor();
+            this.year = book == null ? 0 : book.getYear();
+            this.username = username;
+        }
+    }
+
+    private final Path dir;
+    private final LibraryService service;
+    private final MyRingBuffer<Event> queue;
+    private final Overflow overflow;
+    private final long maxFileBytes;
+    private final int sampleEvery;
+    private final Thread writer;
+
+    private final AtomicLong accepted = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong sampleCounter = new AtomicLong();
+    private final AtomicInteger maxDepth = new AtomicInteger();
+    // Потоки, которые сейчас внутри publish: close ждёт, пока они выйдут
+    private final AtomicInteger publishing = new AtomicInteger();
+    private volatile long written;
+    // closed — новые события больше не принимаются; stopping — в очередь
+    // больше ничего не попадёт, и писатель может выйти, когда её опустошит
+    private volatile boolean closed;
+    private volatile boolean stopping;
+    private volatile IOException failure;
+
+    // Поля ниже меняет только поток-писатель
+    private final StringBuilder line = new StringBuilder(256);
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    private FileChannel channel;
+    private long file;
+    private long fileSize;
+
+    // Писатель запускается отдельно (start), чтобы тесты могли заполнить очередь
+    AuditLog(Path dir, LibraryService service, int capacity, Overflow overflow,
+             long maxFileBytes, int sampleEvery) throws IOException {
+        if (maxFileBytes <= 0 || sampleEvery <= 0) {
+            throw new IllegalArgumentException("Недопустимые параметры журнала аудита");
+        }
+        this.dir = dir;
+        this.service = service;
+        this.queue = new MyRingBuffer<>(capacity);
+        this.overflow = overflow;
+        this.maxFileBytes = maxFileBytes;
+        this.sampleEvery = sampleEvery;
+        Files.createDirectories(dir);
+        long[] files = listFiles(dir);
+        // Каждый запуск начинает новый файл
+        this.file = files.length == 0 ? 0 : files[files.length - 1] + 1;
+        this.channel = openFile(dir, file);
+        this.writer = new Thread(this::writeLoop, "audit-log-writer");
+        writer.setDaemon(true);
+    }
+
+    void start() {
+        writer.start();
+    }
+
+    public static AuditLog open(Path dir, LibraryService service) throws IOException {
+        return open(dir, service, DEFAULT_CAPACITY, Overflow.BLOCK, DEFAULT_MAX_FILE_BYTES, DEFAULT_SAMPLE_EVERY);
+    }
+
+    // Начинает писать события сервиса в каталог dir
+    public static AuditLog open(Path dir, LibraryService service, int capacity, Overflow overflow,
+                                long maxFileBytes, int sampleEvery) throws IOException {
+        AuditLog log = new AuditLog(dir, service, capacity, overflow, maxFileBytes, sampleEvery);
+        log.start();
+        service.addListener(log);
+        return log;
+    }
+
+    public static Path auditFile(Path dir, long file) {
+        return dir.resolve(String.format("audit-%016d.ndjson", file));
+    }
+
+    // Номера файлов аудита в каталоге по возрастанию
+    public static long[] listFiles(Path dir) throws IOException {
+        long[] result = new long[8];
+        int count = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "audit-*.ndjson")) {
+            for (Path path : files) {
+                String name = path.getFileName().toString();
+                try {
+                    long number = Long.parseLong(name.substring("audit-".length(), name.length() - ".ndjson".length()));
+                    if (count == result.length) result = Arrays.copyOf(result, count * 2);
+                    result[count++] = number;
+                } catch (NumberFormatException ignored) {
+                    // Посторонний файл
+                }
+            }
+        }
+        result = Arrays.copyOf(result, count);
+        Arrays.sort(result);
+        return result;
+    }
+
+    @Override
+    public void onBookAdded(Book book) {
+        publish(new Event("BOOK_ADDED", book, null));
+    }
+
+    @Override
+    public void onUserRegistered(User user) {
+        publish(new Event("USER_REGISTERED", null, user.getUsername()));
+    }
+
+    @Override
+    public void onBookBorrowed(Book book, String username) {
+        publish(new Event("BOOK_BORROWED", book, username));
+    }
+
+    @Override
+    public void onBookReturned(Book book, String username) {
+        publish(new Event("BOOK_RETURNED", book, username));
+    }
+
+    private void publish(Event event) {
+        // Счётчик увеличивается до проверки closed: либо close увидит этот
+        // поток и дождётся его, либо поток увидит closed и ничего не положит
+        publishing.incrementAndGet();
+        try {
+            if (closed) return;
+            if (overflow == Overflow.SAMPLE && queue.size() >= queue.capacity() / 2
+                    && sampleCounter.incrementAndGet() % sampleEvery != 0) {
+                dropped.incrementAndGet();
+                return;
+            }
+            while (!queue.offer(event)) {
+                // Упавший писатель очередь больше не разберёт: ждать бессмысленно,
+                // и сломанный файл аудита не должен останавливать выдачу
+                if (overflow != Overflow.BLOCK || closed || failure != null) {
+                    dropped.incrementAndGet();
+                    return;
+                }
+                LockSupport.parkNanos(FULL_PARK_NANOS);
+            }
+            accepted.incrementAndGet();
+            maxDepth.accumulateAndGet(queue.size(), Math::max);
+        } finally {
+            publishing.decrementAndGet();
+        }
+    }
+
+    // Текущее число событий в очереди
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    // Наибольшая замеченная глубина очереди
+    public int getMaxQueueDepth() {
+        return maxDepth.get();
+    }
+
+    public long getAccepted() {
+        return accepted.get();
+    }
+
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    public long getWritten() {
+        return written;
+    }
+
+    public Overflow getOverflow() {
+        return overflow;
+    }
+
+    // Ждёт, пока все принятые к этому моменту события окажутся в файле
+    public void flush() throws IOException {
+        long target = accepted.get();
+        while (written < target) {
+            if (failure != null) throw failure;
+            if (!writer.isAlive()) break;
+            LockSupport.parkNanos(IDLE_PARK_NANOS);
+        }
+        if (failure != null) throw failure;
+    }
+
+    // Отписывается от сервиса, дописывает очередь и закрывает файл
+    @Override
+    public void close() throws IOException {
+        if (closed) return;
+        closed = true;
+        service.removeListener(this);
+        // Писатель останавливается, только когда ни один publish не может
+        // положить событие после его последнего опустошения очереди
+        while (publishing.get() != 0) {
+            LockSupport.parkNanos(FULL_PARK_NANOS);
+        }
+        stopping = true;
+        boolean interrupted = false;
+        while (true) {
+            try {
+                writer.join();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) Thread.currentThread().interrupt();
+        if (failure != null) throw failure;
+    }
+
+    private void writeLoop() {
+        try {
+            while (true) {
+                // Флаг читается до очереди: после stopping новых событий в ней нет
+                boolean stop = stopping;
+                int count = queue.drain(this::encode, BATCH_SIZE);
+                if (count > 0) {
+                    writeBuffer();
+                    written += count;
+                } else if (stop) {
+                    break;
+                } else {
+                    LockSupport.parkNanos(IDLE_PARK_NANOS);
+                }
+            }
+            channel.force(false);
+        } catch (IOException e) {
+            failure = e;
+        } catch (UncheckedIOException e) {
+            failure = e.getCause();
+        } catch (RuntimeException e) {
+            // Писатель не должен умирать молча: publish и flush смотрят на failure
+            failure = new IOException("Поток журнала аудита остановлен", e);
+        } finally {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                if (failure == null) failure = e;
+            }
+        }
+    }
+
+    private void encode(Event event) {
+        line.setLength(0);
+        line.append("{\"time\":\"").append(Instant.ofEpochMilli(event.timeMillis)).append("\",\"event\":\"").append(event.type).append('"');
+        if (event.title != null) {
+            appendField("title", event.title);
+            appendField("author", event.author);
+            line.append(",\"year\":").append(event.year);
+        }
+        if (event.username != null) appendField("user", event.username);
+        line.append("}\n");
+        byte[] bytes = line.toString().getBytes(StandardCharsets.UTF_8);
+        try {
+            if (buffer.remaining() < bytes.length) writeBuffer();
+            if (fileSize + buffer.position() + bytes.length > maxFileBytes && fileSize + buffer.position() > 0) {
+                writeBuffer();
+                rotate();
+            }
+            if (bytes.length > buffer.capacity()) {
+                channel.write(ByteBuffer.wrap(bytes));
+                fileSize += bytes.length;
+            } else {
+                buffer.put(bytes);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void appendField(String name, String value) {
+        line.append(",\"").append(name).append("\":\"");
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"': line.append("\\\""); break;
+                case '\\': line.append("\\\\"); break;
+                case '\n': line.append("\\n"); break;
+                case '\r': line.append("\\r"); break;
+                case '\t': line.append("\\t"); break;
+                default:
+                    if (c < 0x20) {
+                        line.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        line.append(c);
+                    }
+            }
+        }
+        line.append('"');
+    }
+
+    private void writeBuffer() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            fileSize += channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private void rotate() throws IOException {
+        channel.force(false);
+        channel.close();
+        file++;
+        channel = openFile(dir, file);
+        fileSize = 0;
+    }
+
+    private static FileChannel openFile(Path dir, long file) throws IOException {
+        return FileChannel.open(auditFile(dir, file), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+}
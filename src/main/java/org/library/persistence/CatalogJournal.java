@@ -0,0 +1,339 @@
+package org.library.persistence;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.zip.CRC32;
+
+// Журнал изменений каталога: только дозапись, файлы-сегменты journal-<номер>.log.
+// Запись: длина (int), CRC32 полезной нагрузки (int), нагрузка.
+//
+// Групповая фиксация: append лишь копирует запись в буфер и сразу возвращает
+// номер записи. Отдельный поток забирает накопленный буфер целиком, пишет его
+// одним вызовом и делает один fsync; пока идёт fsync, следующие записи копятся
+// в другом буфере. Так число fsync растёт не с числом событий, а с числом пачек.
+// Кто должен дождаться надёжности, вызывает sync()
+public class CatalogJournal implements Closeable {
+    private static final int HEADER_SIZE = 8;
+    private static final int MAX_RECORD_SIZE = 16 << 20;
+    private static final int BUFFER_SIZE = 1 << 20;
+    // Сверх этого объёма неподтверждённых данных append ждёт записи на диск
+    private static final int MAX_PENDING = 8 << 20;
+
+    private final Path dir;
+    private final Object lock = new Object();
+    private final Thread flusher;
+
+    private ByteBuffer pending = ByteBuffer.allocate(BUFFER_SIZE);
+    private ByteBuffer spare = ByteBuffer.allocate(BUFFER_SIZE);
+    private FileChannel channel;
+    private long segment;
+    private long segmentSize;
+    private long appended;
+    private long durable;
+    private long syncCount;
+    private boolean rotateRequested;
+    private boolean closed;
+    private IOException failure;
+
+    public CatalogJournal(Path dir, long segment) throws IOException {
+        this.dir = dir;
+        this.segment = segment;
+        this.channel = openSegment(dir, segment);
+        this.segmentSize = channel.size();
+        flusher = new Thread(this::flushLoop, "catalog-journal-flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    public static Path segmentFile(Path dir, long segment) {
+        return dir.resolve(String.format("journal-%016d.log", segment));
+    }
+
+    // Номера сегментов в каталоге по возрастанию
+    public static long[] listSegments(Path dir) throws IOException {
+        long[] result = new long[8];
+        int count = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "journal-*.log")) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                try {
+                    long segment = Long.parseLong(name.substring("journal-".length(), name.length() - ".log".length()));
+                    if (count == result.length) result = Arrays.copyOf(result, count * 2);
+                    result[count++] = segment;
+                } catch (NumberFormatException ignored) {
+                    // Посторонний файл
+                }
+            }
+        }
+        result = Arrays.copyOf(result, count);
+        Arrays.sort(result);
+        return result;
+    }
+
+    // Читает записи сегмента до конца или до первой повреждённой
+    // (оборванной при сбое) записи. Возвращает длину корректной части файла
+    public static long read(Path file, Consumer<byte[]> consumer) throws IOException {
+        long valid = 0;
+        try (InputStream raw = Files.newInputStream(file);
+             DataInputStream in = new DataInputStream(new BufferedInputStream(raw, 1 << 16))) {
+            CRC32 crc = new CRC32();
+            while (true) {
+                byte[] payload;
+                int expectedCrc;
+                try {
+                    int length = in.readInt();
+                    if (length <= 0 || length > MAX_RECORD_SIZE) break;
+                    expectedCrc = in.readInt();
+                    payload = new byte[length];
+                    in.readFully(payload);
+                } catch (EOFException e) {
+                    break;
+                }
+                crc.reset();
+                crc.update(payload);
+                if ((int) crc.getValue() != expectedCrc) break;
+                consumer.accept(payload);
+                valid += HEADER_SIZE + payload.length;
+            }
+        }
+        return valid;
+    }
+
+    // Добавляет запись; возвращает её номер для sync(long)
+    public long append(byte[] payload) {
+        checkSize(payload);
+        synchronized (lock) {
+            awaitRoom(HEADER_SIZE + payload.length);
+            return put(payload);
+        }
+    }
+
+    // То же, но запись строится внутри критической секции журнала, уже после
+    // ожидания места в буфере: то, что поставщик прочитал, попадает в журнал
+    // раньше любой следующей записи, и вызывающему не нужна своя блокировка
+    // вокруг append. Поставщик должен быть коротким и не обращаться к журналу
+    public long append(Supplier<byte[]> payload) {
+        synchronized (lock) {
+            awaitRoom(HEADER_SIZE + 1);
+            byte[] bytes = payload.get();
+            checkSize(bytes);
+            return put(bytes);
+        }
+    }
+
+    private static void checkSize(byte[] payload) {
+        if (payload.length == 0 || payload.length > MAX_RECORD_SIZE) {
+            throw new IllegalArgumentException("Недопустимый размер записи журнала: " + payload.length);
+        }
+    }
+
+    // Вызывается под lock
+    private void awaitRoom(int recordSize) {
+        while (true) {
+            checkOpen();
+            if (pending.position() == 0 || pending.position() + recordSize <= MAX_PENDING) return;
+            // Диск не успевает: притормаживаем писателей
+            lock.notifyAll();
+            await();
+        }
+    }
+
+    // Вызывается под lock
+    private long put(byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        int recordSize = HEADER_SIZE + payload.length;
+        if (pending.remaining() < recordSize) {
+            int capacity = Math.max(pending.capacity() * 2, pending.position() + recordSize);
+            ByteBuffer grown = ByteBuffer.allocate(capacity);
+            pending.flip();
+            grown.put(pending);
+            pending = grown;
+        }
+        boolean wasEmpty = pending.position() == 0;
+        pending.putInt(payload.length);
+        pending.putInt((int) crc.getValue());
+        pending.put(payload);
+        segmentSize += recordSize;
+        if (wasEmpty) lock.notifyAll();
+        return ++appended;
+    }
+
+    // Ждёт, пока все добавленные к этому моменту записи окажутся на диске
+    public void sync() {
+        synchronized (lock) {
+            sync(appended);
+        }
+    }
+
+    public void sync(long record) {
+        synchronized (lock) {
+            while (durable < record) {
+                checkOpen();
+                await();
+            }
+        }
+    }
+
+    // Закрывает текущий сегмент после записи всего, что уже добавлено,
+    // и начинает следующий. Возвращает номер нового сегмента
+    public long rotate() {
+        synchronized (lock) {
+            long next = segment + 1;
+            rotateRequested = true;
+            lock.notifyAll();
+            while (segment < next) {
+                checkOpen();
+                await();
+            }
+            return next;
+        }
+    }
+
+    public long currentSegment() {
+        synchronized (lock) {
+            return segment;
+        }
+    }
+
+    // Байт в текущем сегменте, включая ещё не записанные
+    public long segmentSize() {
+        synchronized (lock) {
+            return segmentSize;
+        }
+    }
+
+    public long syncCount() {
+        synchronized (lock) {
+            return syncCount;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (lock) {
+            if (closed) return;
+            closed = true;
+            lock.notifyAll();
+        }
+        boolean interrupted = false;
+        while (true) {
+            try {
+                flusher.join();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) Thread.currentThread().interrupt();
+        synchronized (lock) {
+            channel.close();
+            if (failure != null) throw failure;
+        }
+    }
+
+    private void flushLoop() {
+        while (true) {
+            ByteBuffer batch;
+            long upTo;
+            boolean rotate;
+            FileChannel target;
+            synchronized (lock) {
+                while (pending.position() == 0 && !rotateRequested && !closed) {
+                    await();
+                }
+                if (pending.position() == 0 && !rotateRequested) return;
+                batch = pending;
+                pending = spare;
+                spare = null;
+                upTo = appended;
+                rotate = rotateRequested;
+                rotateRequested = false;
+                target = channel;
+                lock.notifyAll();
+            }
+            try {
+                batch.flip();
+                boolean wrote = batch.hasRemaining();
+                if (wrote) {
+                    while (batch.hasRemaining()) target.write(batch);
+                    target.force(false);
+                }
+                FileChannel next = null;
+                if (rotate) {
+                    next = openSegment(dir, segment + 1);
+                    target.close();
+                }
+                synchronized (lock) {
+                    durable = upTo;
+                    if (wrote) syncCount++;
+                    if (next != null) {
+                        channel = next;
+                        segment++;
+                        // Записи, пришедшие после снятия пачки, попадут уже в новый сегмент
+                        segmentSize = pending.position();
+                    }
+                    batch.clear();
+                    spare = batch.capacity() > BUFFER_SIZE ? ByteBuffer.allocate(BUFFER_SIZE) : batch;
+                    lock.notifyAll();
+                }
+            } catch (IOException e) {
+                synchronized (lock) {
+                    failure = e;
+                    lock.notifyAll();
+                }
+                return;
+            }
+        }
+    }
+
+    private void checkOpen() {
+        if (failure != null) {
+            throw new UncheckedIOException("Ошибка записи журнала", failure);
+        }
+        if (closed) {
+            throw new IllegalStateException("Журнал закрыт");
+        }
+    }
+
+    // Вызывается под lock
+    private void await() {
+        try {
+            lock.wait();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new UncheckedIOException(new InterruptedIOException("Ожидание журнала прервано"));
+        }
+    }
+
+    private static FileChannel openSegment(Path dir, long segment) throws IOException {
+        FileChannel channel = FileChannel.open(segmentFile(dir, segment),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        syncDirectory(dir);
+        return channel;
+    }
+
+    // fsync каталога, чтобы созданный или переименованный файл пережил сбой.
+    // Не везде поддерживается (например, в Windows), тогда пропускаем
+    static void syncDirectory(Path dir) {
+        try (FileChannel channel = FileChannel.open(dir, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException ignored) {
+        }
+    }
+}
@@ -0,0 +1,314 @@
+package org.library.persistence;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.library.model.Book;
+import org.library.model.User;
+import org.library.service.LibraryListener;
+import org.library.service.LibraryService;
+import org.library.service.MappedCatalog;
+import org.library.utils.MyTable;
+
+// Хранилище каталога на диске: снимок + журнал событий после него.
+//
+// Снимок (catalog-<номер>.map, см. MappedCatalog) не читается в кучу, а
+// отображается в память и подкладывается под каталог сервиса, поэтому запуск
+// не зависит от размера каталога. Поверх проигрываются сегменты журнала,
+// начиная с указанного в снимке. Дальше хранилище подписывается на
+// события сервиса и пишет их в журнал. Когда текущий сегмент вырастает сверх
+// порога, в фоне делается контрольная точка: журнал переключается на новый
+// сегмент, пишется снимок, старые сегменты и снимки удаляются.
+//
+// Снимок снимается без остановки сервиса и может частично включать события
+// нового сегмента. Это безопасно: события несут итоговое состояние (книга
+// выдана такому-то, книга свободна), и повторное применение ничего не портит
+//
+// Снимок пишется фоновым потоком, пока сервис обслуживает запросы, поэтому
+// хранилище подключается только к сервису на потокобезопасном движке
+// CONCURRENT. Если запись в журнал не удалась, исключение уходит из
+// borrowBook/returnBook, а сервис отменяет выдачу или возврат: в памяти не
+// остаётся изменений, которых нет в журнале (см. LibraryListener)
+public class LibraryStore implements LibraryListener, Closeable {
+    public static final long DEFAULT_CHECKPOINT_BYTES = 64L << 20;
+
+    private static final byte BOOK_ADDED = 1;
+    private static final byte USER_REGISTERED = 2;
+    private static final byte BOOK_BORROWED = 3;
+    private static final byte BOOK_RETURNED = 4;
+
+    private final Path dir;
+    private final LibraryService service;
+    private final CatalogJournal journal;
+    private final long checkpointBytes;
+    private final ExecutorService checkpointer;
+    private final AtomicBoolean checkpointScheduled = new AtomicBoolean();
+    private volatile boolean closed;
+
+    private LibraryStore(Path dir, LibraryService service, CatalogJournal journal, long checkpointBytes) {
+        this.dir = dir;
+        this.service = service;
+        this.journal = journal;
+        this.checkpointBytes = checkpointBytes;
+        this.checkpointer = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "catalog-checkpoint");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public static LibraryStore open(Path dir, LibraryService service) throws IOException {
+        return open(dir, service, DEFAULT_CHECKPOINT_BYTES);
+    }
+
+    // Восстанавливает состояние сервиса из каталога dir и начинает запись журнала.
+    // Сервис должен быть свежим: события применяются поверх его содержимого
+    public static LibraryStore open(Path dir, LibraryService service, long checkpointBytes) throws IOException {
+        if (service.getEngine() != MyTable.Engine.CONCURRENT) {
+            throw new IllegalArgumentException("Хранилище требует движка CONCURRENT, а не " + service.getEngine());
+        }
+        Files.createDirectories(dir);
+        deleteMatching(dir, "*.tmp");
+
+        long replayFrom = 0;
+        long[] snapshots = listSnapshots(dir);
+        for (int i = snapshots.length - 1; i >= 0; i--) {
+            MappedCatalog snapshot;
+            try {
+                snapshot = MappedCatalog.open(snapshotFile(dir, snapshots[i]));
+            } catch (IOException e) {
+                // Повреждённый снимок: пробуем предыдущий
+                continue;
+            }
+            for (User user : snapshot.getUsers()) {
+                service.registerUser(user.getUsername(), user.getPassword());
+            }
+            service.loadBase(snapshot);
+            replayFrom = snapshot.getReplayFrom();
+            break;
+        }
+
+        long nextSegment = replayFrom;
+        for (long segment : CatalogJournal.listSegments(dir)) {
+            if (segment < replayFrom) continue;
+            Path file = CatalogJournal.segmentFile(dir, segment);
+            long valid = CatalogJournal.read(file, payload -> apply(service, payload));
+            if (valid < Files.size(file)) {
+                // Хвост, оборванный при сбое, отрезаем, чтобы он не мешал следующему чтению
+                try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                    channel.truncate(valid);
+                    channel.force(true);
+                }
+            }
+            nextSegment = segment + 1;
+        }
+
+        LibraryStore store = new LibraryStore(dir, service, new CatalogJournal(dir, nextSegment), checkpointBytes);
+        service.addListener(store);
+        return store;
+    }
+
+    // Переключает журнал на новый сегмент, пишет снимок и удаляет то, что он покрывает
+    public synchronized void checkpoint() throws IOException {
+        long replayFrom = journal.rotate();
+        Path target = snapshotFile(dir, replayFrom);
+        Path tmp = dir.resolve(target.getFileName() + ".tmp");
+        MappedCatalog.write(tmp, replayFrom, service.getAllUsers(), service::forEachBook);
+        Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        CatalogJournal.syncDirectory(dir);
+        for (long segment : CatalogJournal.listSegments(dir)) {
+            if (segment < replayFrom) Files.deleteIfExists(CatalogJournal.segmentFile(dir, segment));
+        }
+        for (long snapshot : listSnapshots(dir)) {
+            if (snapshot >= replayFrom) continue;
+            try {
+                Files.deleteIfExists(snapshotFile(dir, snapshot));
+            } catch (IOException e) {
+                // Старый снимок ещё отображён сервисом, а система (Windows) не даёт
+                // удалить такой файл; удалим при следующей контрольной точке
+            }
+        }
+    }
+
+    public static Path snapshotFile(Path dir, long replayFrom) {
+        return dir.resolve(String.format("catalog-%016d.map", replayFrom));
+    }
+
+    // Номера снимков в каталоге по возрастанию
+    public static long[] listSnapshots(Path dir) throws IOException {
+        long[] result = new long[4];
+        int count = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "catalog-*.map")) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                try {
+                    long snapshot = Long.parseLong(name.substring("catalog-".length(), name.length() - ".map".length()));
+                    if (count == result.length) result = Arrays.copyOf(result, count * 2);
+                    result[count++] = snapshot;
+                } catch (NumberFormatException ignored) {
+                    // Посторонний файл
+                }
+            }
+        }
+        result = Arrays.copyOf(result, count);
+        Arrays.sort(result);
+        return result;
+    }
+
+    // Ждёт, пока все уже записанные события окажутся на диске
+    public void sync() {
+        journal.sync();
+    }
+
+    public CatalogJournal getJournal() {
+        return journal;
+    }
+
+    @Override
+    public void onBookAdded(Book book) {
+        append(BOOK_ADDED, book, null, null);
+    }
+
+    @Override
+    public void onUserRegistered(User user) {
+        append(USER_REGISTERED, null, user.getUsername(), user.getPassword());
+    }
+
+    @Override
+    public void onBookBorrowed(Book book, String username) {
+        appendCirculation(book);
+    }
+
+    @Override
+    public void onBookReturned(Book book) {
+        appendCirculation(book);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) return;
+        closed = true;
+        service.removeListener(this);
+        checkpointer.shutdown();
+        try {
+            checkpointer.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        journal.close();
+    }
+
+    // Выдача и возврат меняют книгу без блокировок, поэтому события одной
+    // книги из разных потоков могут прийти не в том порядке, в каком менялось
+    // её состояние. В журнал пишется текущее состояние книги, прочитанное
+    // внутри критической секции самого журнала: последняя запись о книге
+    // всегда отражает её последнее состояние, а общей блокировки поверх
+    // журнала нет
+    private void appendCirculation(Book book) {
+        journal.append(() -> {
+            String borrower = book.getBorrowedBy();
+            return encode(borrower != null ? BOOK_BORROWED : BOOK_RETURNED, book, borrower, null);
+        });
+        scheduleCheckpoint();
+    }
+
+    private void append(byte type, Book book, String first, String second) {
+        journal.append(encode(type, book, first, second));
+        scheduleCheckpoint();
+    }
+
+    private void scheduleCheckpoint() {
+        if (journal.segmentSize() >= checkpointBytes && !closed && checkpointScheduled.compareAndSet(false, true)) {
+            checkpointer.execute(() -> {
+                try {
+                    if (!closed) checkpoint();
+                } catch (IOException | RuntimeException e) {
+                    // Журнал по-прежнему пишется; попробуем при следующем превышении
+                    System.err.println("Не удалось создать снимок каталога: " + e.getMessage());
+                } finally {
+                    checkpointScheduled.set(false);
+                }
+            });
+        }
+    }
+
+    private static byte[] encode(byte type, Book book, String first, String second) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeByte(type);
+            if (book != null) {
+                writeString(out, book.getTitle());
+                writeString(out, book.getAuthor());
+                out.writeInt(book.getYear());
+            }
+            if (first != null) writeString(out, first);
+            if (second != null) writeString(out, second);
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void apply(LibraryService service, byte[] payload) {
+        try {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+            byte type = in.readByte();
+            if (type == USER_REGISTERED) {
+                service.registerUser(readString(in), readString(in));
+                return;
+            }
+            String title = readString(in);
+            String author = readString(in);
+            int year = in.readInt();
+            if (type == BOOK_ADDED) {
+                service.addBook(new Book(title, author, year));
+                return;
+            }
+            Book book = service.findBook(title, author, year);
+            if (book == null) return;
+            if (type == BOOK_BORROWED) {
+                book.setBorrowedBy(readString(in));
+            } else if (type == BOOK_RETURNED) {
+                book.setBorrowedBy(null);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Некорректная запись журнала", e);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void deleteMatching(Path dir, String glob) throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, glob)) {
+            for (Path file : files) Files.deleteIfExists(file);
+        }
+    }
+}
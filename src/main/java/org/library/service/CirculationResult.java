@@ -0,0 +1,38 @@
+package org.library.service;
+
+import org.library.model.Book;
+
+// Результат выдачи или возврата по одному запросу: что просили (название
+// или ключ), чем закончилось, какой экземпляр затронут и у кого он был
+// на руках в момент отказа. Сообщения для человека из этого собирает
+// вызывающий код, сам сервис в консоль не пишет
+public class CirculationResult {
+    private final String title;
+    private final CirculationStatus status;
+    private final Book book;
+    private final String borrowedBy;
+
+    CirculationResult(String title, CirculationStatus status, Book book, String borrowedBy) {
+        this.title = title;
+        this.status = status;
+        this.book = book;
+        this.borrowedBy = borrowedBy;
+    }
+
+    // Запрошенное название (для запроса по ключу — название из ключа)
+    public String getTitle() { return title; }
+    public CirculationStatus getStatus() { return status; }
+    public boolean isSuccess() { return status.isSuccess(); }
+
+    // Выданный или возвращённый экземпляр, а при отказе — экземпляр, на
+    // котором он случился; null, если книга не найдена или нет сессии
+    public Book getBook() { return book; }
+
+    // Читатель при BORROWED, ALREADY_BORROWED и NOT_OWNER
+    public String getBorrowedBy() { return borrowedBy; }
+
+    @Override
+    public String toString() {
+        return title + ": " + status + (borrowedBy != null ? " (" + borrowedBy + ")" : "");
+    }
+}
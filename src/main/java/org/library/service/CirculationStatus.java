@@ -0,0 +1,20 @@
+package org.library.service;
+
+// Исход выдачи или возврата одного экземпляра
+public enum CirculationStatus {
+    BORROWED,
+    RETURNED,
+    // Все экземпляры с таким названием (или этот экземпляр) уже выданы
+    ALREADY_BORROWED,
+    // Экземпляр выдан другому читателю, вернуть его нельзя
+    NOT_OWNER,
+    // Возвращать нечего: экземпляр не выдан
+    NOT_BORROWED,
+    NOT_FOUND,
+    // Сессия закрыта, истекла или не существует
+    NOT_LOGGED_IN;
+
+    public boolean isSuccess() {
+        return this == BORROWED || this == RETURNED;
+    }
+}
@@ -0,0 +1,30 @@
+package org.library.service;
+
+import org.library.model.Book;
+import org.library.model.User;
+
+// Подписчик на изменения каталога. Методы вызываются синхронно из потока,
+// выполнившего операцию, уже после изменения состояния. Добавление
+// уведомляет под блокировкой заголовка, поэтому эти события приходят в
+// порядке применения. Выдача и возврат идут без блокировок: события одной
+// книги из разных потоков могут прийти в другом порядке, и подписчику,
+// которому важен итог, стоит читать текущее состояние книги.
+//
+// Исключение подписчика уходит вызывающему операцию. Выдача и возврат при
+// этом отменяются, а подписчики, уже получившие событие, получают обратное
+// (см. LibraryService.notifyCirculation). Добавленная книга и
+// зарегистрированный пользователь остаются в каталоге
+public interface LibraryListener {
+    default void onBookAdded(Book book) {}
+
+    default void onUserRegistered(User user) {}
+
+    default void onBookBorrowed(Book book, String username) {}
+
+    default void onBookReturned(Book book) {}
+
+    // То же с именем вернувшего читателя; по умолчанию сводится к onBookReturned(book)
+    default void onBookReturned(Book book, String username) {
+        onBookReturned(book);
+    }
+}
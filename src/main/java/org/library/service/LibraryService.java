@@ -1,175 +1,466 @@
 package org.library.service;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Comparator;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 
 import org.library.model.Book;
+import org.library.model.BookKey;
 import org.library.model.User;
-import org.library.utils.MyHashTable;
 import org.library.utils.MySorts;
+import org.library.utils.MyTable;
 
 public class LibraryService {
-    private MyHashTable<String, Book> books;
-    private MyHashTable<String, User> users;
-    private User loggedInUser;
+    // Допустимые годы издания: общие для консоли и массового импорта
+    public static final int MIN_YEAR = 1000;
+    public static final int MAX_YEAR = 2024;
+    // С какого размера каталога filterBooks проверяет книги параллельно
+    public static final int DEFAULT_PARALLEL_THRESHOLD = 50_000;
 
+    private final MyTable.Engine engine;
+    private MyTable<BookKey, Book> books;
+    private MyTable<String, User> users;
+    private TitleIndex titleIndex;
+    private SearchIndex searchIndex;
+    private final SessionTable sessions = new SessionTable();
+    // Отображённый в память снимок под таблицами или null
+    private volatile MappedCatalog base;
+    // Копия при записи: события рассылаются без блокировок
+    private volatile LibraryListener[] listeners = new LibraryListener[0];
+    private volatile int parallelThreshold = DEFAULT_PARALLEL_THRESHOLD;
+
+    // По умолчанию таблицы потокобезопасны: сервис обслуживает пул потоков
+    // запросов, и addBook, поиск, выдача и возврат идут параллельно
     public LibraryService() {
-        books = new MyHashTable<>();
-        users = new MyHashTable<>();
+        this(MyTable.Engine.CONCURRENT);
+    }
+
+    public LibraryService(MyTable.Engine engine) {
+        this.engine = engine;
+        books = MyTable.create(engine);
+        users = MyTable.create(engine);
+        titleIndex = new TitleIndex(engine);
+        searchIndex = new SearchIndex();
 
-        users.put("admin", new User("admin", "adminpass"));
+        User admin = new User("admin", "adminpass");
+        users.put("admin", admin);
+        admin.registerName();
     }
 
     public boolean registerUser(String username, String password) {
-        if (users.get(username) == null) {
-            users.put(username, new User(username, password));
-            return true;
+        User user = new User(username, password);
+        if (users.putIfAbsent(username, user) != null) {
+            return false;
+        }
+        user.registerName();
+        for (LibraryListener listener : listeners) {
+            listener.onUserRegistered(user);
         }
-        return false;
+        return true;
+    }
+
+    public MyTable.Engine getEngine() {
+        return engine;
+    }
+
+    public synchronized void addListener(LibraryListener listener) {
+        LibraryListener[] current = listeners;
+        LibraryListener[] updated = Arrays.copyOf(current, current.length + 1);
+        updated[current.length] = listener;
+        listeners = updated;
     }
 
-    public void sortBooksByTitle() {
-        // Получаем список книг из хеш-таблицы
-        List<Book> allBooks = new ArrayList<>(books.values());
-        // Сортируем список с помощью mergeSort из MySorts по названию без учёта регистра
-        MySorts.mergeSort(allBooks, Comparator.comparing(Book::getTitle, String.CASE_INSENSITIVE_ORDER));
-    
-        // Очищаем текущие книги и добавляем отсортированные обратно
-        books.clear();
-        for (Book book : allBooks) {
-            books.put(book.getTitle() + book.getAuthor() + book.getYear(), book);
+    public synchronized void removeListener(LibraryListener listener) {
+        LibraryListener[] current = listeners;
+        for (int i = 0; i < current.length; i++) {
+            if (current[i] == listener) {
+                LibraryListener[] updated = new LibraryListener[current.length - 1];
+                System.arraycopy(current, 0, updated, 0, i);
+                System.arraycopy(current, i + 1, updated, i, current.length - i - 1);
+                listeners = updated;
+                return;
+            }
         }
     }
-    
 
-    public boolean loginUser(String username, String password) {
+    // Книги в порядке названий без учёта регистра. Этот порядок уже
+    // поддерживает индекс названий, поэтому каталог не копируется, не
+    // сортируется и не перестраивается, а таблица книг всё время доступна
+    public List<Book> sortBooksByTitle() {
+        return searchBooksByTitlePrefix("");
+    }
+
+    // Открывает сессию и возвращает её токен или null при неверном имени или
+    // пароле. Сервис хранит сколько угодно сессий одновременно: выдача и
+    // возврат получают токен явно, поэтому читатели не мешают друг другу
+    public String loginUser(String username, String password) {
         User user = users.get(username);
         if (user != null && user.getPassword().equals(password)) {
-            this.loggedInUser = user;
-            return true;
+            return sessions.open(user);
         }
-        this.loggedInUser = null;
-        return false;
+        return null;
+    }
+
+    public void logoutUser(String session) {
+        sessions.close(session);
+    }
+
+    // Пользователь сессии или null, если сессия закрыта или истекла.
+    // Любое обращение к сессии продлевает её
+    public User getSessionUser(String session) {
+        return sessions.user(session);
+    }
+
+    public int getSessionCount() {
+        return sessions.size();
     }
 
-    public void logoutUser() {
-        this.loggedInUser = null;
+    // Сессия истекает, если к ней не обращались дольше timeout
+    // (по умолчанию 30 минут)
+    public void setSessionIdleTimeout(long timeout, TimeUnit unit) {
+        sessions.setIdleTimeout(timeout, unit);
     }
 
-    public User getLoggedInUser() {
-        return loggedInUser;
+    // Удаляет истёкшие сессии сразу, не дожидаясь попутной очистки
+    public int expireSessions() {
+        return sessions.expire();
+    }
+
+    // Подкладывает под пустой каталог снимок: его книги видны сразу, а
+    // объекты Book для них создаются только при обращении
+    public void loadBase(MappedCatalog catalog) {
+        if (base != null || books.size() > 0) {
+            throw new IllegalStateException("Снимок можно подключить только к пустому каталогу");
+        }
+        base = catalog;
     }
 
     public void addBook(Book book) {
-        books.put(book.getTitle() + book.getAuthor() + book.getYear(), book);
+        addToCatalog(book, true);
+    }
+
+    // Массовое добавление: каталог и индекс названий обновляются по одной
+    // книге, а триграммный индекс — всем пакетом под одной блокировкой.
+    // До конца вызова книги пакета уже находятся по названию, но могут
+    // ещё не находиться поиском по подстроке
+    public void addBooks(List<Book> batch) {
+        for (Book book : batch) {
+            addToCatalog(book, false);
+        }
+        searchIndex.addAll(batch);
+    }
+
+    // Готовит таблицы и индексы к добавлению ещё additionalBooks книг
+    public void ensureCapacity(int additionalBooks) {
+        books.ensureCapacity(books.size() + additionalBooks);
+        titleIndex.ensureCapacity(additionalBooks);
+        searchIndex.ensureCapacity(additionalBooks);
+    }
+
+    private void addToCatalog(Book book, boolean indexForSearch) {
+        book.registerAuthor();
+        String foldedTitle = TitleIndex.fold(book.getTitle());
+        synchronized (titleIndex.lockFor(foldedTitle)) {
+            Book previous = books.put(book.getKey(), book);
+            MappedCatalog catalog = base;
+            if (previous == null && catalog != null) {
+                // Книга с тем же ключом в снимке заменяется новой
+                int index = catalog.indexOf(book.getTitle(), book.getAuthor(), book.getYear());
+                if (index >= 0) catalog.shadow(index);
+            }
+            titleIndex.add(foldedTitle, book, previous);
+            if (indexForSearch) searchIndex.add(book);
+            for (LibraryListener listener : listeners) {
+                listener.onBookAdded(book);
+            }
+        }
+    }
+
+    // Точный экземпляр по названию, автору и году (ключ каталога)
+    public Book findBook(String title, String author, int year) {
+        return findBook(new BookKey(title, author, year));
+    }
+
+    public Book findBook(BookKey key) {
+        Book book = books.get(key);
+        MappedCatalog catalog = base;
+        if (book != null || catalog == null) return book;
+        int index = catalog.indexOf(key.getTitle(), key.getAuthor(), key.getYear());
+        return index < 0 ? null : catalog.book(index);
     }
 
+    // Подстрока в названии или авторе (без учёта регистра) либо в годе.
+    // Кандидаты берутся из триграммного индекса и проверяются тем же условием
     public List<Book> searchBooks(String query) {
-        List<Book> result = new ArrayList<>();
-        for (Book book : books.values()) {
-            if (book.getTitle().toLowerCase().contains(query.toLowerCase()) ||
-                book.getAuthor().toLowerCase().contains(query.toLowerCase()) ||
-                Integer.toString(book.getYear()).contains(query)) {
-                result.add(book);
+        MappedCatalog catalog = base;
+        if (catalog == null) return searchIndex.search(query);
+        List<Book> result = catalog.search(query);
+        result.addAll(searchIndex.search(query));
+        return result;
+    }
+
+    // Книги, удовлетворяющие условию, полным перебором каталога — для
+    // запросов, которые индексы не покрывают. На каталоге от порога
+    // setParallelThreshold перебор идёт параллельно на общем ForkJoinPool;
+    // порядок результата в обоих режимах одинаковый: книги снимка, затем
+    // книги таблицы в порядке её обхода. Условие должно быть потокобезопасным.
+    // Книги снимка проверяются на временных копиях, а в результат попадают
+    // те же объекты, что возвращает findBook
+    public List<Book> filterBooks(Predicate<? super Book> predicate) {
+        MappedCatalog catalog = base;
+        if (getBookCount() < parallelThreshold) {
+            List<Book> result = new ArrayList<>();
+            if (catalog != null) {
+                for (int i = 0; i < catalog.size(); i++) {
+                    if (!catalog.isShadowed(i) && predicate.test(catalog.peek(i))) result.add(catalog.book(i));
+                }
             }
+            books.forEach((key, book) -> {
+                if (predicate.test(book)) result.add(book);
+            });
+            return result;
         }
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        // Условие уже проверено обходом снимка
+        List<Book> result = catalog == null ? new ArrayList<>()
+                : pool.invoke(new ParallelScan(catalog.spliterator(predicate), book -> true));
+        result.addAll(pool.invoke(new ParallelScan(books.spliterator(), predicate)));
         return result;
     }
 
-    public Book binarySearchBookByTitle(String title) {
-        List<Book> allBooks = getAllBooks();
-        MySorts.mergeSort(allBooks, Comparator.comparing(Book::getTitle, String.CASE_INSENSITIVE_ORDER));
+    // 0 — всегда параллельно, Integer.MAX_VALUE — всегда последовательно
+    public void setParallelThreshold(int parallelThreshold) {
+        if (parallelThreshold < 0) {
+            throw new IllegalArgumentException("Порог не может быть отрицательным: " + parallelThreshold);
+        }
+        this.parallelThreshold = parallelThreshold;
+    }
 
-        int low = 0;
-        int high = allBooks.size() - 1;
+    public int getParallelThreshold() {
+        return parallelThreshold;
+    }
 
-        while (low <= high) {
-            int mid = low + (high - low) / 2;
-            Book midBook = allBooks.get(mid);
-            int cmp = midBook.getTitle().compareToIgnoreCase(title);
+    public Book binarySearchBookByTitle(String title) {
+        Book[] copies = withBase(title, titleIndex.binarySearch(title));
+        return copies == null ? null : copies[0];
+    }
 
-            if (cmp == 0) {
-                return midBook;
-            } else if (cmp < 0) {
-                low = mid + 1;
+    public List<Book> searchBooksByTitlePrefix(String prefix) {
+        List<Book> added = titleIndex.findByPrefix(prefix);
+        MappedCatalog catalog = base;
+        if (catalog == null) return added;
+        // Оба списка упорядочены по приведённому названию; сливаем,
+        // книги снимка при равных названиях идут первыми
+        List<Book> stored = catalog.findByPrefix(TitleIndex.fold(prefix));
+        List<Book> result = new ArrayList<>(stored.size() + added.size());
+        int i = 0;
+        int j = 0;
+        while (i < stored.size() && j < added.size()) {
+            if (TitleIndex.fold(added.get(j).getTitle()).compareTo(TitleIndex.fold(stored.get(i).getTitle())) < 0) {
+                result.add(added.get(j++));
             } else {
-                high = mid - 1;
+                result.add(stored.get(i++));
             }
         }
-        return null;
+        result.addAll(stored.subList(i, stored.size()));
+        result.addAll(added.subList(j, added.size()));
+        return result;
     }
 
-    public boolean borrowBook(String title) {
-        if (loggedInUser == null) {
-            System.out.println("Для выдачи книги необходимо войти в систему.");
-            return false;
+    // Экземпляры с данным названием: сначала из снимка, затем добавленные
+    private Book[] withBase(String title, Book[] added) {
+        MappedCatalog catalog = base;
+        if (catalog == null) return added;
+        int[] stored = catalog.findTitle(TitleIndex.fold(title));
+        if (stored.length == 0) return added;
+        int addedCount = added == null ? 0 : added.length;
+        Book[] copies = new Book[stored.length + addedCount];
+        for (int i = 0; i < stored.length; i++) {
+            copies[i] = catalog.book(stored[i]);
         }
-        Book book = findBookByTitle(title);
-        if (book != null && !book.isBorrowed()) {
-            book.setBorrowed(true);
-            book.setBorrowedBy(loggedInUser.getUsername());
-            System.out.println("Книга \"" + book.getTitle() + "\" выдана пользователю " + loggedInUser.getUsername());
-            return true;
-        } else if (book != null && book.isBorrowed()) {
-            System.out.println("Книга \"" + book.getTitle() + "\" уже выдана пользователю " + book.getBorrowedBy() + ".");
-            return false;
-        } else {
-            System.out.println("Книга с названием \"" + title + "\" не найдена.");
-            return false;
+        if (added != null) System.arraycopy(added, 0, copies, stored.length, addedCount);
+        return copies;
+    }
+
+    // Выдача первого свободного экземпляра с данным названием. Сервис не
+    // пишет в консоль: исход возвращается как CirculationResult, а
+    // сообщение для человека собирает вызывающий код (LibraryApp)
+    public CirculationResult borrowBook(String session, String title) {
+        User user = sessions.user(session);
+        return user == null ? notLoggedIn(title) : borrow(user.getUsername(), title);
+    }
+
+    // Возврат экземпляра с данным названием, выданного читателю сессии
+    public CirculationResult returnBook(String session, String title) {
+        User user = sessions.user(session);
+        return user == null ? notLoggedIn(title) : giveBack(user.getUsername(), title);
+    }
+
+    // Выдача пачки названий за один вызов, например с терминала
+    // самообслуживания. Сессия проверяется один раз, каждое название
+    // находится через индекс названий, а не перебором каталога, поэтому
+    // пачка стоит O(размер пачки). В консоль ничего не пишется: результат
+    // по каждому названию — в списке, в порядке запроса
+    public List<CirculationResult> borrowBatch(String session, Collection<String> titles) {
+        List<CirculationResult> results = new ArrayList<>(titles.size());
+        User user = sessions.user(session);
+        for (String title : titles) {
+            results.add(user == null ? notLoggedIn(title) : borrow(user.getUsername(), title));
         }
+        return results;
     }
 
-    public boolean returnBook(String title) {
-        if (loggedInUser == null) {
-            System.out.println("Для возврата книги необходимо войти в систему.");
-            return false;
+    // Возврат пачки названий: по каждому возвращается экземпляр, выданный
+    // этому читателю
+    public List<CirculationResult> returnBatch(String session, Collection<String> titles) {
+        List<CirculationResult> results = new ArrayList<>(titles.size());
+        User user = sessions.user(session);
+        for (String title : titles) {
+            results.add(user == null ? notLoggedIn(title) : giveBack(user.getUsername(), title));
         }
-        Book book = findBookByTitle(title);
-        if (book != null && book.isBorrowed() && loggedInUser.getUsername().equals(book.getBorrowedBy())) {
-            book.setBorrowed(false);
-            book.setBorrowedBy(null);
-            System.out.println("Книга \"" + book.getTitle() + "\" возвращена.");
-            return true;
-        } else if (book != null && book.isBorrowed() && !loggedInUser.getUsername().equals(book.getBorrowedBy())) {
-            System.out.println("Книга \"" + book.getTitle() + "\" была взята другим пользователем: " + book.getBorrowedBy() + ". Вы не можете ее вернуть.");
-            return false;
-        } else if (book != null && !book.isBorrowed()) {
-            System.out.println("Книга \"" + book.getTitle() + "\" не была выдана.");
-            return false;
-        } else {
-            System.out.println("Книга с названием \"" + title + "\" не найдена.");
-            return false;
+        return results;
+    }
+
+    // Возврат конкретных экземпляров по ключам, например разбор ящика
+    // возврата: экземпляр ищется прямо по ключу каталога
+    public List<CirculationResult> returnBatchByKey(String session, Collection<BookKey> keys) {
+        List<CirculationResult> results = new ArrayList<>(keys.size());
+        User user = sessions.user(session);
+        for (BookKey key : keys) {
+            if (user == null) {
+                results.add(notLoggedIn(key.getTitle()));
+                continue;
+            }
+            Book book = findBook(key);
+            results.add(book == null
+                    ? new CirculationResult(key.getTitle(), CirculationStatus.NOT_FOUND, null, null)
+                    : giveBack(user.getUsername(), key.getTitle(), book));
         }
+        return results;
     }
 
+    private static CirculationResult notLoggedIn(String title) {
+        return new CirculationResult(title, CirculationStatus.NOT_LOGGED_IN, null, null);
+    }
 
-    private Book findBookByTitle(String title) {
-        for (Book book : books.values()) {
-            if (book.getTitle().equalsIgnoreCase(title)) {
-                return book;
+    // Выдаём первый свободный экземпляр. Проверка и смена статуса — один
+    // compareAndSet в книге, поэтому экземпляр достаётся ровно одному
+    // из одновременных запросов без общих блокировок
+    private CirculationResult borrow(String username, String title) {
+        Book[] copies = withBase(title, titleIndex.find(title));
+        if (copies == null) {
+            return new CirculationResult(title, CirculationStatus.NOT_FOUND, null, null);
+        }
+        Book refused = null;
+        String holder = null;
+        for (Book book : copies) {
+            while (true) {
+                if (book.tryBorrow(username)) {
+                    notifyCirculation(book, username, true);
+                    return new CirculationResult(title, CirculationStatus.BORROWED, book, username);
+                }
+                // В ответе — читатель, из-за которого не удалась попытка.
+                // Если экземпляр успели вернуть, пробуем его ещё раз
+                String current = book.getBorrowedBy();
+                if (current != null) {
+                    if (refused == null) {
+                        refused = book;
+                        holder = current;
+                    }
+                    break;
+                }
+            }
+        }
+        return new CirculationResult(title, CirculationStatus.ALREADY_BORROWED, refused, holder);
+    }
+
+    // Возвращаем экземпляр, выданный этому пользователю
+    private CirculationResult giveBack(String username, String title) {
+        Book[] copies = withBase(title, titleIndex.find(title));
+        if (copies == null) {
+            return new CirculationResult(title, CirculationStatus.NOT_FOUND, null, null);
+        }
+        CirculationResult refused = null;
+        for (Book book : copies) {
+            CirculationResult result = giveBack(username, title, book);
+            if (result.isSuccess()) return result;
+            // Чужой экземпляр важнее для ответа, чем невыданный
+            if (refused == null || (refused.getStatus() == CirculationStatus.NOT_BORROWED
+                    && result.getStatus() == CirculationStatus.NOT_OWNER)) {
+                refused = result;
+            }
+        }
+        return refused;
+    }
+
+    private CirculationResult giveBack(String username, String title, Book book) {
+        if (book.tryReturn(username)) {
+            notifyCirculation(book, username, false);
+            return new CirculationResult(title, CirculationStatus.RETURNED, book, null);
+        }
+        String holder = book.getBorrowedBy();
+        return holder == null
+                ? new CirculationResult(title, CirculationStatus.NOT_BORROWED, book, null)
+                : new CirculationResult(title, CirculationStatus.NOT_OWNER, book, holder);
+    }
+
+    // Рассылает событие выдачи (borrowed) или возврата. Если подписчик его не
+    // принял (например, журнал хранилища не смог записать), изменение
+    // отменяется, подписчики, уже получившие событие, получают обратное, и
+    // исключение уходит вызывающему: операция, завершившаяся исключением,
+    // не оставляет выдачу или возврат в силе. Отмена не удаётся, только если
+    // книгу за это время успели вернуть или выдать снова — тогда остаётся
+    // это новое состояние
+    private void notifyCirculation(Book book, String username, boolean borrowed) {
+        LibraryListener[] current = listeners;
+        for (int i = 0; i < current.length; i++) {
+            try {
+                if (borrowed) {
+                    current[i].onBookBorrowed(book, username);
+                } else {
+                    current[i].onBookReturned(book, username);
+                }
+            } catch (RuntimeException e) {
+                boolean undone = borrowed ? book.tryReturn(username) : book.tryBorrow(username);
+                for (int j = 0; undone && j < i; j++) {
+                    try {
+                        if (borrowed) {
+                            current[j].onBookReturned(book, username);
+                        } else {
+                            current[j].onBookBorrowed(book, username);
+                        }
+                    } catch (RuntimeException suppressed) {
+                        e.addSuppressed(suppressed);
+                    }
+                }
+                throw e;
             }
         }
-        return null;
     }
 
     public List<Book> sortBooks(String sortType, String sortAlgorithmType) {
+        Comparator<Book> comparator = comparatorFor(sortType);
+        if (comparator == null) {
+            throw new IllegalArgumentException("Некорректный критерий сортировки: " + sortType);
+        }
+        if (!isSortAlgorithm(sortAlgorithmType)) {
+            throw new IllegalArgumentException("Некорректный алгоритм сортировки: " + sortAlgorithmType);
+        }
         List<Book> all = getAllBooks();
-        Comparator<Book> comparator;
-
-        switch (sortType) {
-            case "1": 
-                comparator = Comparator.comparing(Book::getTitle, String.CASE_INSENSITIVE_ORDER);
-                break;
-            case "2":
-                comparator = Comparator.comparing(Book::getAuthor, String.CASE_INSENSITIVE_ORDER);
-                break;
-            case "3":
-                comparator = Comparator.comparingInt(Book::getYear);
-                break;
-            default:
-                System.out.println("Некорректный выбор критерия сортировки. Сортировка не выполнена.");
-                return all;
+        if (sortType.equals("3")) {
+            // Годы — целые числа в узком диапазоне: устойчивая сортировка
+            // подсчётом даёт тот же порядок, что и любой из устойчивых
+            // алгоритмов ниже, за O(n + диапазон) без вызовов компаратора
+            MySorts.countingSort(all, Book::getYear);
+            return all;
         }
 
         switch (sortAlgorithmType) {
@@ -180,32 +471,174 @@ public class LibraryService {
                 MySorts.mergeSort(all, comparator);
                 break;
             case "3":
-                insertionSort(all, comparator);
+                MySorts.insertionSort(all, comparator);
                 break;
             case "4":
                 all.sort(comparator);
                 break;
             default:
-                System.out.println("Некорректный выбор алгоритма сортировки. Используется встроенная сортировка.");
-                all.sort(comparator);
+                MySorts.parallelMergeSort(all, comparator);
                 break;
         }
         return all;
     }
 
+    // Критерий сортировки по номеру пункта меню или null
+    private static boolean isSortAlgorithm(String sortAlgorithmType) {
+        switch (sortAlgorithmType) {
+            case "1":
+            case "2":
+            case "3":
+            case "4":
+            case "5":
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private static Comparator<Book> comparatorFor(String sortType) {
+        switch (sortType) {
+            case "1":
+                return Comparator.comparing(Book::getTitle, String.CASE_INSENSITIVE_ORDER);
+            case "2":
+                return Comparator.comparing(Book::getAuthor, String.CASE_INSENSITIVE_ORDER);
+            case "3":
+                return Comparator.comparingInt(Book::getYear);
+            default:
+                return null;
+        }
+    }
+
+    // Страница отсортированного каталога без сортировки всего каталога:
+    // ограниченная куча отбирает первые offset + limit книг за O(n log k),
+    // в памяти остаются только они. Порядок тот же, что у sortBooks
+    public Page sortBooksPage(String sortType, int offset, int limit) {
+        Page.checkRange(offset, limit);
+        Comparator<Book> comparator = comparatorFor(sortType);
+        if (comparator == null) {
+            throw new IllegalArgumentException("Некорректный критерий сортировки: " + sortType);
+        }
+        int k = (int) Math.min(Integer.MAX_VALUE - 8, (long) offset + limit);
+        List<Book> top = MySorts.topK(bookIterator(), k, comparator);
+        List<Book> books = new ArrayList<>(Math.max(0, top.size() - offset));
+        // Отбор идёт по временным копиям книг снимка, а на странице — те же
+        // живые объекты, что возвращает findBook, с текущим состоянием выдачи
+        for (int i = offset; i < top.size(); i++) {
+            Book book = top.get(i);
+            Book live = findBook(book);
+            books.add(live != null ? live : book);
+        }
+        return new Page(books, offset, getBookCount());
+    }
+
+    // Страница каталога в порядке обхода (как getAllBooks) без копии
+    // всего каталога; пропуск книг снимка не создаёт для них объектов,
+    // а книги самой страницы — живые, как в getAllBooks
+    public Page getBooksPage(int offset, int limit) {
+        Page.checkRange(offset, limit);
+        CatalogIterator iterator = new CatalogIterator(true);
+        iterator.skip(offset);
+        List<Book> books = new ArrayList<>(Math.min(limit, 1024));
+        while (books.size() < limit && iterator.hasNext()) {
+            books.add(iterator.next());
+        }
+        return new Page(books, offset, getBookCount());
+    }
+
+    public Page searchBooksPage(String query, int offset, int limit) {
+        return Page.slice(searchBooks(query), offset, limit);
+    }
+
+    // Обход каталога без копирования: сначала книги снимка, затем
+    // добавленные. Книги снимка, как в forEachBook, передаются временными
+    // копиями, если к ним ещё не обращались, — обход только для чтения
+    public Iterator<Book> bookIterator() {
+        return new CatalogIterator(false);
+    }
+
+    private class CatalogIterator implements Iterator<Book> {
+        private final MappedCatalog catalog = base;
+        private final Iterator<Book> added = books.valueIterator();
+        // true — книги снимка создаются насовсем (catalog.book), false — копии
+        private final boolean live;
+        private int index = nextStored(0);
+
+        CatalogIterator(boolean live) {
+            this.live = live;
+        }
+
+        private int nextStored(int from) {
+            if (catalog == null) return 0;
+            while (from < catalog.size() && catalog.isShadowed(from)) from++;
+            return from;
+        }
+
+        private boolean inCatalog() {
+            return catalog != null && index < catalog.size();
+        }
+
+        void skip(long count) {
+            for (long i = 0; i < count && hasNext(); i++) {
+                if (inCatalog()) {
+                    index = nextStored(index + 1);
+                } else {
+                    added.next();
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return inCatalog() || added.hasNext();
+        }
+
+        @Override
+        public Book next() {
+            if (inCatalog()) {
+                Book book = live ? catalog.book(index) : catalog.peek(index);
+                index = nextStored(index + 1);
+                return book;
+            }
+            if (!added.hasNext()) throw new NoSuchElementException();
+            return added.next();
+        }
+    }
+
     public List<Book> getAllBooks() {
-        return new ArrayList<>(books.values());
+        MappedCatalog catalog = base;
+        List<Book> all = new ArrayList<>(getBookCount());
+        if (catalog != null) {
+            for (int i = 0; i < catalog.size(); i++) {
+                if (!catalog.isShadowed(i)) all.add(catalog.book(i));
+            }
+        }
+        books.forEach((key, book) -> all.add(book));
+        return all;
     }
 
-    private void insertionSort(List<Book> list, Comparator<Book> comparator) {
-        for (int i = 1; i < list.size(); i++) {
-            Book current = list.get(i);
-            int j = i - 1;
-            while (j >= 0 && comparator.compare(list.get(j), current) > 0) {
-                list.set(j + 1, list.get(j));
-                j--;
+    // Обходит все книги без сборки общего списка: книги снимка, к которым
+    // ещё не обращались, передаются временными копиями и не остаются в
+    // памяти. Так каталог, который целиком не помещается в кучу, можно
+    // выгрузить потоком или записать в следующий снимок
+    public void forEachBook(Consumer<? super Book> action) {
+        MappedCatalog catalog = base;
+        if (catalog != null) {
+            for (int i = 0; i < catalog.size(); i++) {
+                if (!catalog.isShadowed(i)) action.accept(catalog.peek(i));
             }
-            list.set(j + 1, current);
         }
+        books.forEach((key, book) -> action.accept(book));
+    }
+
+    public int getBookCount() {
+        MappedCatalog catalog = base;
+        return books.size() + (catalog == null ? 0 : catalog.liveCount());
+    }
+
+    public List<User> getAllUsers() {
+        List<User> all = new ArrayList<>(users.size());
+        users.forEach((username, user) -> all.add(user));
+        return all;
     }
-} 
\ No newline at end of file
+}
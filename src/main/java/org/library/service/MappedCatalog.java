@@ -0,0 +1,793 @@
+package org.library.service;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.zip.CRC32;
+
+import org.library.model.Book;
+import org.library.model.User;
+import org.library.utils.MyOpenHashTable;
+import org.library.utils.MySorts;
+
+// Снимок каталога, который не загружается, а отображается в память через
+// FileChannel.map. Все данные лежат вне кучи:
+//   пул строк       — UTF-8 названий, авторов и имён читателей (авторы и имена не повторяются);
+//   записи книг     — по 20 байт: смещение и длина названия, смещение и длина автора, год;
+//   порядок названий — номера книг по приведённому названию, для бинарного поиска и префиксов;
+//   битовая карта выдач и пары (номер книги, читатель) для выданных;
+//   триграммный индекс — отсортированные триграммы, начала списков и сами списки номеров.
+// Открытие читает только заголовок, поэтому занимает миллисекунды при любом
+// размере каталога. Объект Book создаётся при первом обращении к книге и
+// дальше всегда один и тот же: на нём держится состояние выдачи.
+//
+// LibraryService использует снимок как нижний слой каталога; книги, добавленные
+// после открытия, живут в обычных таблицах поверх него, а заменённые ими книги
+// снимка помечаются как скрытые
+public class MappedCatalog {
+    private static final int MAGIC = 0x4C424D43; // "LBMC"
+    private static final int VERSION = 1;
+    private static final int RECORD_SIZE = 20;
+    private static final int BORROWER_SIZE = 12;
+    private static final int HEADER_SIZE = 192;
+    private static final int HEADER_CRC_OFFSET = 176;
+
+    private static final int POOL = 0;
+    private static final int RECORDS = 1;
+    private static final int TITLE_ORDER = 2;
+    private static final int BITMAP = 3;
+    private static final int BORROWERS = 4;
+    private static final int USERS = 5;
+    private static final int GRAM_KEYS = 6;
+    private static final int GRAM_STARTS = 7;
+    private static final int POSTINGS = 8;
+    private static final int SECTIONS = 9;
+
+    private final long replayFrom;
+    private final int size;
+    private final int borrowedCount;
+    private final int gramCount;
+    private final ByteBuffer pool;
+    private final ByteBuffer records;
+    private final ByteBuffer titleOrder;
+    private final ByteBuffer bitmap;
+    private final ByteBuffer borrowers;
+    private final ByteBuffer gramKeys;
+    private final ByteBuffer gramStarts;
+    private final ByteBuffer postings;
+    private final List<User> users;
+
+    private final AtomicReferenceArray<Book> materialized;
+    private final AtomicLongArray shadowed;
+    private final AtomicInteger shadowedCount = new AtomicInteger();
+
+    private MappedCatalog(long replayFrom, int size, int borrowedCount, int gramCount,
+                          ByteBuffer[] sections, List<User> users) {
+        this.replayFrom = replayFrom;
+        this.size = size;
+        this.borrowedCount = borrowedCount;
+        this.gramCount = gramCount;
+        this.pool = sections[POOL];
+        this.records = sections[RECORDS];
+        this.titleOrder = sections[TITLE_ORDER];
+        this.bitmap = sections[BITMAP];
+        this.borrowers = sections[BORROWERS];
+        this.gramKeys = sections[GRAM_KEYS];
+        this.gramStarts = sections[GRAM_STARTS];
+        this.postings = sections[POSTINGS];
+        this.users = users;
+        this.materialized = new AtomicReferenceArray<>(size);
+        this.shadowed = new AtomicLongArray((size + 63) >>> 6);
+    }
+
+    // Номер первого сегмента журнала, который нужно проиграть поверх снимка
+    public long getReplayFrom() { return replayFrom; }
+    public List<User> getUsers() { return users; }
+    public int size() { return size; }
+
+    public static MappedCatalog open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            if (fileSize < HEADER_SIZE) {
+                throw new IOException("Файл снимка слишком короткий: " + file);
+            }
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            while (header.hasRemaining()) {
+                if (channel.read(header, header.position()) < 0) {
+                    throw new IOException("Файл снимка слишком короткий: " + file);
+                }
+            }
+            CRC32 crc = new CRC32();
+            crc.update(header.array(), 0, HEADER_CRC_OFFSET);
+            if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION
+                    || header.getInt(HEADER_CRC_OFFSET) != (int) crc.getValue()) {
+                throw new IOException("Некорректный заголовок снимка: " + file);
+            }
+            long replayFrom = header.getLong(8);
+            int size = header.getInt(16);
+            int userCount = header.getInt(20);
+            int borrowedCount = header.getInt(24);
+            int gramCount = header.getInt(28);
+            ByteBuffer[] sections = new ByteBuffer[SECTIONS];
+            for (int s = 0; s < SECTIONS; s++) {
+                long offset = header.getLong(32 + s * 16);
+                long length = header.getLong(40 + s * 16);
+                if (offset < HEADER_SIZE || length < 0 || length > Integer.MAX_VALUE || offset + length > fileSize) {
+                    throw new IOException("Некорректная секция снимка " + s + ": " + file);
+                }
+                // Отображение остаётся действительным и после закрытия канала
+                MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+                sections[s] = mapped;
+            }
+            if (sections[RECORDS].capacity() != (long) size * RECORD_SIZE
+                    || sections[TITLE_ORDER].capacity() != (long) size * 4
+                    || sections[BORROWERS].capacity() != (long) borrowedCount * BORROWER_SIZE
+                    || sections[GRAM_KEYS].capacity() != (long) gramCount * 8
+                    || sections[GRAM_STARTS].capacity() != ((long) gramCount + 1) * 4) {
+                throw new IOException("Размеры секций снимка не согласованы: " + file);
+            }
+            List<User> users;
+            try {
+                users = readUsers(sections[USERS].duplicate(), userCount);
+            } catch (RuntimeException e) {
+                throw new IOException("Повреждён список пользователей снимка: " + file, e);
+            }
+            return new MappedCatalog(replayFrom, size, borrowedCount, gramCount, sections, users);
+        }
+    }
+
+    private static List<User> readUsers(ByteBuffer in, int count) {
+        List<User> users = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            users.add(new User(readString(in), readString(in)));
+        }
+        return users;
+    }
+
+    private static String readString(ByteBuffer in) {
+        byte[] bytes = new byte[in.getInt()];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+
+    private String string(int offset, int length) {
+        byte[] bytes = new byte[length];
+        pool.get(offset, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    String titleAt(int index) {
+        int base = index * RECORD_SIZE;
+        return string(records.getInt(base), records.getInt(base + 4));
+    }
+
+    String authorAt(int index) {
+        int base = index * RECORD_SIZE;
+        return string(records.getInt(base + 8), records.getInt(base + 12));
+    }
+
+    int yearAt(int index) {
+        return records.getInt(index * RECORD_SIZE + 16);
+    }
+
+    // Книга с данным номером; создаётся один раз
+    Book book(int index) {
+        Book book = materialized.get(index);
+        if (book != null) return book;
+        Book created = detached(index);
+        // Созданная книга остаётся в каталоге, в отличие от копий из peek
+        created.registerAuthor();
+        return materialized.compareAndSet(index, null, created) ? created : materialized.get(index);
+    }
+
+    // Для чтения без создания постоянного объекта: уже созданная книга
+    // или временная копия с состоянием из снимка. Выданная книга создаётся
+    // постоянной, как в book: читатель хранится номером из пула имён, и
+    // копия пополняла бы пул при каждом обращении
+    Book peek(int index) {
+        Book book = materialized.get(index);
+        if (book != null) return book;
+        return isBorrowedInSnapshot(index) ? book(index) : detached(index);
+    }
+
+    private boolean isBorrowedInSnapshot(int index) {
+        return (bitmap.getLong((index >>> 6) * 8) & (1L << index)) != 0;
+    }
+
+    private Book detached(int index) {
+        Book book = new Book(titleAt(index), authorAt(index), yearAt(index));
+        if (isBorrowedInSnapshot(index)) {
+            book.setBorrowedBy(borrowerOf(index));
+        }
+        return book;
+    }
+
+    private String borrowerOf(int index) {
+        int lo = 0;
+        int hi = borrowedCount - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int found = borrowers.getInt(mid * BORROWER_SIZE);
+            if (found < index) lo = mid + 1;
+            else if (found > index) hi = mid - 1;
+            else return string(borrowers.getInt(mid * BORROWER_SIZE + 4), borrowers.getInt(mid * BORROWER_SIZE + 8));
+        }
+        return null;
+    }
+
+    // Книга заменена книгой с тем же ключом поверх снимка
+    boolean isShadowed(int index) {
+        return (shadowed.get(index >>> 6) & (1L << index)) != 0;
+    }
+
+    void shadow(int index) {
+        int word = index >>> 6;
+        long bit = 1L << index;
+        while (true) {
+            long current = shadowed.get(word);
+            if ((current & bit) != 0) return;
+            if (shadowed.compareAndSet(word, current, current | bit)) {
+                shadowedCount.incrementAndGet();
+                return;
+            }
+        }
+    }
+
+    // Число видимых (не скрытых) книг снимка
+    int liveCount() {
+        return size - shadowedCount.get();
+    }
+
+    // Незаменённые книги снимка, для которых filter верен; делится по
+    // диапазонам номеров. Условие проверяется на копии из peek, а отдаются
+    // постоянные книги из book, поэтому объекты создаются только для найденных
+    Spliterator<Book> spliterator(Predicate<? super Book> filter) {
+        return new RangeSpliterator(0, size, filter);
+    }
+
+    private final class RangeSpliterator implements Spliterator<Book> {
+        private int index;
+        private final int fence;
+        private final Predicate<? super Book> filter;
+
+        RangeSpliterator(int index, int fence, Predicate<? super Book> filter) {
+            this.index = index;
+            this.fence = fence;
+            this.filter = filter;
+        }
+
+        @Override
+        public Spliterator<Book> trySplit() {
+            int lo = index;
+            int mid = (lo + fence) >>> 1;
+            if (lo >= mid) return null;
+            index = mid;
+            return new RangeSpliterator(lo, mid, filter);
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super Book> action) {
+            while (index < fence) {
+                int i = index++;
+                if (!isShadowed(i) && filter.test(peek(i))) {
+                    action.accept(book(i));
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public long estimateSize() {
+            return fence - index;
+        }
+
+        @Override
+        public int characteristics() {
+            return Spliterator.ORDERED | Spliterator.NONNULL;
+        }
+    }
+
+
+    private String foldedTitleAt(int position) {
+        return TitleIndex.fold(titleAt(titleOrder.getInt(position * 4)));
+    }
+
+    // Первая позиция в порядке названий, где приведённое название >= folded
+    private int lowerBound(String folded) {
+        int lo = 0;
+        int hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (foldedTitleAt(mid).compareTo(folded) < 0) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    // Номера видимых книг с данным приведённым названием в порядке добавления
+    int[] findTitle(String folded) {
+        int[] result = new int[4];
+        int count = 0;
+        for (int pos = lowerBound(folded); pos < size && foldedTitleAt(pos).equals(folded); pos++) {
+            int index = titleOrder.getInt(pos * 4);
+            if (isShadowed(index)) continue;
+            if (count == result.length) result = Arrays.copyOf(result, count * 2);
+            result[count++] = index;
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    // Номер видимой книги с точным ключом или -1
+    int indexOf(String title, String author, int year) {
+        for (int index : findTitle(TitleIndex.fold(title))) {
+            if (yearAt(index) == year && titleAt(index).equals(title) && authorAt(index).equals(author)) {
+                return index;
+            }
+        }
+        return -1;
+    }
+
+    // Видимые книги с приведённым названием, начинающимся с foldedPrefix, в порядке названий
+    List<Book> findByPrefix(String foldedPrefix) {
+        List<Book> result = new ArrayList<>();
+        for (int pos = lowerBound(foldedPrefix); pos < size && foldedTitleAt(pos).startsWith(foldedPrefix); pos++) {
+            int index = titleOrder.getInt(pos * 4);
+            if (!isShadowed(index)) result.add(book(index));
+        }
+        return result;
+    }
+
+
+    private boolean matches(int index, String query, String lowerQuery) {
+        return titleAt(index).toLowerCase().contains(lowerQuery) ||
+               authorAt(index).toLowerCase().contains(lowerQuery) ||
+               Integer.toString(yearAt(index)).contains(query);
+    }
+
+    // Тот же критерий, что у SearchIndex: кандидаты берутся из триграммного
+    // индекса снимка и проверяются по строкам из пула, объекты Book создаются
+    // только для найденных
+    List<Book> search(String query) {
+        String lowerQuery = query.toLowerCase();
+        List<Book> result = new ArrayList<>();
+        if (lowerQuery.length() < SearchIndex.GRAM) {
+            for (int index = 0; index < size; index++) {
+                if (!isShadowed(index) && matches(index, query, lowerQuery)) result.add(book(index));
+            }
+            return result;
+        }
+        int grams = lowerQuery.length() - SearchIndex.GRAM + 1;
+        int[] starts = new int[grams];
+        int[] ends = new int[grams];
+        int shortest = 0;
+        for (int i = 0; i < grams; i++) {
+            int pos = findGram(SearchIndex.gram(lowerQuery, i));
+            if (pos < 0) return result;
+            starts[i] = gramStarts.getInt(pos * 4);
+            ends[i] = gramStarts.getInt(pos * 4 + 4);
+            if (ends[i] - starts[i] < ends[shortest] - starts[shortest]) shortest = i;
+        }
+        // Указатели в остальных списках только продвигаются вперёд
+        int[] cursors = starts.clone();
+        candidates:
+        for (int p = starts[shortest]; p < ends[shortest]; p++) {
+            int index = postings.getInt(p * 4);
+            for (int i = 0; i < grams; i++) {
+                if (i == shortest) continue;
+                int pos = lowerBoundPosting(cursors[i], ends[i], index);
+                cursors[i] = pos;
+                if (pos == ends[i]) break candidates;
+                if (postings.getInt(pos * 4) != index) continue candidates;
+            }
+            if (!isShadowed(index) && matches(index, query, lowerQuery)) result.add(book(index));
+        }
+        return result;
+    }
+
+    private int findGram(long gram) {
+        int lo = 0;
+        int hi = gramCount - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            long found = gramKeys.getLong(mid * 8);
+            if (found < gram) lo = mid + 1;
+            else if (found > gram) hi = mid - 1;
+            else return mid;
+        }
+        return -1;
+    }
+
+    private int lowerBoundPosting(int from, int to, int index) {
+        while (from < to) {
+            int mid = (from + to) >>> 1;
+            if (postings.getInt(mid * 4) < index) from = mid + 1;
+            else to = mid;
+        }
+        return from;
+    }
+
+
+    public static void write(Path file, long replayFrom, List<User> users, List<Book> books) throws IOException {
+        write(file, replayFrom, users, books::forEach);
+    }
+
+    // Пишет снимок в file за один проход по книгам source (например,
+    // LibraryService::forEachBook); книги нумеруются в порядке обхода, состояние
+    // выдачи каждой берётся одним чтением её volatile-поля, без блокировок.
+    // Сами книги не запоминаются: в куче остаются только массивы int на книгу,
+    // а названия и авторы для порядка названий и триграмм читаются из уже
+    // записанной части файла. Приведённые названия для сортировки на время
+    // записи кладутся во временный файл рядом со снимком
+    public static void write(Path file, long replayFrom, List<User> users,
+                             Consumer<Consumer<? super Book>> source) throws IOException {
+        Path folds = Files.createTempFile(file.toAbsolutePath().getParent(), file.getFileName().toString(), ".fold.tmp");
+        try (OutputStream raw = Files.newOutputStream(file, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+             OutputStream foldRaw = Files.newOutputStream(folds, StandardOpenOption.WRITE)) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(raw, 1 << 16));
+            out.write(new byte[HEADER_SIZE]);
+            long[] offsets = new long[SECTIONS];
+            long[] lengths = new long[SECTIONS];
+
+            // Пул строк; авторы и имена читателей записываются один раз
+            BookPass pass = new BookPass(new PoolWriter(out), new DataOutputStream(new BufferedOutputStream(foldRaw, 1 << 16)));
+            try {
+                source.accept(pass);
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            pass.folds.flush();
+            int n = pass.count;
+            int borrowedCount = pass.borrowedCount;
+            offsets[POOL] = HEADER_SIZE;
+            lengths[POOL] = pass.pool.size;
+
+            offsets[RECORDS] = offsets[POOL] + lengths[POOL];
+            lengths[RECORDS] = (long) n * RECORD_SIZE;
+            if (lengths[RECORDS] > Integer.MAX_VALUE) {
+                throw new IOException("Каталог слишком велик для одного файла снимка");
+            }
+            for (int i = 0; i < n * 5; i++) out.writeInt(pass.records[i]);
+            out.flush();
+
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+                 FileChannel foldChannel = FileChannel.open(folds, StandardOpenOption.READ)) {
+                ByteBuffer pool = channel.map(FileChannel.MapMode.READ_ONLY, offsets[POOL], lengths[POOL]);
+                ByteBuffer records = channel.map(FileChannel.MapMode.READ_ONLY, offsets[RECORDS], lengths[RECORDS]);
+
+                // Устойчивая сортировка номеров: книги с одинаковым названием
+                // остаются в порядке добавления
+                CharBuffer folded = foldChannel.map(FileChannel.MapMode.READ_ONLY, 0, foldChannel.size()).asCharBuffer();
+                int[] foldEnds = pass.foldEnds;
+                int[] order = new int[n];
+                for (int i = 0; i < n; i++) order[i] = i;
+                MySorts.mergeSort(order, (a, b) -> compareFolded(folded, foldEnds, a, b));
+                offsets[TITLE_ORDER] = offsets[RECORDS] + lengths[RECORDS];
+                lengths[TITLE_ORDER] = (long) n * 4;
+                for (int i = 0; i < n; i++) out.writeInt(order[i]);
+                order = null;
+
+                long[] bits = new long[(n + 63) >>> 6];
+                for (int b = 0; b < borrowedCount; b++) {
+                    int i = pass.borrowedIndexes[b];
+                    bits[i >>> 6] |= 1L << i;
+                }
+                offsets[BITMAP] = offsets[TITLE_ORDER] + lengths[TITLE_ORDER];
+                lengths[BITMAP] = (long) bits.length * 8;
+                for (long word : bits) out.writeLong(word);
+
+                offsets[BORROWERS] = offsets[BITMAP] + lengths[BITMAP];
+                lengths[BORROWERS] = (long) borrowedCount * BORROWER_SIZE;
+                for (int b = 0; b < borrowedCount; b++) {
+                    out.writeInt(pass.borrowedIndexes[b]);
+                    out.writeInt((int) (pass.borrowerRefs[b] >>> 32));
+                    out.writeInt((int) pass.borrowerRefs[b]);
+                }
+
+                offsets[USERS] = offsets[BORROWERS] + lengths[BORROWERS];
+                for (User user : users) {
+                    lengths[USERS] += writeString(out, user.getUsername());
+                    lengths[USERS] += writeString(out, user.getPassword());
+                }
+
+                // Триграммы: первый проход считает длины списков
+                GramCounter grams = new GramCounter();
+                for (int i = 0; i < n; i++) {
+                    grams.addBook(pool, records, i, null);
+                }
+                long[] sortedGrams = grams.sortedKeys();
+                offsets[GRAM_KEYS] = offsets[USERS] + lengths[USERS];
+                lengths[GRAM_KEYS] = (long) sortedGrams.length * 8;
+                for (long gram : sortedGrams) out.writeLong(gram);
+
+                offsets[GRAM_STARTS] = offsets[GRAM_KEYS] + lengths[GRAM_KEYS];
+                lengths[GRAM_STARTS] = ((long) sortedGrams.length + 1) * 4;
+                long total = grams.assignStarts(sortedGrams);
+                if (total * 4 > Integer.MAX_VALUE) {
+                    throw new IOException("Каталог слишком велик для одного файла снимка");
+                }
+                for (long gram : sortedGrams) out.writeInt(grams.startOf(gram));
+                out.writeInt((int) total);
+
+                offsets[POSTINGS] = offsets[GRAM_STARTS] + lengths[GRAM_STARTS];
+                lengths[POSTINGS] = total * 4;
+                out.flush();
+
+                // Второй проход раскладывает номера книг прямо в отображённую область файла
+                MappedByteBuffer region = channel.map(FileChannel.MapMode.READ_WRITE, offsets[POSTINGS], lengths[POSTINGS]);
+                grams.resetLast();
+                for (int i = 0; i < n; i++) {
+                    grams.addBook(pool, records, i, region);
+                }
+                region.force();
+
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+                header.putInt(0, MAGIC);
+                header.putInt(4, VERSION);
+                header.putLong(8, replayFrom);
+                header.putInt(16, n);
+                header.putInt(20, users.size());
+                header.putInt(24, borrowedCount);
+                header.putInt(28, sortedGrams.length);
+                for (int s = 0; s < SECTIONS; s++) {
+                    header.putLong(32 + s * 16, offsets[s]);
+                    header.putLong(40 + s * 16, lengths[s]);
+                }
+                CRC32 crc = new CRC32();
+                crc.update(header.array(), 0, HEADER_CRC_OFFSET);
+                header.putInt(HEADER_CRC_OFFSET, (int) crc.getValue());
+                while (header.hasRemaining()) {
+                    channel.write(header, header.position());
+                }
+                channel.force(true);
+            }
+        } finally {
+            try {
+                Files.deleteIfExists(folds);
+            } catch (IOException e) {
+                // Файл ещё отображён, а система (Windows) не даёт его удалить;
+                // LibraryStore удаляет *.tmp при следующем запуске
+            }
+        }
+    }
+
+    // Сравнивает приведённые названия книг a и b так же, как String.compareTo
+    private static int compareFolded(CharBuffer folded, int[] ends, int a, int b) {
+        int aFrom = a == 0 ? 0 : ends[a - 1];
+        int bFrom = b == 0 ? 0 : ends[b - 1];
+        int aLength = ends[a] - aFrom;
+        int bLength = ends[b] - bFrom;
+        int length = Math.min(aLength, bLength);
+        for (int k = 0; k < length; k++) {
+            char x = folded.get(aFrom + k);
+            char y = folded.get(bFrom + k);
+            if (x != y) return x - y;
+        }
+        return aLength - bLength;
+    }
+
+    private static String string(ByteBuffer pool, ByteBuffer records, int at) {
+        byte[] bytes = new byte[records.getInt(at + 4)];
+        pool.get(records.getInt(at), bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // Единственный проход по книгам: пишет строки в пул, а записи книг,
+    // выдачи и концы приведённых названий копит в массивах int
+    private static class BookPass implements Consumer<Book> {
+        final PoolWriter pool;
+        final DataOutputStream folds;
+        int[] records = new int[5 * 1024];
+        int[] foldEnds = new int[1024];
+        int[] borrowedIndexes = new int[64];
+        long[] borrowerRefs = new long[64];
+        int count;
+        int borrowedCount;
+        private long foldLength;
+
+        BookPass(PoolWriter pool, DataOutputStream folds) {
+            this.pool = pool;
+            this.folds = folds;
+        }
+
+        @Override
+        public void accept(Book book) {
+            try {
+                if (count == foldEnds.length) {
+                    if (count == Integer.MAX_VALUE / 5) {
+                        throw new IOException("Каталог слишком велик для одного файла снимка");
+                    }
+                    int capacity = (int) Math.min((long) count * 2, Integer.MAX_VALUE / 5);
+                    foldEnds = Arrays.copyOf(foldEnds, capacity);
+                    records = Arrays.copyOf(records, capacity * 5);
+                }
+                String borrower = book.getBorrowedBy();
+                long title = pool.append(book.getTitle(), false);
+                long author = pool.append(book.getAuthor(), true);
+                int base = count * 5;
+                records[base] = (int) (title >>> 32);
+                records[base + 1] = (int) title;
+                records[base + 2] = (int) (author >>> 32);
+                records[base + 3] = (int) author;
+                records[base + 4] = book.getYear();
+                if (borrower != null) {
+                    if (borrowedCount == borrowedIndexes.length) {
+                        borrowedIndexes = Arrays.copyOf(borrowedIndexes, borrowedCount * 2);
+                        borrowerRefs = Arrays.copyOf(borrowerRefs, borrowedCount * 2);
+                    }
+                    borrowedIndexes[borrowedCount] = count;
+                    borrowerRefs[borrowedCount++] = pool.append(borrower, true);
+                }
+                String folded = TitleIndex.fold(book.getTitle());
+                foldLength += folded.length();
+                // Приведённые названия отображаются одним CharBuffer
+                if (foldLength > Integer.MAX_VALUE / 2) {
+                    throw new IOException("Каталог слишком велик для одного файла снимка");
+                }
+                folds.writeChars(folded);
+                foldEnds[count++] = (int) foldLength;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private static int writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+        return 4 + bytes.length;
+    }
+
+    // Последовательная запись пула строк; возвращает (смещение << 32) | длина
+    private static class PoolWriter {
+        private final DataOutputStream out;
+        private final MyOpenHashTable<String, Long> interned = new MyOpenHashTable<>();
+        long size;
+
+        PoolWriter(DataOutputStream out) {
+            this.out = out;
+        }
+
+        long append(String value, boolean intern) throws IOException {
+            if (intern) {
+                Long ref = interned.get(value);
+                if (ref != null) return ref;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            if (size + bytes.length > Integer.MAX_VALUE) {
+                throw new IOException("Каталог слишком велик для одного файла снимка");
+            }
+            long ref = (size << 32) | bytes.length;
+            out.write(bytes);
+            size += bytes.length;
+            if (intern) interned.put(value, ref);
+            return ref;
+        }
+    }
+
+    // Открытая адресация триграмма -> длина списка, а после assignStarts —
+    // текущая позиция записи в списке
+    private static class GramCounter {
+        private long[] keys = new long[1024];
+        private int[] counts = new int[1024];
+        private int[] last = new int[1024];
+        private boolean[] used = new boolean[1024];
+        private int count;
+
+        // Книга index читается из уже записанных пула и записей
+        void addBook(ByteBuffer pool, ByteBuffer records, int index, ByteBuffer region) {
+            int at = index * RECORD_SIZE;
+            addField(string(pool, records, at).toLowerCase(), index, region);
+            addField(string(pool, records, at + 8).toLowerCase(), index, region);
+            addField(Integer.toString(records.getInt(at + 16)), index, region);
+        }
+
+        private void addField(String text, int index, ByteBuffer region) {
+            for (int i = 0; i + SearchIndex.GRAM <= text.length(); i++) {
+                int slot = slotFor(SearchIndex.gram(text, i), region == null);
+                // Повтор триграммы у той же книги не дублируем
+                if (last[slot] == index + 1) continue;
+                last[slot] = index + 1;
+                if (region == null) {
+                    counts[slot]++;
+                } else {
+                    region.putInt(counts[slot]++ * 4, index);
+                }
+            }
+        }
+
+        private int slotFor(long gram, boolean create) {
+            int mask = keys.length - 1;
+            int slot = SearchIndex.hash(gram) & mask;
+            while (used[slot]) {
+                if (keys[slot] == gram) return slot;
+                slot = (slot + 1) & mask;
+            }
+            if (!create) throw new IllegalStateException("Триграмма не найдена при втором проходе");
+            if ((count + 1) * 2 > keys.length) {
+                grow();
+                return slotFor(gram, true);
+            }
+            used[slot] = true;
+            keys[slot] = gram;
+            count++;
+            return slot;
+        }
+
+        private void grow() {
+            long[] oldKeys = keys;
+            int[] oldCounts = counts;
+            int[] oldLast = last;
+            boolean[] oldUsed = used;
+            int capacity = oldKeys.length * 2;
+            keys = new long[capacity];
+            counts = new int[capacity];
+            last = new int[capacity];
+            used = new boolean[capacity];
+            int mask = capacity - 1;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (!oldUsed[i]) continue;
+                int slot = SearchIndex.hash(oldKeys[i]) & mask;
+                while (used[slot]) slot = (slot + 1) & mask;
+                used[slot] = true;
+                keys[slot] = oldKeys[i];
+                counts[slot] = oldCounts[i];
+                // Иначе триграмма, уже учтённая у текущей книги, будет посчитана
+                // ещё раз, и в списке останется незаполненная позиция
+                last[slot] = oldLast[i];
+            }
+        }
+
+        long[] sortedKeys() {
+            long[] result = new long[count];
+            int k = 0;
+            for (int i = 0; i < keys.length; i++) {
+                if (used[i]) result[k++] = keys[i];
+            }
+            Arrays.sort(result);
+            return result;
+        }
+
+        // Заменяет длины списков их началами; возвращает общую длину
+        long assignStarts(long[] sortedGrams) {
+            long start = 0;
+            for (long gram : sortedGrams) {
+                int slot = slotFor(gram, false);
+                int length = counts[slot];
+                counts[slot] = (int) start;
+                start += length;
+            }
+            return start;
+        }
+
+        int startOf(long gram) {
+            return counts[slotFor(gram, false)];
+        }
+
+        void resetLast() {
+            Arrays.fill(last, 0);
+        }
+    }
+}
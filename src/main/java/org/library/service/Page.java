@@ -0,0 +1,47 @@
+package org.library.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.library.model.Book;
+
+// Страница результата: книги начиная с позиции offset и общее число книг
+// в результате на момент запроса
+public class Page {
+    private final List<Book> books;
+    private final int offset;
+    private final int total;
+
+    public Page(List<Book> books, int offset, int total) {
+        this.books = books;
+        this.offset = offset;
+        this.total = total;
+    }
+
+    // Страница уже готового списка; книги страницы копируются, а не
+    // остаются видом на весь список
+    public static Page slice(List<Book> all, int offset, int limit) {
+        checkRange(offset, limit);
+        int from = Math.min(offset, all.size());
+        int to = (int) Math.min(all.size(), (long) from + limit);
+        return new Page(new ArrayList<>(all.subList(from, to)), offset, all.size());
+    }
+
+    static void checkRange(int offset, int limit) {
+        if (offset < 0 || limit <= 0) {
+            throw new IllegalArgumentException("Некорректная страница: offset=" + offset + ", limit=" + limit);
+        }
+    }
+
+    public List<Book> getBooks() { return books; }
+    public int getOffset() { return offset; }
+    public int getTotal() { return total; }
+
+    public boolean hasNext() {
+        return getNextOffset() < total;
+    }
+
+    public int getNextOffset() {
+        return offset + books.size();
+    }
+}
@@ -0,0 +1,45 @@
+package org.library.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Predicate;
+
+import org.library.model.Book;
+
+// Параллельный отбор книг по условию. Обход делится через trySplit (таблицы
+// делят его по диапазонам корзин или сегментов, снимок — по номерам книг),
+// пока куски больше CHUNK, и куски проверяются на ForkJoinPool. Результаты
+// склеиваются слева направо, поэтому порядок тот же, что у
+// последовательного обхода тех же частей
+final class ParallelScan extends RecursiveTask<List<Book>> {
+    private static final long serialVersionUID = 1L;
+    static final int CHUNK = 4096;
+
+    private final Spliterator<Book> spliterator;
+    private final Predicate<? super Book> predicate;
+
+    ParallelScan(Spliterator<Book> spliterator, Predicate<? super Book> predicate) {
+        this.spliterator = spliterator;
+        this.predicate = predicate;
+    }
+
+    @Override
+    protected List<Book> compute() {
+        Spliterator<Book> prefix;
+        if (spliterator.estimateSize() > CHUNK && (prefix = spliterator.trySplit()) != null) {
+            ParallelScan left = new ParallelScan(prefix, predicate);
+            left.fork();
+            List<Book> right = new ParallelScan(spliterator, predicate).compute();
+            List<Book> result = left.join();
+            result.addAll(right);
+            return result;
+        }
+        List<Book> result = new ArrayList<>();
+        spliterator.forEachRemaining(book -> {
+            if (predicate.test(book)) result.add(book);
+        });
+        return result;
+    }
+}
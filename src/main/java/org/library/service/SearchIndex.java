@@ -0,0 +1,306 @@
+package org.library.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.library.model.Book;
+
+// Инвертированный индекс по триграммам для поиска подстроки в названии,
+// авторе и годе. Каждая книга получает порядковый номер, для каждой триграммы
+// хранится возрастающий список номеров книг, в полях которых она встречается.
+// Запрос пересекает списки своих триграмм и проверяет только оставшихся
+// кандидатов, поэтому результат совпадает с полным перебором.
+// Индекс разбит на полосы по ключу книги, у каждой своя блокировка:
+// добавление держит блокировку записи только своей полосы, а поиск
+// обходит полосы по очереди под блокировкой чтения.
+class SearchIndex {
+    static final int GRAM = 3;
+    private static final int SHARDS = 16;
+
+    private final Shard[] shards = new Shard[SHARDS];
+    // Сквозной порядковый номер книги: по нему поиск возвращает книги
+    // в порядке первого добавления, как до разбиения на полосы
+    private final AtomicInteger sequence = new AtomicInteger();
+
+    SearchIndex() {
+        for (int i = 0; i < SHARDS; i++) shards[i] = new Shard();
+    }
+
+    private static int shardOf(Book book) {
+        int h = book.hashCode();
+        return (h ^ (h >>> 16)) & (SHARDS - 1);
+    }
+
+    void add(Book book) {
+        Shard shard = shards[shardOf(book)];
+        shard.lock.writeLock().lock();
+        try {
+            shard.add(book, sequence.getAndIncrement());
+        } finally {
+            shard.lock.writeLock().unlock();
+        }
+    }
+
+    // Пакет книг: каждая полоса блокируется один раз на все свои книги,
+    // номера порядка резервируются заранее, чтобы пакет сохранил свой порядок
+    void addAll(List<Book> batch) {
+        int first = sequence.getAndAdd(batch.size());
+        int[] owners = new int[batch.size()];
+        boolean[] touched = new boolean[SHARDS];
+        for (int i = 0; i < owners.length; i++) {
+            owners[i] = shardOf(batch.get(i));
+            touched[owners[i]] = true;
+        }
+        for (int s = 0; s < SHARDS; s++) {
+            if (!touched[s]) continue;
+            Shard shard = shards[s];
+            shard.lock.writeLock().lock();
+            try {
+                for (int i = 0; i < owners.length; i++) {
+                    if (owners[i] == s) shard.add(batch.get(i), first + i);
+                }
+            } finally {
+                shard.lock.writeLock().unlock();
+            }
+        }
+    }
+
+    void ensureCapacity(int additionalBooks) {
+        int perShard = (additionalBooks + SHARDS - 1) / SHARDS;
+        for (Shard shard : shards) {
+            shard.lock.writeLock().lock();
+            try {
+                shard.ensureCapacity(perShard);
+            } finally {
+                shard.lock.writeLock().unlock();
+            }
+        }
+    }
+
+    List<Book> search(String query) {
+        String lowerQuery = query.toLowerCase();
+        List<Book> hits = new ArrayList<>();
+        long[] order = new long[16];
+        for (Shard shard : shards) {
+            shard.lock.readLock().lock();
+            try {
+                for (int id : shard.candidates(lowerQuery)) {
+                    Book book = shard.books[id];
+                    if (!matches(book, query, lowerQuery)) continue;
+                    if (hits.size() == order.length) order = Arrays.copyOf(order, order.length * 2);
+                    // Старшие биты — порядковый номер книги, младшие — её место в hits
+                    order[hits.size()] = ((long) shard.seqs[id] << 32) | hits.size();
+                    hits.add(book);
+                }
+            } finally {
+                shard.lock.readLock().unlock();
+            }
+        }
+        Arrays.sort(order, 0, hits.size());
+        List<Book> result = new ArrayList<>(hits.size());
+        for (int i = 0; i < hits.size(); i++) {
+            result.add(hits.get((int) order[i]));
+        }
+        return result;
+    }
+
+    // Тот же критерий, что и у полного перебора в LibraryService.searchBooks
+    private static boolean matches(Book book, String query, String lowerQuery) {
+        return book.getTitle().toLowerCase().contains(lowerQuery) ||
+               book.getAuthor().toLowerCase().contains(lowerQuery) ||
+               Integer.toString(book.getYear()).contains(query);
+    }
+
+    // Оставляет в acc[0..accSize) только номера из other; двоичный поиск с
+    // продвижением вперёд, так как acc обычно намного короче other
+    private static int intersect(int[] acc, int accSize, int[] other, int otherSize) {
+        int kept = 0;
+        int from = 0;
+        for (int i = 0; i < accSize && from < otherSize; i++) {
+            int pos = Arrays.binarySearch(other, from, otherSize, acc[i]);
+            if (pos >= 0) {
+                acc[kept++] = acc[i];
+                from = pos + 1;
+            } else {
+                from = -pos - 1;
+            }
+        }
+        return kept;
+    }
+
+    static long gram(String text, int from) {
+        return ((long) text.charAt(from) << 32) | ((long) text.charAt(from + 1) << 16) | text.charAt(from + 2);
+    }
+
+    static int hash(long gram) {
+        long h = gram * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    // Полоса индекса: свои книги, номера и таблица триграмм под своей
+    // блокировкой. Номера книг локальны для полосы
+    private static final class Shard {
+        private static final int INIT_CAPACITY = 64;
+
+        final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+        // Книги по номеру; повторно добавленная книга с тем же ключом
+        // занимает номер прежней — её поля, а значит и триграммы, те же
+        Book[] books = new Book[INIT_CAPACITY];
+        int[] seqs = new int[INIT_CAPACITY];
+        private int count;
+
+        // Открытая адресация: книга -> номер, без упаковки номеров в Integer
+        private Book[] idKeys = new Book[INIT_CAPACITY * 2];
+        private int[] idValues = new int[INIT_CAPACITY * 2];
+
+        // Открытая адресация: триграмма (три символа в одном long) -> список номеров
+        private long[] gramKeys = new long[INIT_CAPACITY];
+        private int[][] postings = new int[INIT_CAPACITY][];
+        private int[] postingSizes = new int[INIT_CAPACITY];
+        private int gramCount;
+
+        void ensureCapacity(int additionalBooks) {
+            int needed = count + additionalBooks;
+            if (needed > books.length) {
+                books = Arrays.copyOf(books, needed);
+                seqs = Arrays.copyOf(seqs, needed);
+            }
+            if (needed * 2 > idKeys.length) {
+                growIds(Integer.highestOneBit(needed * 2 - 1) << 1);
+            }
+        }
+
+        void add(Book book, int seq) {
+            int idSlot = idSlot(book);
+            if (idKeys[idSlot] != null) {
+                books[idValues[idSlot]] = book;
+                return;
+            }
+            int id = count++;
+            if (id == books.length) {
+                books = Arrays.copyOf(books, books.length * 2);
+                seqs = Arrays.copyOf(seqs, seqs.length * 2);
+            }
+            books[id] = book;
+            seqs[id] = seq;
+            idKeys[idSlot] = book;
+            idValues[idSlot] = id;
+            if (count * 2 > idKeys.length) growIds(idKeys.length * 2);
+            indexField(book.getTitle().toLowerCase(), id);
+            indexField(book.getAuthor().toLowerCase(), id);
+            indexField(Integer.toString(book.getYear()), id);
+        }
+
+        // Ячейка книги в таблице номеров: занятая ею или первая свободная
+        private int idSlot(Book book) {
+            int mask = idKeys.length - 1;
+            int slot = hash(book.hashCode()) & mask;
+            while (idKeys[slot] != null && !idKeys[slot].equals(book)) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        private void growIds(int capacity) {
+            Book[] oldKeys = idKeys;
+            int[] oldValues = idValues;
+            idKeys = new Book[capacity];
+            idValues = new int[capacity];
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] == null) continue;
+                int slot = idSlot(oldKeys[i]);
+                idKeys[slot] = oldKeys[i];
+                idValues[slot] = oldValues[i];
+            }
+        }
+
+        private void indexField(String text, int id) {
+            for (int i = 0; i + GRAM <= text.length(); i++) {
+                int slot = slotFor(gram(text, i), true);
+                int[] list = postings[slot];
+                int size = postingSizes[slot];
+                // Номера растут, поэтому повтор триграммы у той же книги — всегда
+                // последний элемент списка
+                if (size > 0 && list[size - 1] == id) continue;
+                if (size == list.length) {
+                    list = Arrays.copyOf(list, size + (size >> 1) + 1);
+                    postings[slot] = list;
+                }
+                list[size] = id;
+                postingSizes[slot] = size + 1;
+            }
+        }
+
+        // Пересечение списков всех триграмм запроса, начиная с самого короткого
+        private int[] candidates(String lowerQuery) {
+            if (lowerQuery.length() < GRAM) {
+                // Слишком короткий запрос не содержит ни одной триграммы
+                int[] all = new int[count];
+                for (int id = 0; id < count; id++) all[id] = id;
+                return all;
+            }
+            int grams = lowerQuery.length() - GRAM + 1;
+            int[] slots = new int[grams];
+            for (int i = 0; i < grams; i++) {
+                int slot = slotFor(gram(lowerQuery, i), false);
+                if (slot < 0) return new int[0];
+                slots[i] = slot;
+            }
+            int shortest = 0;
+            for (int i = 1; i < grams; i++) {
+                if (postingSizes[slots[i]] < postingSizes[slots[shortest]]) shortest = i;
+            }
+            int size = postingSizes[slots[shortest]];
+            int[] result = Arrays.copyOf(postings[slots[shortest]], size);
+            for (int i = 0; i < grams && size > 0; i++) {
+                if (i == shortest || slots[i] == slots[shortest]) continue;
+                size = intersect(result, size, postings[slots[i]], postingSizes[slots[i]]);
+            }
+            return Arrays.copyOf(result, size);
+        }
+
+        // Ячейка триграммы в таблице; create = false — -1, если её нет.
+        // Ключ 0 (три нулевых символа) допустим, поэтому пустота ячейки
+        // определяется по отсутствию списка
+        private int slotFor(long gram, boolean create) {
+            int mask = gramKeys.length - 1;
+            int slot = hash(gram) & mask;
+            while (postings[slot] != null) {
+                if (gramKeys[slot] == gram) return slot;
+                slot = (slot + 1) & mask;
+            }
+            if (!create) return -1;
+            if ((gramCount + 1) * 2 > gramKeys.length) {
+                growGrams();
+                return slotFor(gram, true);
+            }
+            gramKeys[slot] = gram;
+            postings[slot] = new int[2];
+            gramCount++;
+            return slot;
+        }
+
+        private void growGrams() {
+            long[] oldKeys = gramKeys;
+            int[][] oldPostings = postings;
+            int[] oldSizes = postingSizes;
+            int capacity = oldKeys.length * 2;
+            gramKeys = new long[capacity];
+            postings = new int[capacity][];
+            postingSizes = new int[capacity];
+            int mask = capacity - 1;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldPostings[i] == null) continue;
+                int slot = hash(oldKeys[i]) & mask;
+                while (postings[slot] != null) slot = (slot + 1) & mask;
+                gramKeys[slot] = oldKeys[i];
+                postings[slot] = oldPostings[i];
+                postingSizes[slot] = oldSizes[i];
+            }
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package org.library.service;
+
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.library.model.User;
+import org.library.utils.MyConcurrentHashTable;
+
+// Сессии читателей: случайный токен -> пользователь. Таблица всегда
+// потокобезопасная, независимо от движка каталога: входы, выходы и
+// обращения разных читателей идут параллельно без общих блокировок.
+//
+// Сессия истекает, если к ней не обращались дольше idleTimeout. Истёкшая
+// сессия удаляется при обращении к ней, а остальные — попутно, каждые
+// SWEEP_INTERVAL входов, чтобы брошенные сессии не копились
+final class SessionTable {
+    static final long DEFAULT_IDLE_TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(30);
+    // 144 бита случайности, 24 символа base64url
+    private static final int TOKEN_BYTES = 18;
+    private static final int SWEEP_INTERVAL = 1024;
+
+    private static final class Session {
+        final User user;
+        volatile long lastAccessNanos;
+
+        Session(User user, long now) {
+            this.user = user;
+            this.lastAccessNanos = now;
+        }
+    }
+
+    private final SecureRandom random = new SecureRandom();
+    private final Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+    private final MyConcurrentHashTable<String, Session> sessions = new MyConcurrentHashTable<>();
+    private final AtomicInteger logins = new AtomicInteger();
+    private volatile long idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_IDLE_TIMEOUT_MILLIS);
+
+    String open(User user) {
+        if (logins.incrementAndGet() % SWEEP_INTERVAL == 0) expire();
+        Session session = new Session(user, System.nanoTime());
+        while (true) {
+            byte[] bytes = new byte[TOKEN_BYTES];
+            random.nextBytes(bytes);
+            String token = encoder.encodeToString(bytes);
+            // Совпадение токенов практически невозможно, но проверить ничего не стоит
+            if (sessions.putIfAbsent(token, session) == null) return token;
+        }
+    }
+
+    // Пользователь живой сессии или null; обращение продлевает сессию
+    User user(String token) {
+        if (token == null) return null;
+        Session session = sessions.get(token);
+        if (session == null) return null;
+        long now = System.nanoTime();
+        if (now - session.lastAccessNanos > idleTimeoutNanos) {
+            sessions.remove(token);
+            return null;
+        }
+        session.lastAccessNanos = now;
+        return session.user;
+    }
+
+    void close(String token) {
+        if (token != null) sessions.remove(token);
+    }
+
+    // Удаляет истёкшие сессии и возвращает их число
+    int expire() {
+        long now = System.nanoTime();
+        long timeout = idleTimeoutNanos;
+        List<String> expired = new ArrayList<>();
+        sessions.forEach((token, session) -> {
+            if (now - session.lastAccessNanos > timeout) expired.add(token);
+        });
+        for (String token : expired) {
+            sessions.remove(token);
+        }
+        return expired.size();
+    }
+
+    int size() {
+        return sessions.size();
+    }
+
+    void setIdleTimeout(long timeout, TimeUnit unit) {
+        if (timeout <= 0) {
+            throw new IllegalArgumentException("Время жизни сессии должно быть положительным: " + timeout);
+        }
+        idleTimeoutNanos = unit.toNanos(timeout);
+    }
+}
@@ -0,0 +1,116 @@
+package org.library.service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import org.library.model.Book;
+import org.library.utils.MySortedMap;
+import org.library.utils.MyTable;
+
+// Вторичный индекс каталога: название без учёта регистра -> книги с этим
+// названием. Хеш-таблица находит книгу для выдачи и возврата за O(1),
+// упорядоченное дерево поддерживает бинарный поиск и поиск по префиксу
+// без сортировки каталога на каждый запрос.
+class TitleIndex {
+    // Полосатые блокировки: изменения книг с одинаковым названием
+    // упорядочены, с разными названиями — идут параллельно
+    private static final int LOCK_STRIPES = 64;
+
+    // Массив книг заменяется целиком (копирование при записи), поэтому
+    // читатели обходятся без блокировок
+    private final MyTable<String, Book[]> byTitle;
+    // Те же массивы книг, упорядоченные по приведённому названию. Порядок
+    // приведённых строк совпадает с String.CASE_INSENSITIVE_ORDER
+    private final MySortedMap<String, Book[]> sortedByTitle = new MySortedMap<>(Comparator.naturalOrder());
+    private final Object[] locks = new Object[LOCK_STRIPES];
+
+    TitleIndex(MyTable.Engine engine) {
+        byTitle = MyTable.create(engine);
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    // Приводит название к виду, в котором равенство строк совпадает с
+    // String.equalsIgnoreCase: каждый символ переводится в верхний и затем
+    // в нижний регистр, как это делает сравнение без учёта регистра
+    static String fold(String title) {
+        int n = title.length();
+        int i = 0;
+        while (i < n) {
+            char c = title.charAt(i);
+            if (Character.isSurrogate(c) || Character.toLowerCase(Character.toUpperCase(c)) != c) break;
+            i++;
+        }
+        if (i == n) return title;
+        StringBuilder sb = new StringBuilder(n);
+        sb.append(title, 0, i);
+        while (i < n) {
+            int cp = title.codePointAt(i);
+            sb.appendCodePoint(Character.toLowerCase(Character.toUpperCase(cp)));
+            i += Character.charCount(cp);
+        }
+        return sb.toString();
+    }
+
+    void ensureCapacity(int additionalTitles) {
+        byTitle.ensureCapacity(byTitle.size() + additionalTitles);
+    }
+
+    // Блокировка, под которой нужно менять каталог и индекс для данного
+    // (уже приведённого) названия, чтобы они не разошлись
+    Object lockFor(String foldedTitle) {
+        return locks[(foldedTitle.hashCode() & 0x7fffffff) % LOCK_STRIPES];
+    }
+
+    // Вызывается под lockFor: добавляет книгу, заменяя previous, если
+    // в каталоге по тому же ключу уже лежала другая книга
+    void add(String foldedTitle, Book book, Book previous) {
+        Book[] copies = byTitle.get(foldedTitle);
+        Book[] updated = copies == null ? new Book[] { book } : withBook(copies, book, previous);
+        byTitle.put(foldedTitle, updated);
+        sortedByTitle.put(foldedTitle, updated);
+    }
+
+    private static Book[] withBook(Book[] copies, Book book, Book previous) {
+        if (previous != null) {
+            for (int i = 0; i < copies.length; i++) {
+                if (copies[i] == previous) {
+                    Book[] updated = copies.clone();
+                    updated[i] = book;
+                    return updated;
+                }
+            }
+        }
+        Book[] updated = new Book[copies.length + 1];
+        System.arraycopy(copies, 0, updated, 0, copies.length);
+        updated[copies.length] = book;
+        return updated;
+    }
+
+    // Все книги с данным названием в порядке добавления или null
+    Book[] find(String title) {
+        return byTitle.get(fold(title));
+    }
+
+    // Бинарный поиск по упорядоченному индексу
+    Book[] binarySearch(String title) {
+        return sortedByTitle.get(fold(title));
+    }
+
+    // Книги, название которых начинается с prefix (без учёта регистра),
+    // в порядке названий
+    List<Book> findByPrefix(String prefix) {
+        String foldedPrefix = fold(prefix);
+        List<Book> result = new ArrayList<>();
+        sortedByTitle.forEachFrom(foldedPrefix, (title, copies) -> {
+            if (!title.startsWith(foldedPrefix)) return false;
+            for (Book book : copies) {
+                result.add(book);
+            }
+            return true;
+        });
+        return result;
+    }
+}
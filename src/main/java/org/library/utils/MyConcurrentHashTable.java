@@ -0,0 +1,360 @@
+package org.library.utils;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+// Потокобезопасная хеш-таблица с разбиением на сегменты. Чтение идёт без
+// блокировок, запись блокирует только свой сегмент, а расширение выполняется
+// посегментно — остальные сегменты в это время доступны и на чтение, и на запись.
+public class MyConcurrentHashTable<K, V> implements MyTable<K, V> {
+    private static final class Node<K, V> {
+        final int hash;
+        final K key;
+        volatile V value;
+        volatile Node<K, V> next;
+
+        Node(int hash, K key, V value, Node<K, V> next) {
+            this.hash = hash;
+            this.key = key;
+            this.value = value;
+            this.next = next;
+        }
+    }
+
+    private static final class Segment<K, V> extends ReentrantLock {
+        private static final long serialVersionUID = 1L;
+
+        // Ссылка на массив корзин публикуется целиком после расширения,
+        // поэтому читатель всегда видит согласованную таблицу
+        volatile AtomicReferenceArray<Node<K, V>> table;
+        volatile int count;
+        int threshold;
+
+        Segment(int capacity) {
+            setTable(new AtomicReferenceArray<>(capacity));
+        }
+
+        void setTable(AtomicReferenceArray<Node<K, V>> newTable) {
+            threshold = (int) (newTable.length() * LOAD_FACTOR);
+            table = newTable;
+        }
+    }
+
+    private static final int SEGMENT_INIT_CAPACITY = 4;
+    private static final double LOAD_FACTOR = 0.75;
+
+    private final Segment<K, V>[] segments;
+    private final int segmentShift;
+
+    public MyConcurrentHashTable() {
+        this(Math.max(16, Runtime.getRuntime().availableProcessors() * 4));
+    }
+
+    @SuppressWarnings("unchecked")
+    public MyConcurrentHashTable(int concurrencyLevel) {
+        int segmentCount = 1;
+        int bits = 0;
+        while (segmentCount < concurrencyLevel) {
+            segmentCount <<= 1;
+            bits++;
+        }
+        segments = (Segment<K, V>[]) new Segment<?, ?>[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = new Segment<>(SEGMENT_INIT_CAPACITY);
+        }
+        // Сегмент выбирается по старшим битам хеша, корзина — по младшим
+        segmentShift = 32 - bits;
+    }
+
+    private static int hash(Object key) {
+        int h = key == null ? 0 : key.hashCode() * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private Segment<K, V> segmentFor(int hash) {
+        return segments.length == 1 ? segments[0] : segments[hash >>> segmentShift];
+    }
+
+    @Override
+    public V get(K key) {
+        int h = hash(key);
+        AtomicReferenceArray<Node<K, V>> tab = segmentFor(h).table;
+        for (Node<K, V> e = tab.get(h & (tab.length() - 1)); e != null; e = e.next) {
+            if (e.hash == h && Objects.equals(key, e.key)) return e.value;
+        }
+        return null;
+    }
+
+    @Override
+    public V put(K key, V value) {
+        return put(key, value, false);
+    }
+
+    @Override
+    public V putIfAbsent(K key, V value) {
+        return put(key, value, true);
+    }
+
+    private V put(K key, V value, boolean onlyIfAbsent) {
+        int h = hash(key);
+        Segment<K, V> segment = segmentFor(h);
+        segment.lock();
+        try {
+            AtomicReferenceArray<Node<K, V>> tab = segment.table;
+            int idx = h & (tab.length() - 1);
+            Node<K, V> head = tab.get(idx);
+            for (Node<K, V> e = head; e != null; e = e.next) {
+                if (e.hash == h && Objects.equals(key, e.key)) {
+                    V old = e.value;
+                    if (!onlyIfAbsent) e.value = value;
+                    return old;
+                }
+            }
+            if (segment.count + 1 > segment.threshold) {
+                tab = rehash(segment, tab.length() * 2);
+                idx = h & (tab.length() - 1);
+                head = tab.get(idx);
+            }
+            tab.set(idx, new Node<>(h, key, value, head));
+            segment.count++;
+            return null;
+        } finally {
+            segment.unlock();
+        }
+    }
+
+    // Расширяет один сегмент. Узлы копируются, а не перецепляются, чтобы
+    // читатели, идущие по старой таблице, не увидели разорванных цепочек
+    private AtomicReferenceArray<Node<K, V>> rehash(Segment<K, V> segment, int capacity) {
+        AtomicReferenceArray<Node<K, V>> oldTab = segment.table;
+        AtomicReferenceArray<Node<K, V>> newTab = new AtomicReferenceArray<>(capacity);
+        int mask = newTab.length() - 1;
+        for (int i = 0; i < oldTab.length(); i++) {
+            for (Node<K, V> e = oldTab.get(i); e != null; e = e.next) {
+                int idx = e.hash & mask;
+                newTab.set(idx, new Node<>(e.hash, e.key, e.value, newTab.get(idx)));
+            }
+        }
+        segment.setTable(newTab);
+        return newTab;
+    }
+
+    // Ключи распределяются по сегментам равномерно, поэтому каждый
+    // сегмент готовится к своей доле expectedSize
+    @Override
+    public void ensureCapacity(int expectedSize) {
+        long perSegment = (long) Math.ceil((double) expectedSize / segments.length / LOAD_FACTOR) + 1;
+        int capacity = MyHashTable.tableSizeFor((int) Math.min(1 << 30, perSegment));
+        for (Segment<K, V> segment : segments) {
+            segment.lock();
+            try {
+                if (segment.table.length() < capacity) rehash(segment, capacity);
+            } finally {
+                segment.unlock();
+            }
+        }
+    }
+
+    @Override
+    public boolean remove(K key) {
+        int h = hash(key);
+        Segment<K, V> segment = segmentFor(h);
+        segment.lock();
+        try {
+            AtomicReferenceArray<Node<K, V>> tab = segment.table;
+            int idx = h & (tab.length() - 1);
+            Node<K, V> prev = null;
+            for (Node<K, V> e = tab.get(idx); e != null; prev = e, e = e.next) {
+                if (e.hash == h && Objects.equals(key, e.key)) {
+                    if (prev == null) {
+                        tab.set(idx, e.next);
+                    } else {
+                        prev.next = e.next;
+                    }
+                    segment.count--;
+                    return true;
+                }
+            }
+            return false;
+        } finally {
+            segment.unlock();
+        }
+    }
+
+    // Слабо согласованный снимок: записи, изменённые во время обхода,
+    // могут как попасть в результат, так и не попасть
+    @Override
+    public List<V> values() {
+        List<V> vals = new ArrayList<>(size());
+        for (Segment<K, V> segment : segments) {
+            AtomicReferenceArray<Node<K, V>> tab = segment.table;
+            for (int i = 0; i < tab.length(); i++) {
+                for (Node<K, V> e = tab.get(i); e != null; e = e.next) {
+                    vals.add(e.value);
+                }
+            }
+        }
+        return vals;
+    }
+
+    // Слабо согласованный обход: каждый сегмент читается по той таблице
+    // корзин, что была опубликована к моменту перехода к нему, без блокировок
+    @Override
+    public Iterator<V> valueIterator() {
+        return new Iterator<V>() {
+            private int segmentIndex;
+            private AtomicReferenceArray<Node<K, V>> tab;
+            private int bucket;
+            private Node<K, V> next;
+
+            @Override
+            public boolean hasNext() {
+                while (next == null) {
+                    if (tab == null || bucket == tab.length()) {
+                        if (segmentIndex == segments.length) return false;
+                        tab = segments[segmentIndex++].table;
+                        bucket = 0;
+                        continue;
+                    }
+                    next = tab.get(bucket++);
+                }
+                return true;
+            }
+
+            @Override
+            public V next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                V value = next.value;
+                next = next.next;
+                return value;
+            }
+        };
+    }
+
+    // Делится по диапазонам сегментов; внутри сегмента обход слабо
+    // согласованный, как и valueIterator
+    @Override
+    public Spliterator<V> spliterator() {
+        return new SegmentSpliterator(0, segments.length, size());
+    }
+
+    private final class SegmentSpliterator implements Spliterator<V> {
+        private int index;
+        private final int fence;
+        private long estimate;
+        private AtomicReferenceArray<Node<K, V>> tab;
+        private int bucket;
+        private Node<K, V> next;
+
+        SegmentSpliterator(int index, int fence, long estimate) {
+            this.index = index;
+            this.fence = fence;
+            this.estimate = estimate;
+        }
+
+        @Override
+        public Spliterator<V> trySplit() {
+            int lo = index;
+            int mid = (lo + fence) >>> 1;
+            if (lo >= mid || tab != null) return null;
+            index = mid;
+            estimate >>>= 1;
+            return new SegmentSpliterator(lo, mid, estimate);
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super V> action) {
+            while (next == null) {
+                if (tab == null || bucket == tab.length()) {
+                    if (index >= fence) return false;
+                    tab = segments[index++].table;
+                    bucket = 0;
+                    continue;
+                }
+                next = tab.get(bucket++);
+            }
+            V value = next.value;
+            next = next.next;
+            action.accept(value);
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super V> action) {
+            // Дочитываем начатый сегмент
+            for (Node<K, V> e = next; e != null; e = e.next) {
+                action.accept(e.value);
+            }
+            next = null;
+            if (tab != null) {
+                for (; bucket < tab.length(); bucket++) {
+                    for (Node<K, V> e = tab.get(bucket); e != null; e = e.next) {
+                        action.accept(e.value);
+                    }
+                }
+            }
+            for (; index < fence; index++) {
+                AtomicReferenceArray<Node<K, V>> t = segments[index].table;
+                for (int i = 0; i < t.length(); i++) {
+                    for (Node<K, V> e = t.get(i); e != null; e = e.next) {
+                        action.accept(e.value);
+                    }
+                }
+            }
+            tab = null;
+        }
+
+        @Override
+        public long estimateSize() {
+            return estimate;
+        }
+
+        @Override
+        public int characteristics() {
+            return Spliterator.CONCURRENT;
+        }
+    }
+
+    // Слабо согласованный, как и valueIterator
+    @Override
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        for (Segment<K, V> segment : segments) {
+            AtomicReferenceArray<Node<K, V>> tab = segment.table;
+            for (int i = 0; i < tab.length(); i++) {
+                for (Node<K, V> e = tab.get(i); e != null; e = e.next) {
+                    action.accept(e.key, e.value);
+                }
+            }
+        }
+    }
+
+    @Override
+    public int size() {
+        int size = 0;
+        for (Segment<K, V> segment : segments) {
+            size += segment.count;
+        }
+        return size;
+    }
+
+    @Override
+    public void clear() {
+        for (Segment<K, V> segment : segments) {
+            segment.lock();
+            try {
+                segment.setTable(new AtomicReferenceArray<>(SEGMENT_INIT_CAPACITY));
+                segment.count = 0;
+            } finally {
+                segment.unlock();
+            }
+        }
+    }
+}
@@ -1,13 +1,23 @@
 package org.library.utils;
 
 import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
-public class MyHashTable<K, V> {
+public class MyHashTable<K, V> implements MyTable<K, V> {
     private static class Entry<K, V> {
         K key;
         V value;
+        // Соседи в порядке добавления; используются только при insertionOrder
+        Entry<K, V> before;
+        Entry<K, V> after;
         Entry(K key, V value) {
             this.key = key;
             this.value = value;
@@ -16,40 +26,120 @@ public class MyHashTable<K, V> {
 
     private List<Entry<K, V>>[] table;
     private int size;
+    // Число структурных изменений: по нему итераторы замечают изменение таблицы
+    private int modCount;
     private static final int INIT_CAPACITY = 16;
     private static final double LOAD_FACTOR = 0.75;
+    // Сколько корзин старой таблицы переносится за одну операцию при
+    // инкрементальном расширении. Новая таблица вдвое больше, поэтому при
+    // коэффициенте загрузки от 0.25 перенос гарантированно завершается раньше,
+    // чем она сама достигнет порога
+    static final int MIGRATE_STEP = 4;
+
+    private final double loadFactor;
+    private final boolean incrementalResize;
+    // Записи дополнительно связаны в двусвязный список в порядке добавления:
+    // values() обходит его, а не корзины. Расширение переносит сами записи,
+    // поэтому порядок сохраняется без перестроения
+    private final boolean insertionOrder;
+    private Entry<K, V> head;
+    private Entry<K, V> tail;
+    // Старая таблица, пока идёт инкрементальный перенос; иначе null
+    private List<Entry<K, V>>[] oldTable;
+    private int migrateIndex;
+    // Сколько корзин старых таблиц перенесено за всё время (для тестов)
+    private long migratedBuckets;
 
     public MyHashTable() {
-        table = new List[INIT_CAPACITY];
+        this(false);
+    }
+
+    // incrementalResize = true: при расширении старая и новая таблицы живут
+    // одновременно, и каждая последующая put/get/remove переносит несколько
+    // корзин, так что ни один вызов не платит O(n) за полный rehash
+    public MyHashTable(boolean incrementalResize) {
+        this(INIT_CAPACITY, LOAD_FACTOR, incrementalResize);
+    }
+
+    // insertionOrder = true: values() возвращает значения в порядке добавления
+    // ключей (повторный put существующего ключа порядок не меняет)
+    public MyHashTable(boolean incrementalResize, boolean insertionOrder) {
+        this(INIT_CAPACITY, LOAD_FACTOR, incrementalResize, insertionOrder);
+    }
+
+    public MyHashTable(int initialCapacity, double loadFactor) {
+        this(initialCapacity, loadFactor, false);
+    }
+
+    public MyHashTable(int initialCapacity, double loadFactor, boolean incrementalResize) {
+        this(initialCapacity, loadFactor, incrementalResize, false);
+    }
+
+    public MyHashTable(int initialCapacity, double loadFactor, boolean incrementalResize, boolean insertionOrder) {
+        if (initialCapacity < 0 || !(loadFactor > 0)) {
+            throw new IllegalArgumentException("Некорректные параметры таблицы: " + initialCapacity + ", " + loadFactor);
+        }
+        this.loadFactor = loadFactor;
+        this.incrementalResize = incrementalResize;
+        this.insertionOrder = insertionOrder;
+        table = newTable(tableSizeFor(initialCapacity));
         size = 0;
     }
 
+    @SuppressWarnings("unchecked")
+    private static <K, V> List<Entry<K, V>>[] newTable(int capacity) {
+        return (List<Entry<K, V>>[]) new List<?>[capacity];
+    }
+
+    // Размер массива корзин — степень двойки, чтобы индекс считался маской
+    static int tableSizeFor(int capacity) {
+        int n = 1;
+        while (n < capacity && n < (1 << 30)) n <<= 1;
+        return n;
+    }
+
     private int hash(K key) {
-        return (key == null ? 0 : key.hashCode()) & (table.length - 1);
+        return indexFor(key, table.length);
+    }
+
+    private int indexFor(K key, int length) {
+        return (key == null ? 0 : key.hashCode()) & (length - 1);
     }
 
-    public void put(K key, V value) {
-        if (size >= table.length * LOAD_FACTOR) resize();
+    public V put(K key, V value) {
+        if (size >= table.length * loadFactor) resize();
+        if (oldTable != null) {
+            migrateFor(key);
+        }
         int idx = hash(key);
         if (table[idx] == null) table[idx] = new LinkedList<>();
         for (Entry<K, V> entry : table[idx]) {
             if (key == null) {
                 if (entry.key == null) {
+                    V old = entry.value;
                     entry.value = value;
-                    return;
+                    return old;
                 }
             } else {
                 if (key.equals(entry.key)) {
+                    V old = entry.value;
                     entry.value = value;
-                    return;
+                    return old;
                 }
             }
         }
-        table[idx].add(new Entry<>(key, value));
+        Entry<K, V> entry = new Entry<>(key, value);
+        table[idx].add(entry);
+        if (insertionOrder) linkLast(entry);
         size++;
+        modCount++;
+        return null;
     }
     
     public V get(K key) {
+        if (oldTable != null) {
+            migrateFor(key);
+        }
         int idx = hash(key);
         if (table[idx] == null) return null;
         for (Entry<K, V> entry : table[idx]) {
@@ -64,19 +154,26 @@ public class MyHashTable<K, V> {
     
 
     public boolean remove(K key) {
+        if (oldTable != null) {
+            migrateFor(key);
+        }
         int idx = hash(key);
         if (table[idx] == null) return false;
         for (Entry<K, V> entry : table[idx]) {
             if (key == null) {
                 if (entry.key == null) {
                     table[idx].remove(entry);
+                    unlink(entry);
                     size--;
+                    modCount++;
                     return true;
                 }
             } else {
                 if (key.equals(entry.key)) {
                     table[idx].remove(entry);
+                    unlink(entry);
                     size--;
+                    modCount++;
                     return true;
                 }
             }
@@ -86,7 +183,13 @@ public class MyHashTable<K, V> {
     
 
     public List<V> values() {
-        List<V> vals = new ArrayList<>();
+        List<V> vals = new ArrayList<>(size);
+        if (insertionOrder) {
+            for (Entry<K, V> entry = head; entry != null; entry = entry.after) {
+                vals.add(entry.value);
+            }
+            return vals;
+        }
         for (List<Entry<K, V>> bucket : table) {
             if (bucket != null) {
                 for (Entry<K, V> entry : bucket) {
@@ -94,26 +197,321 @@ public class MyHashTable<K, V> {
                 }
             }
         }
+        if (oldTable != null) {
+            for (int i = migrateIndex; i < oldTable.length; i++) {
+                if (oldTable[i] != null) {
+                    for (Entry<K, V> entry : oldTable[i]) {
+                        vals.add(entry.value);
+                    }
+                }
+            }
+        }
         return vals;
     }
 
-    private void resize() {
-        List<Entry<K, V>>[] oldTable = table;
-        table = new List[oldTable.length * 2];
-        size = 0;
-        for (List<Entry<K, V>> bucket : oldTable) {
-            if (bucket != null) {
+    // Итераторы «живые» и fail-fast: remove() удаляет текущую запись из
+    // таблицы, а любое другое структурное изменение во время обхода приводит
+    // к ConcurrentModificationException. Незавершённый инкрементальный
+    // перенос перед обходом доводится до конца, чтобы get() во время обхода
+    // не перекладывал корзины
+    @Override
+    public Iterator<V> valueIterator() {
+        finishMigration();
+        return insertionOrder ? new LinkedIterator() : new BucketIterator();
+    }
+
+    // Обход пар без создания объектов на элемент
+    @Override
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        finishMigration();
+        int expectedModCount = modCount;
+        if (insertionOrder) {
+            for (Entry<K, V> entry = head; entry != null && modCount == expectedModCount; entry = entry.after) {
+                action.accept(entry.key, entry.value);
+            }
+        } else {
+            List<Entry<K, V>>[] tab = table;
+            for (int i = 0; i < tab.length && modCount == expectedModCount; i++) {
+                List<Entry<K, V>> bucket = tab[i];
+                if (bucket == null) continue;
                 for (Entry<K, V> entry : bucket) {
-                    put(entry.key, entry.value);
+                    action.accept(entry.key, entry.value);
                 }
             }
         }
+        if (modCount != expectedModCount) throw new ConcurrentModificationException();
+    }
+
+    // Делится по диапазонам корзин, поэтому части можно обходить в разных
+    // потоках, пока таблицу никто не меняет. В режиме порядка добавления
+    // обход идёт по списку записей и делится пачками
+    @Override
+    public Spliterator<V> spliterator() {
+        finishMigration();
+        if (insertionOrder) {
+            return Spliterators.spliterator(new LinkedIterator(), size, Spliterator.ORDERED);
+        }
+        return new BucketSpliterator(table, 0, table.length, size, modCount);
+    }
+
+    private abstract class HashIterator implements Iterator<V> {
+        int expectedModCount = modCount;
+        Entry<K, V> last;
+
+        abstract Entry<K, V> nextEntry();
+
+        // Убирает last из его корзины
+        abstract void removeFromBucket();
+
+        @Override
+        public V next() {
+            if (modCount != expectedModCount) throw new ConcurrentModificationException();
+            if (!hasNext()) throw new NoSuchElementException();
+            last = nextEntry();
+            return last.value;
+        }
+
+        @Override
+        public void remove() {
+            if (last == null) throw new IllegalStateException();
+            if (modCount != expectedModCount) throw new ConcurrentModificationException();
+            removeFromBucket();
+            unlink(last);
+            size--;
+            modCount++;
+            expectedModCount = modCount;
+            last = null;
+        }
+    }
+
+    private final class BucketIterator extends HashIterator {
+        private int index;
+        private Iterator<Entry<K, V>> bucket;
+        // Итератор корзины, выдавший last: hasNext мог уже перейти к следующей
+        private Iterator<Entry<K, V>> lastBucket;
+
+        @Override
+        public boolean hasNext() {
+            while (bucket == null || !bucket.hasNext()) {
+                if (index >= table.length) return false;
+                List<Entry<K, V>> list = table[index++];
+                bucket = list == null ? null : list.iterator();
+            }
+            return true;
+        }
+
+        @Override
+        Entry<K, V> nextEntry() {
+            lastBucket = bucket;
+            return bucket.next();
+        }
+
+        @Override
+        void removeFromBucket() {
+            lastBucket.remove();
+        }
+    }
+
+    private final class LinkedIterator extends HashIterator {
+        private Entry<K, V> next = head;
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        Entry<K, V> nextEntry() {
+            Entry<K, V> entry = next;
+            next = entry.after;
+            return entry;
+        }
+
+        @Override
+        void removeFromBucket() {
+            table[hash(last.key)].remove(last);
+        }
+    }
+
+    private final class BucketSpliterator implements Spliterator<V> {
+        private final List<Entry<K, V>>[] tab;
+        private int index;
+        private final int fence;
+        private long estimate;
+        private final int expectedModCount;
+        private Iterator<Entry<K, V>> bucket;
+
+        BucketSpliterator(List<Entry<K, V>>[] tab, int index, int fence, long estimate, int expectedModCount) {
+            this.tab = tab;
+            this.index = index;
+            this.fence = fence;
+            this.estimate = estimate;
+            this.expectedModCount = expectedModCount;
+        }
+
+        @Override
+        public Spliterator<V> trySplit() {
+            int lo = index;
+            int mid = (lo + fence) >>> 1;
+            if (lo >= mid) return null;
+            index = mid;
+            estimate >>>= 1;
+            return new BucketSpliterator(tab, lo, mid, estimate, expectedModCount);
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super V> action) {
+            while (bucket == null || !bucket.hasNext()) {
+                if (index >= fence) return false;
+                List<Entry<K, V>> list = tab[index++];
+                bucket = list == null ? null : list.iterator();
+            }
+            action.accept(bucket.next().value);
+            if (modCount != expectedModCount) throw new ConcurrentModificationException();
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super V> action) {
+            if (bucket != null) {
+                while (bucket.hasNext()) action.accept(bucket.next().value);
+                bucket = null;
+            }
+            for (; index < fence; index++) {
+                List<Entry<K, V>> list = tab[index];
+                if (list == null) continue;
+                for (Entry<K, V> entry : list) {
+                    action.accept(entry.value);
+                }
+            }
+            if (modCount != expectedModCount) throw new ConcurrentModificationException();
+        }
+
+        @Override
+        public long estimateSize() {
+            return estimate;
+        }
+
+        @Override
+        public int characteristics() {
+            return 0;
+        }
+    }
+
+    private void finishMigration() {
+        while (oldTable != null) {
+            migrateStep();
+        }
+    }
+
+    private void resize() {
+        if (incrementalResize) {
+            startIncrementalResize();
+            return;
+        }
+        // Полный перенос сразу; записи переносятся, а не создаются заново,
+        // поэтому связи порядка добавления остаются в силе
+        oldTable = table;
+        migrateIndex = 0;
+        table = newTable(oldTable.length * 2);
+        while (oldTable != null) {
+            migrateStep();
+        }
+    }
+
+    private void linkLast(Entry<K, V> entry) {
+        entry.before = tail;
+        if (tail == null) {
+            head = entry;
+        } else {
+            tail.after = entry;
+        }
+        tail = entry;
+    }
+
+    private void unlink(Entry<K, V> entry) {
+        if (!insertionOrder) return;
+        if (entry.before == null) {
+            head = entry.after;
+        } else {
+            entry.before.after = entry.after;
+        }
+        if (entry.after == null) {
+            tail = entry.before;
+        } else {
+            entry.after.before = entry.before;
+        }
+        entry.before = null;
+        entry.after = null;
+    }
+
+    @Override
+    public void ensureCapacity(int expectedSize) {
+        int capacity = tableSizeFor((int) Math.min(1 << 30, (long) Math.ceil(expectedSize / loadFactor) + 1));
+        if (capacity <= table.length) return;
+        while (oldTable != null) {
+            migrateStep();
+        }
+        // Переносим все корзины сразу тем же кодом, что и при инкрементальном расширении
+        modCount++;
+        oldTable = table;
+        migrateIndex = 0;
+        table = newTable(capacity);
+        while (oldTable != null) {
+            migrateStep();
+        }
+    }
+
+    private void startIncrementalResize() {
+        // Предыдущий перенос обычно уже завершён; если нет — доводим его до конца
+        while (oldTable != null) {
+            migrateStep();
+        }
+        oldTable = table;
+        migrateIndex = 0;
+        table = newTable(oldTable.length * 2);
+    }
+
+    // Перед операцией с ключом переносим его корзину (чтобы дальше работать
+    // только с новой таблицей) и ещё несколько корзин по порядку
+    private void migrateFor(K key) {
+        migrateBucket(indexFor(key, oldTable.length));
+        migrateStep();
+    }
+
+    private void migrateStep() {
+        int end = Math.min(migrateIndex + MIGRATE_STEP, oldTable.length);
+        for (int i = migrateIndex; i < end; i++) {
+            migrateBucket(i);
+        }
+        migrateIndex = end;
+        if (migrateIndex == oldTable.length) {
+            oldTable = null;
+        }
+    }
+
+    private void migrateBucket(int oldIdx) {
+        migratedBuckets++;
+        List<Entry<K, V>> bucket = oldTable[oldIdx];
+        if (bucket == null) return;
+        oldTable[oldIdx] = null;
+        // Ключи в старой таблице уникальны, поэтому записи переносятся
+        // без поиска дубликатов и без создания новых Entry
+        for (Entry<K, V> entry : bucket) {
+            int idx = hash(entry.key);
+            if (table[idx] == null) table[idx] = new LinkedList<>();
+            table[idx].add(entry);
+        }
     }
 
     public int size() {
         return size;
     }
 
+    long migratedBuckets() {
+        return migratedBuckets;
+    }
+
     public void clear() {
         for (int i = 0; i < table.length; i++) {
             if (table[i] != null) {
@@ -121,7 +519,12 @@ public class MyHashTable<K, V> {
                 table[i] = null;
             }
         }
+        oldTable = null;
+        migrateIndex = 0;
+        head = null;
+        tail = null;
         size = 0;
+        modCount++;
     }
     
     
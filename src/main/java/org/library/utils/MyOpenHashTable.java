@@ -0,0 +1,230 @@
+package org.library.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.BiConsumer;
+
+// Хеш-таблица с открытой адресацией: ключи и значения лежат в двух параллельных
+// массивах, коллизии разрешаются линейным пробированием. На одну запись не
+// создаётся ни одного объекта, поиск идёт по соседним ячейкам массива.
+public class MyOpenHashTable<K, V> implements MyTable<K, V> {
+    // Маркер для ключа null, чтобы пустая ячейка (null) оставалась однозначной
+    private static final Object NULL_KEY = new Object();
+    // Маркер удалённой записи: цепочка пробирования через него не обрывается
+    private static final Object TOMBSTONE = new Object();
+
+    private static final int INIT_CAPACITY = 16;
+    // Линейное пробирование быстро деградирует при высокой загрузке,
+    // поэтому держим таблицу заполненной не более чем наполовину
+    private static final double LOAD_FACTOR = 0.5;
+
+    private Object[] keys;
+    private Object[] vals;
+    private int size;
+    // Занятые ячейки: живые записи плюс надгробия
+    private int used;
+    private int threshold;
+    private final double loadFactor;
+
+    public MyOpenHashTable() {
+        this(INIT_CAPACITY, LOAD_FACTOR);
+    }
+
+    public MyOpenHashTable(int initialCapacity, double loadFactor) {
+        if (initialCapacity < 0 || !(loadFactor > 0 && loadFactor < 1)) {
+            throw new IllegalArgumentException("Некорректные параметры таблицы: " + initialCapacity + ", " + loadFactor);
+        }
+        this.loadFactor = loadFactor;
+        int capacity = MyHashTable.tableSizeFor(Math.max(2, initialCapacity));
+        keys = new Object[capacity];
+        vals = new Object[capacity];
+        threshold = (int) (capacity * loadFactor);
+    }
+
+    private static Object maskNull(Object key) {
+        return key == null ? NULL_KEY : key;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <K> K unmaskNull(Object key) {
+        return key == NULL_KEY ? null : (K) key;
+    }
+
+    private static int hash(Object key) {
+        int h = key.hashCode() * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V put(K key, V value) {
+        if (used >= threshold) rehash();
+        Object k = maskNull(key);
+        int mask = keys.length - 1;
+        int idx = hash(k) & mask;
+        int firstTombstone = -1;
+        while (true) {
+            Object cur = keys[idx];
+            if (cur == null) {
+                if (firstTombstone >= 0) {
+                    idx = firstTombstone;
+                } else {
+                    used++;
+                }
+                keys[idx] = k;
+                vals[idx] = value;
+                size++;
+                return null;
+            }
+            if (cur == TOMBSTONE) {
+                if (firstTombstone < 0) firstTombstone = idx;
+            } else if (cur == k || k.equals(cur)) {
+                V old = (V) vals[idx];
+                vals[idx] = value;
+                return old;
+            }
+            idx = (idx + 1) & mask;
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V get(K key) {
+        int idx = indexOf(maskNull(key));
+        return idx < 0 ? null : (V) vals[idx];
+    }
+
+    @Override
+    public boolean remove(K key) {
+        int idx = indexOf(maskNull(key));
+        if (idx < 0) return false;
+        int mask = keys.length - 1;
+        vals[idx] = null;
+        size--;
+        if (keys[(idx + 1) & mask] == null) {
+            // Запись стояла в конце цепочки: надгробие не нужно, а стоящие
+            // перед ней надгробия тоже можно вернуть в пустые ячейки
+            keys[idx] = null;
+            used--;
+            int prev = (idx - 1) & mask;
+            while (keys[prev] == TOMBSTONE) {
+                keys[prev] = null;
+                used--;
+                prev = (prev - 1) & mask;
+            }
+        } else {
+            keys[idx] = TOMBSTONE;
+        }
+        return true;
+    }
+
+    private int indexOf(Object k) {
+        int mask = keys.length - 1;
+        int idx = hash(k) & mask;
+        while (true) {
+            Object cur = keys[idx];
+            if (cur == null) return -1;
+            if (cur == k || (cur != TOMBSTONE && k.equals(cur))) return idx;
+            idx = (idx + 1) & mask;
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<V> values() {
+        List<V> result = new ArrayList<>(size);
+        for (int i = 0; i < keys.length; i++) {
+            Object k = keys[i];
+            if (k != null && k != TOMBSTONE) {
+                result.add((V) vals[i]);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public Iterator<V> valueIterator() {
+        return new Iterator<V>() {
+            private int index = advance(0);
+
+            private int advance(int from) {
+                while (from < keys.length && (keys[from] == null || keys[from] == TOMBSTONE)) from++;
+                return from;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return index < keys.length;
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public V next() {
+                if (index >= keys.length) throw new NoSuchElementException();
+                V value = (V) vals[index];
+                index = advance(index + 1);
+                return value;
+            }
+        };
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        Object[] ks = keys;
+        Object[] vs = vals;
+        for (int i = 0; i < ks.length; i++) {
+            Object k = ks[i];
+            if (k != null && k != TOMBSTONE) {
+                action.accept(unmaskNull(k), (V) vs[i]);
+            }
+        }
+    }
+
+    @Override
+    public void ensureCapacity(int expectedSize) {
+        int capacity = MyHashTable.tableSizeFor((int) Math.min(1 << 30, (long) Math.ceil(expectedSize / loadFactor) + 1));
+        if (capacity > keys.length) rehash(capacity);
+    }
+
+    private void rehash() {
+        // Если таблицу заполнили в основном надгробия, достаточно
+        // перестроить её в том же размере
+        rehash(size >= threshold / 2 ? keys.length * 2 : keys.length);
+    }
+
+    private void rehash(int capacity) {
+        Object[] oldKeys = keys;
+        Object[] oldVals = vals;
+        keys = new Object[capacity];
+        vals = new Object[capacity];
+        threshold = (int) (capacity * loadFactor);
+        int mask = capacity - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            Object k = oldKeys[i];
+            if (k != null && k != TOMBSTONE) {
+                int idx = hash(k) & mask;
+                while (keys[idx] != null) idx = (idx + 1) & mask;
+                keys[idx] = k;
+                vals[idx] = oldVals[i];
+            }
+        }
+        used = size;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(keys, null);
+        Arrays.fill(vals, null);
+        size = 0;
+        used = 0;
+    }
+}
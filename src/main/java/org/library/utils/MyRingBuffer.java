@@ -0,0 +1,108 @@
+package org.library.utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Consumer;
+
+// Ограниченная очередь без блокировок для нескольких писателей и читателей
+// (кольцо с номерами ячеек, схема Вьюкова). У каждой ячейки есть номер
+// последовательности: писатель занимает позицию tail, если номер ячейки
+// равен позиции, и после записи элемента сдвигает номер на 1; читатель
+// забирает позицию head, если номер равен позиции + 1, и освобождает ячейку
+// на следующий круг. Позиции захватываются compareAndSet, поэтому потоки
+// не ждут друг друга, а переполнение видно сразу: offer возвращает false.
+//
+// Элемент пишется в обычный массив до записи номера ячейки (volatile),
+// а читается после её чтения, так что читатель всегда видит элемент целиком
+public class MyRingBuffer<E> {
+    private final Object[] elements;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+
+    public MyRingBuffer(int capacity) {
+        if (capacity <= 0 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("Недопустимая ёмкость очереди: " + capacity);
+        }
+        int size = MyHashTable.tableSizeFor(capacity);
+        elements = new Object[size];
+        sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+        mask = size - 1;
+    }
+
+    // false, если очередь заполнена
+    public boolean offer(E element) {
+        if (element == null) throw new NullPointerException();
+        long pos = tail.get();
+        while (true) {
+            int index = (int) pos & mask;
+            long diff = sequences.get(index) - pos;
+            if (diff == 0) {
+                if (tail.compareAndSet(pos, pos + 1)) {
+                    elements[index] = element;
+                    sequences.set(index, pos + 1);
+                    return true;
+                }
+                pos = tail.get();
+            } else if (diff < 0) {
+                // Ячейка ещё не освобождена читателем с прошлого круга
+                return false;
+            } else {
+                pos = tail.get();
+            }
+        }
+    }
+
+    // null, если очередь пуста
+    @SuppressWarnings("unchecked")
+    public E poll() {
+        long pos = head.get();
+        while (true) {
+            int index = (int) pos & mask;
+            long diff = sequences.get(index) - (pos + 1);
+            if (diff == 0) {
+                if (head.compareAndSet(pos, pos + 1)) {
+                    E element = (E) elements[index];
+                    elements[index] = null;
+                    sequences.set(index, pos + elements.length);
+                    return element;
+                }
+                pos = head.get();
+            } else if (diff < 0) {
+                return null;
+            } else {
+                pos = head.get();
+            }
+        }
+    }
+
+    // Забирает до max элементов подряд и возвращает их число
+    public int drain(Consumer<? super E> consumer, int max) {
+        int count = 0;
+        E element;
+        while (count < max && (element = poll()) != null) {
+            consumer.accept(element);
+            count++;
+        }
+        return count;
+    }
+
+    // Приблизительное число элементов: при параллельных изменениях —
+    // значение на один из моментов вызова
+    public int size() {
+        long size = tail.get() - head.get();
+        return (int) Math.max(0, Math.min(size, elements.length));
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public int capacity() {
+        return elements.length;
+    }
+}
@@ -0,0 +1,168 @@
+package org.library.utils;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.BiPredicate;
+
+// Упорядоченное отображение на сбалансированном AVL-дереве с копированием пути:
+// вставка не меняет существующие узлы, а строит новый путь от корня и
+// публикует новый корень. Читатели работают со снимком дерева без блокировок.
+// Запись тоже без блокировок: новый корень ставится одним compareAndSet, а если
+// корень успел смениться, путь строится заново от нового корня. Размер хранится
+// в узлах, поэтому всегда соответствует опубликованному дереву.
+public class MySortedMap<K, V> {
+    private static final VarHandle ROOT;
+
+    static {
+        try {
+            ROOT = MethodHandles.lookup().findVarHandle(MySortedMap.class, "root", Node.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private static final class Node<K, V> {
+        final K key;
+        final V value;
+        final Node<K, V> left;
+        final Node<K, V> right;
+        final int height;
+        final int size;
+
+        Node(K key, V value, Node<K, V> left, Node<K, V> right) {
+            this.key = key;
+            this.value = value;
+            this.left = left;
+            this.right = right;
+            this.height = Math.max(height(left), height(right)) + 1;
+            this.size = size(left) + size(right) + 1;
+        }
+    }
+
+    // Высота AVL-дерева не превышает 1.44 * log2(n), для int-размера хватит с запасом
+    private static final int MAX_DEPTH = 64;
+
+    private final Comparator<? super K> comparator;
+    private volatile Node<K, V> root;
+
+    public MySortedMap(Comparator<? super K> comparator) {
+        this.comparator = comparator;
+    }
+
+    private static int height(Node<?, ?> node) {
+        return node == null ? 0 : node.height;
+    }
+
+    private static int size(Node<?, ?> node) {
+        return node == null ? 0 : node.size;
+    }
+
+    private Node<K, V> find(Node<K, V> node, K key) {
+        while (node != null) {
+            int cmp = comparator.compare(key, node.key);
+            if (cmp == 0) return node;
+            node = cmp < 0 ? node.left : node.right;
+        }
+        return null;
+    }
+
+    public V get(K key) {
+        Node<K, V> node = find(root, key);
+        return node == null ? null : node.value;
+    }
+
+    // Возвращает предыдущее значение по ключу или null
+    public V put(K key, V value) {
+        while (true) {
+            Node<K, V> current = root;
+            Node<K, V> existing = find(current, key);
+            Node<K, V> updated = insert(current, key, value);
+            if (ROOT.compareAndSet(this, current, updated)) {
+                return existing == null ? null : existing.value;
+            }
+        }
+    }
+
+    // Не меняет существующих узлов, поэтому неудачную попытку можно просто бросить
+    private Node<K, V> insert(Node<K, V> node, K key, V value) {
+        if (node == null) {
+            return new Node<>(key, value, null, null);
+        }
+        int cmp = comparator.compare(key, node.key);
+        if (cmp == 0) {
+            return new Node<>(node.key, value, node.left, node.right);
+        }
+        if (cmp < 0) {
+            return balance(node.key, node.value, insert(node.left, key, value), node.right);
+        }
+        return balance(node.key, node.value, node.left, insert(node.right, key, value));
+    }
+
+    private Node<K, V> balance(K key, V value, Node<K, V> left, Node<K, V> right) {
+        int hl = height(left);
+        int hr = height(right);
+        if (hl > hr + 1) {
+            if (height(left.left) >= height(left.right)) {
+                return new Node<>(left.key, left.value, left.left, new Node<>(key, value, left.right, right));
+            }
+            Node<K, V> lr = left.right;
+            return new Node<>(lr.key, lr.value,
+                    new Node<>(left.key, left.value, left.left, lr.left),
+                    new Node<>(key, value, lr.right, right));
+        }
+        if (hr > hl + 1) {
+            if (height(right.right) >= height(right.left)) {
+                return new Node<>(right.key, right.value, new Node<>(key, value, left, right.left), right.right);
+            }
+            Node<K, V> rl = right.left;
+            return new Node<>(rl.key, rl.value,
+                    new Node<>(key, value, left, rl.left),
+                    new Node<>(right.key, right.value, rl.right, right.right));
+        }
+        return new Node<>(key, value, left, right);
+    }
+
+    // Обходит записи по возрастанию ключа, начиная с первого ключа >= from
+    // (from == null — с самого начала), пока action возвращает true
+    @SuppressWarnings("unchecked")
+    public void forEachFrom(K from, BiPredicate<? super K, ? super V> action) {
+        Node<K, V>[] stack = (Node<K, V>[]) new Node<?, ?>[MAX_DEPTH];
+        int depth = 0;
+        Node<K, V> node = root;
+        while (node != null) {
+            if (from == null || comparator.compare(from, node.key) <= 0) {
+                stack[depth++] = node;
+                node = node.left;
+            } else {
+                node = node.right;
+            }
+        }
+        while (depth > 0) {
+            Node<K, V> current = stack[--depth];
+            if (!action.test(current.key, current.value)) return;
+            node = current.right;
+            while (node != null) {
+                stack[depth++] = node;
+                node = node.left;
+            }
+        }
+    }
+
+    // Значения в порядке возрастания ключей
+    public List<V> values() {
+        List<V> result = new ArrayList<>(size());
+        forEachFrom(null, (key, value) -> result.add(value));
+        return result;
+    }
+
+    public int size() {
+        return size(root);
+    }
+
+    public void clear() {
+        root = null;
+    }
+}
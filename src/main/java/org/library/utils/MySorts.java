@@ -1,52 +1,468 @@
 package org.library.utils;
 
-import org.library.model.Book;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
+import java.util.ListIterator;
 import java.util.Comparator;
-import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntBinaryOperator;
+import java.util.function.ToIntFunction;
 
 public class MySorts {
+    // Диапазоны не длиннее этого сортируются и сливаются в одном потоке:
+    // дробить их дальше дороже, чем выигрыш от параллельности
+    private static final int PARALLEL_CUTOFF = 8192;
+
+    // Отрезки не длиннее этого сортируются вставками: на коротких отрезках
+    // это быстрее слияния и не требует вспомогательной памяти
+    private static final int INSERTION_CUTOFF = 32;
+    // Диапазон ключей, до которого countingSort считает вхождения каждого
+    // значения; для более широкого диапазона используется поразрядная сортировка
+    private static final int COUNTING_MAX_RANGE = 1 << 16;
+
+    // Списочные варианты копируют элементы в массив, сортируют его
+    // и записывают результат обратно одним проходом итератора, поэтому
+    // LinkedList сортируется так же быстро, как ArrayList
 
     public static <T> void bubbleSort(List<T> list, Comparator<? super T> comparator) {
-        int n = list.size();
-        for (int i = 0; i < n - 1; i++) {
-            for (int j = 0; j < n - i - 1; j++) {
-                if (comparator.compare(list.get(j), list.get(j + 1)) > 0) {
-                    T temp = list.get(j);
-                    list.set(j, list.get(j + 1));
-                    list.set(j + 1, temp);
+        T[] a = toArray(list);
+        bubbleSort(a, 0, a.length, comparator);
+        writeBack(list, a);
+    }
+
+    public static <T> void mergeSort(List<T> list, Comparator<? super T> comparator) {
+        if (list.size() <= 1) return;
+        T[] a = toArray(list);
+        mergeSort(a, 0, a.length, comparator);
+        writeBack(list, a);
+    }
+
+    public static <T> void insertionSort(List<T> list, Comparator<? super T> comparator) {
+        T[] a = toArray(list);
+        insertionSort(a, 0, a.length, comparator);
+        writeBack(list, a);
+    }
+
+    public static <T> void bubbleSort(T[] a, int fromIndex, int toIndex, Comparator<? super T> comparator) {
+        checkRange(a, fromIndex, toIndex);
+        for (int end = toIndex - 1; end > fromIndex; end--) {
+            boolean swapped = false;
+            for (int j = fromIndex; j < end; j++) {
+                if (comparator.compare(a[j], a[j + 1]) > 0) {
+                    T temp = a[j];
+                    a[j] = a[j + 1];
+                    a[j + 1] = temp;
+                    swapped = true;
                 }
             }
+            if (!swapped) return;
         }
     }
 
-    public static <T> void mergeSort(List<T> list, Comparator<? super T> comparator) {
+    public static <T> void insertionSort(T[] a, int fromIndex, int toIndex, Comparator<? super T> comparator) {
+        checkRange(a, fromIndex, toIndex);
+        for (int i = fromIndex + 1; i < toIndex; i++) {
+            T current = a[i];
+            int j = i - 1;
+            while (j >= fromIndex && comparator.compare(a[j], current) > 0) {
+                a[j + 1] = a[j];
+                j--;
+            }
+            a[j + 1] = current;
+        }
+    }
+
+    public static <T> void mergeSort(T[] a, Comparator<? super T> comparator) {
+        mergeSort(a, 0, a.length, comparator);
+    }
+
+    // Устойчивая сортировка слиянием a[fromIndex, toIndex) с одним
+    // вспомогательным буфером на всю сортировку
+    @SuppressWarnings("unchecked")
+    public static <T> void mergeSort(T[] a, int fromIndex, int toIndex, Comparator<? super T> comparator) {
+        checkRange(a, fromIndex, toIndex);
+        if (toIndex - fromIndex <= INSERTION_CUTOFF) {
+            insertionSort(a, fromIndex, toIndex, comparator);
+            return;
+        }
+        T[] buf = (T[]) new Object[toIndex - fromIndex];
+        sortRange(a, fromIndex, toIndex, buf, 0, comparator);
+    }
+
+    // Восходящая сортировка слиянием: короткие отрезки сортируются вставками,
+    // затем каждый проход сливает соседние серии, попеременно перекладывая
+    // данные из a в buf и обратно. Элемент a[i] соответствует buf[i - from + bufBase]
+    private static <T> void sortRange(T[] a, int from, int to, T[] buf, int bufBase, Comparator<? super T> comparator) {
+        int n = to - from;
+        for (int lo = from; lo < to; lo += INSERTION_CUTOFF) {
+            insertionSort(a, lo, Math.min(lo + INSERTION_CUTOFF, to), comparator);
+        }
+        T[] src = a;
+        T[] dst = buf;
+        int srcBase = from;
+        int dstBase = bufBase;
+        for (int width = INSERTION_CUTOFF; width < n; width *= 2) {
+            for (int lo = 0; lo < n; lo += 2 * width) {
+                int mid = Math.min(lo + width, n);
+                int hi = Math.min(lo + 2 * width, n);
+                // Уже упорядоченные соседние серии просто копируются
+                if (mid < hi && comparator.compare(src[srcBase + mid - 1], src[srcBase + mid]) > 0) {
+                    mergeRuns(src, dst, srcBase + lo, srcBase + mid, srcBase + mid, srcBase + hi, dstBase + lo, comparator);
+                } else {
+                    System.arraycopy(src, srcBase + lo, dst, dstBase + lo, hi - lo);
+                }
+            }
+            T[] tmp = src;
+            src = dst;
+            dst = tmp;
+            int tmpBase = srcBase;
+            srcBase = dstBase;
+            dstBase = tmpBase;
+        }
+        if (src != a) {
+            System.arraycopy(src, srcBase, a, from, n);
+        }
+    }
+
+    // Устойчивая сортировка номеров без упаковки в Integer: comparator
+    // сравнивает два номера (например, по данным вне кучи) и возвращает
+    // отрицательное число, ноль или положительное, как Comparator
+    public static void mergeSort(int[] a, IntBinaryOperator comparator) {
+        int n = a.length;
+        for (int lo = 0; lo < n; lo += INSERTION_CUTOFF) {
+            int hi = Math.min(lo + INSERTION_CUTOFF, n);
+            for (int i = lo + 1; i < hi; i++) {
+                int current = a[i];
+                int j = i - 1;
+                while (j >= lo && comparator.applyAsInt(a[j], current) > 0) {
+                    a[j + 1] = a[j];
+                    j--;
+                }
+                a[j + 1] = current;
+            }
+        }
+        if (n <= INSERTION_CUTOFF) return;
+        int[] src = a;
+        int[] dst = new int[n];
+        for (int width = INSERTION_CUTOFF; width < n; width *= 2) {
+            for (int lo = 0; lo < n; lo += 2 * width) {
+                int mid = Math.min(lo + width, n);
+                int hi = Math.min(lo + 2 * width, n);
+                int i = lo;
+                int j = mid;
+                int k = lo;
+                if (mid < hi && comparator.applyAsInt(src[mid - 1], src[mid]) > 0) {
+                    while (i < mid && j < hi) {
+                        dst[k++] = comparator.applyAsInt(src[j], src[i]) < 0 ? src[j++] : src[i++];
+                    }
+                }
+                System.arraycopy(src, i, dst, k, mid - i);
+                System.arraycopy(src, j, dst, k + mid - i, hi - j);
+            }
+            int[] tmp = src;
+            src = dst;
+            dst = tmp;
+        }
+        if (src != a) {
+            System.arraycopy(src, 0, a, 0, n);
+        }
+    }
+
+    // Первые k элементов в порядке comparator — ровно те, что дала бы
+    // устойчивая сортировка всей последовательности, — за O(n log k) времени
+    // и O(k) памяти. Ограниченная двоичная куча держит k лучших элементов,
+    // в вершине — худший из них; при равенстве хуже тот, что пришёл позже
+    @SuppressWarnings("unchecked")
+    public static <T> List<T> topK(Iterator<? extends T> items, int k, Comparator<? super T> comparator) {
+        if (k < 0) {
+            throw new IllegalArgumentException("k не может быть отрицательным: " + k);
+        }
+        Object[] heap = new Object[Math.min(k, 1024)];
+        long[] order = new long[heap.length];
+        int size = 0;
+        long seen = 0;
+        while (items.hasNext() && k > 0) {
+            T item = items.next();
+            long n = seen++;
+            if (size < k) {
+                if (size == heap.length) {
+                    int capacity = (int) Math.min(k, heap.length * 2L);
+                    heap = Arrays.copyOf(heap, capacity);
+                    order = Arrays.copyOf(order, capacity);
+                }
+                // Подъём от нового листа
+                int i = size++;
+                while (i > 0) {
+                    int parent = (i - 1) >>> 1;
+                    if (!worse(item, n, (T) heap[parent], order[parent], comparator)) break;
+                    heap[i] = heap[parent];
+                    order[i] = order[parent];
+                    i = parent;
+                }
+                heap[i] = item;
+                order[i] = n;
+            } else if (worse((T) heap[0], order[0], item, n, comparator)) {
+                siftDownWorst(heap, order, size, item, n, comparator);
+            }
+        }
+        // Извлекаем худший элемент и ставим его в конец результата
+        Object[] result = new Object[size];
+        for (int end = size - 1; end >= 0; end--) {
+            result[end] = heap[0];
+            if (end > 0) siftDownWorst(heap, order, end, (T) heap[end], order[end], comparator);
+        }
+        List<T> list = new ArrayList<>(size);
+        for (Object item : result) {
+            list.add((T) item);
+        }
+        return list;
+    }
+
+    // Элемент a (пришедший под номером na) идёт после b в итоговом порядке
+    private static <T> boolean worse(T a, long na, T b, long nb, Comparator<? super T> comparator) {
+        int c = comparator.compare(a, b);
+        return c > 0 || (c == 0 && na > nb);
+    }
+
+    // Ставит item в вершину кучи из size элементов и опускает его на место
+    @SuppressWarnings("unchecked")
+    private static <T> void siftDownWorst(Object[] heap, long[] order, int size, T item, long n, Comparator<? super T> comparator) {
+        int i = 0;
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= size) break;
+            if (child + 1 < size && worse((T) heap[child + 1], order[child + 1], (T) heap[child], order[child], comparator)) child++;
+            if (!worse((T) heap[child], order[child], item, n, comparator)) break;
+            heap[i] = heap[child];
+            order[i] = order[child];
+            i = child;
+        }
+        heap[i] = item;
+        order[i] = n;
+    }
+
+    // Устойчивая сортировка по целочисленному ключу без вызовов компаратора.
+    // Узкий диапазон ключей (например, годы издания) сортируется подсчётом за
+    // O(n + диапазон); для широкого диапазона — поразрядная сортировка по байтам
+    public static <T> void countingSort(List<T> list, ToIntFunction<? super T> keyExtractor) {
         if (list.size() <= 1) return;
+        T[] a = toArray(list);
+        countingSort(a, 0, a.length, keyExtractor);
+        writeBack(list, a);
+    }
 
-        int mid = list.size() / 2;
-        List<T> left = new ArrayList<>(list.subList(0, mid));
-        List<T> right = new ArrayList<>(list.subList(mid, list.size()));
+    @SuppressWarnings("unchecked")
+    public static <T> void countingSort(T[] a, int fromIndex, int toIndex, ToIntFunction<? super T> keyExtractor) {
+        checkRange(a, fromIndex, toIndex);
+        int n = toIndex - fromIndex;
+        if (n <= 1) return;
+        int[] keys = new int[n];
+        int min = Integer.MAX_VALUE;
+        int max = Integer.MIN_VALUE;
+        for (int i = 0; i < n; i++) {
+            int key = keyExtractor.applyAsInt(a[fromIndex + i]);
+            keys[i] = key;
+            if (key < min) min = key;
+            if (key > max) max = key;
+        }
+        T[] out = (T[]) new Object[n];
+        long range = (long) max - min + 1;
+        if (range <= Math.max(n, COUNTING_MAX_RANGE)) {
+            int[] counts = new int[(int) range + 1];
+            for (int key : keys) counts[key - min + 1]++;
+            for (int i = 1; i < counts.length; i++) counts[i] += counts[i - 1];
+            for (int i = 0; i < n; i++) {
+                out[counts[keys[i] - min]++] = a[fromIndex + i];
+            }
+        } else {
+            radixSort(a, fromIndex, keys, out);
+        }
+        System.arraycopy(out, 0, a, fromIndex, n);
+    }
 
-        mergeSort(left, comparator);
-        mergeSort(right, comparator);
+    // Поразрядная LSD-сортировка по четырём байтам ключа; результат в out.
+    // Знаковый бит инвертируется, чтобы отрицательные ключи шли первыми
+    @SuppressWarnings("unchecked")
+    private static <T> void radixSort(T[] a, int fromIndex, int[] keys, T[] out) {
+        int n = keys.length;
+        T[] src = (T[]) new Object[n];
+        System.arraycopy(a, fromIndex, src, 0, n);
+        int[] srcKeys = keys;
+        T[] dst = out;
+        int[] dstKeys = new int[n];
+        int[] counts = new int[257];
+        for (int shift = 0; shift < 32; shift += 8) {
+            Arrays.fill(counts, 0);
+            for (int key : srcKeys) counts[(((key ^ Integer.MIN_VALUE) >>> shift) & 0xFF) + 1]++;
+            for (int i = 1; i < counts.length; i++) counts[i] += counts[i - 1];
+            for (int i = 0; i < n; i++) {
+                int pos = counts[((srcKeys[i] ^ Integer.MIN_VALUE) >>> shift) & 0xFF]++;
+                dst[pos] = src[i];
+                dstKeys[pos] = srcKeys[i];
+            }
+            T[] tmp = src;
+            src = dst;
+            dst = tmp;
+            int[] tmpKeys = srcKeys;
+            srcKeys = dstKeys;
+            dstKeys = tmpKeys;
+        }
+        // После чётного числа проходов результат лежит во временной копии
+        if (src != out) System.arraycopy(src, 0, out, 0, n);
+    }
 
-        merge(list, left, right, comparator);
+    private static void checkRange(Object[] a, int fromIndex, int toIndex) {
+        if (fromIndex < 0 || toIndex > a.length || fromIndex > toIndex) {
+            throw new IllegalArgumentException("Некорректный диапазон [" + fromIndex + ", " + toIndex + ") для массива длины " + a.length);
+        }
     }
 
-    private static <T> void merge(List<T> list, List<T> left, List<T> right, Comparator<? super T> comparator) {
-        int i = 0, j = 0, k = 0;
-        while (i < left.size() && j < right.size()) {
-            if (comparator.compare(left.get(i), right.get(j)) <= 0) {
-                list.set(k++, left.get(i++));
-            } else {
-                list.set(k++, right.get(j++));
+    @SuppressWarnings("unchecked")
+    private static <T> T[] toArray(List<T> list) {
+        return (T[]) list.toArray();
+    }
+
+    private static <T> void writeBack(List<T> list, T[] a) {
+        ListIterator<T> it = list.listIterator();
+        for (T element : a) {
+            it.next();
+            it.set(element);
+        }
+    }
+
+    // Параллельная сортировка слиянием на общем ForkJoinPool
+    public static <T> void parallelMergeSort(List<T> list, Comparator<? super T> comparator) {
+        parallelMergeSort(list, comparator, ForkJoinPool.commonPool());
+    }
+
+    // Пулы с заданным числом потоков создаются один раз на процесс: запуск
+    // потоков на каждый вызов дороже сортировки небольшого списка. Потоки
+    // ForkJoinPool — демоны и сами завершаются после простоя
+    private static final MyConcurrentHashTable<Integer, ForkJoinPool> POOLS = new MyConcurrentHashTable<>();
+
+    // То же на пуле из parallelism потоков
+    public static <T> void parallelMergeSort(List<T> list, Comparator<? super T> comparator, int parallelism) {
+        parallelMergeSort(list, comparator, poolFor(parallelism));
+    }
+
+    private static ForkJoinPool poolFor(int parallelism) {
+        if (parallelism == ForkJoinPool.getCommonPoolParallelism()) return ForkJoinPool.commonPool();
+        ForkJoinPool pool = POOLS.get(parallelism);
+        if (pool != null) return pool;
+        ForkJoinPool created = new ForkJoinPool(parallelism);
+        pool = POOLS.putIfAbsent(parallelism, created);
+        if (pool == null) return created;
+        // Другой поток успел первым
+        created.shutdown();
+        return pool;
+    }
+
+    // Сортирует копию элементов в массиве и записывает результат обратно.
+    // Вспомогательный массив один на всю сортировку: уровни рекурсии
+    // поочерёдно сливают данные из одного массива в другой
+    @SuppressWarnings("unchecked")
+    public static <T> void parallelMergeSort(List<T> list, Comparator<? super T> comparator, ForkJoinPool pool) {
+        if (list.size() <= 1) return;
+        T[] a = toArray(list);
+        T[] scratch = (T[]) new Object[a.length];
+        pool.invoke(new SortTask<>(a, scratch, 0, a.length, false, comparator));
+        writeBack(list, a);
+    }
+
+    // Сортирует a[from, to); результат оказывается в b, если intoScratch, иначе в a
+    private static final class SortTask<T> extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final T[] a;
+        private final T[] b;
+        private final int from;
+        private final int to;
+        private final boolean intoScratch;
+        private final Comparator<? super T> comparator;
+
+        SortTask(T[] a, T[] b, int from, int to, boolean intoScratch, Comparator<? super T> comparator) {
+            this.a = a;
+            this.b = b;
+            this.from = from;
+            this.to = to;
+            this.intoScratch = intoScratch;
+            this.comparator = comparator;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= PARALLEL_CUTOFF) {
+                sortRange(a, from, to, b, from, comparator);
+                if (intoScratch) System.arraycopy(a, from, b, from, to - from);
+                return;
             }
+            // Половины сортируются в противоположный массив и сливаются в целевой
+            int mid = (from + to) >>> 1;
+            invokeAll(new SortTask<>(a, b, from, mid, !intoScratch, comparator),
+                      new SortTask<>(a, b, mid, to, !intoScratch, comparator));
+            T[] src = intoScratch ? a : b;
+            T[] dst = intoScratch ? b : a;
+            new MergeTask<>(src, dst, from, mid, mid, to, from, comparator).compute();
         }
-        while (i < left.size()) {
-            list.set(k++, left.get(i++));
+    }
+
+    // Сливает src[lo1, hi1) и src[lo2, hi2) в dst начиная с out. Большие
+    // слияния делятся пополам: средний элемент левой части и его нижняя
+    // граница в правой дают две независимые половины; равные элементы левой
+    // части остаются впереди, поэтому сортировка устойчива
+    private static final class MergeTask<T> extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final T[] src;
+        private final T[] dst;
+        private final int lo1, hi1, lo2, hi2, out;
+        private final Comparator<? super T> comparator;
+
+        MergeTask(T[] src, T[] dst, int lo1, int hi1, int lo2, int hi2, int out, Comparator<? super T> comparator) {
+            this.src = src;
+            this.dst = dst;
+            this.lo1 = lo1;
+            this.hi1 = hi1;
+            this.lo2 = lo2;
+            this.hi2 = hi2;
+            this.out = out;
+            this.comparator = comparator;
         }
-        while (j < right.size()) {
-            list.set(k++, right.get(j++));
+
+        @Override
+        protected void compute() {
+            if ((hi1 - lo1) + (hi2 - lo2) <= PARALLEL_CUTOFF || hi1 - lo1 < 2) {
+                mergeRuns(src, dst, lo1, hi1, lo2, hi2, out, comparator);
+                return;
+            }
+            int mid1 = (lo1 + hi1) >>> 1;
+            T pivot = src[mid1];
+            int lo = lo2;
+            int hi = hi2;
+            while (lo < hi) {
+                int m = (lo + hi) >>> 1;
+                if (comparator.compare(src[m], pivot) < 0) lo = m + 1;
+                else hi = m;
+            }
+            int mid2 = lo;
+            int split = out + (mid1 - lo1) + (mid2 - lo2);
+            invokeAll(new MergeTask<>(src, dst, lo1, mid1, lo2, mid2, out, comparator),
+                      new MergeTask<>(src, dst, mid1, hi1, mid2, hi2, split, comparator));
+        }
+    }
+
+    private static <T> void mergeRuns(T[] src, T[] dst, int lo1, int hi1, int lo2, int hi2, int out, Comparator<? super T> comparator) {
+        while (lo1 < hi1 && lo2 < hi2) {
+            if (comparator.compare(src[lo1], src[lo2]) <= 0) {
+                dst[out++] = src[lo1++];
+            } else {
+                dst[out++] = src[lo2++];
+            }
         }
+        while (lo1 < hi1) dst[out++] = src[lo1++];
+        while (lo2 < hi2) dst[out++] = src[lo2++];
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,65 @@
+package org.library.utils;
+
+import java.util.Arrays;
+
+// Пул строк: каждой различной строке один раз выдаётся номер (с 1), по
+// номеру возвращается единственный экземпляр строки. Так повторяющиеся
+// строки (авторы, имена пользователей) хранятся в памяти однажды, а вместо
+// ссылки на строку можно держать int.
+//
+// Поиск номера идёт без блокировок через MyConcurrentHashTable, новая
+// строка добавляется под блокировкой пула. Пул только растёт
+public class MyStringPool {
+    private final MyConcurrentHashTable<String, Integer> ids = new MyConcurrentHashTable<>();
+    // strings[id]; элемент записывается до публикации номера в таблице
+    private volatile String[] strings = new String[16];
+    private int size;
+
+    // Номер строки; строка добавляется в пул, если её там ещё нет
+    public int idOf(String s) {
+        Integer id = ids.get(s);
+        if (id != null) return id;
+        synchronized (this) {
+            id = ids.get(s);
+            if (id != null) return id;
+            int next = size + 1;
+            String[] current = strings;
+            if (next == current.length) {
+                current = Arrays.copyOf(current, current.length * 2);
+                strings = current;
+            }
+            current[next] = s;
+            size = next;
+            ids.put(s, next);
+            return next;
+        }
+    }
+
+    // Номер строки или -1, если её в пуле нет; пул не пополняется
+    public int find(String s) {
+        Integer id = ids.get(s);
+        return id == null ? -1 : id;
+    }
+
+    // Строка по номеру; 0 означает null
+    public String get(int id) {
+        return id == 0 ? null : strings[id];
+    }
+
+    // Единственный экземпляр строки, равной s
+    public String intern(String s) {
+        return s == null ? null : get(idOf(s));
+    }
+
+    // Экземпляр из пула, равный s, или сама s, если такой строки в пуле нет.
+    // Пул при этом не пополняется
+    public String canonical(String s) {
+        if (s == null) return null;
+        int id = find(s);
+        return id < 0 ? s : strings[id];
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+}
@@ -0,0 +1,86 @@
+package org.library.utils;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.BiConsumer;
+
+// Общий контракт собственных хеш-таблиц: LibraryService работает через него
+// и может выбирать реализацию (движок) при создании таблиц.
+public interface MyTable<K, V> {
+
+    enum Engine {
+        // Цепочки (LinkedList на корзину) — исходная реализация MyHashTable
+        CHAINING,
+        // Цепочки с инкрементальным (амортизированным) расширением таблицы
+        CHAINING_INCREMENTAL,
+        // Цепочки со связным списком записей: values() в порядке добавления
+        CHAINING_ORDERED,
+        // Открытая адресация с линейным пробированием по параллельным массивам
+        OPEN_ADDRESSING,
+        // Потокобезопасная таблица с сегментными блокировками на запись
+        CONCURRENT
+    }
+
+    // Возвращает предыдущее значение по ключу или null
+    V put(K key, V value);
+
+    V get(K key);
+
+    // Вставляет значение, только если ключа ещё нет, и возвращает текущее
+    // значение (или null). В однопоточных таблицах это просто get + put,
+    // MyConcurrentHashTable выполняет проверку и вставку атомарно
+    default V putIfAbsent(K key, V value) {
+        V current = get(key);
+        if (current == null) {
+            put(key, value);
+        }
+        return current;
+    }
+
+    boolean remove(K key);
+
+    // Готовит таблицу к expectedSize элементам, чтобы массовая вставка
+    // обошлась без расширений по ходу. По умолчанию ничего не делает
+    default void ensureCapacity(int expectedSize) {
+    }
+
+    List<V> values();
+
+    // Обход значений без копирования в список. Однопоточные таблицы нельзя
+    // менять во время обхода; MyConcurrentHashTable допускает параллельные
+    // изменения и показывает их или нет (слабо согласованный обход)
+    default Iterator<V> valueIterator() {
+        return values().iterator();
+    }
+
+    // Обход пар ключ-значение без копирования и без объектов на элемент
+    void forEach(BiConsumer<? super K, ? super V> action);
+
+    // Для потоков (Stream). MyHashTable делит обход по диапазонам корзин,
+    // остальные таблицы — пачками поверх valueIterator
+    default Spliterator<V> spliterator() {
+        return Spliterators.spliterator(valueIterator(), size(), 0);
+    }
+
+    int size();
+
+    void clear();
+
+    static <K, V> MyTable<K, V> create(Engine engine) {
+        switch (engine) {
+            case CHAINING_INCREMENTAL:
+                return new MyHashTable<>(true);
+            case CHAINING_ORDERED:
+                return new MyHashTable<>(false, true);
+            case OPEN_ADDRESSING:
+                return new MyOpenHashTable<>();
+            case CONCURRENT:
+                return new MyConcurrentHashTable<>();
+            case CHAINING:
+            default:
+                return new MyHashTable<>();
+        }
+    }
+}
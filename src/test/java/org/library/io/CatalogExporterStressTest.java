@@ -0,0 +1,66 @@
+package org.library.io;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.io.TempDir;
+import org.library.model.Book;
+import org.library.service.LibraryService;
+import org.library.service.MappedCatalog;
+import java.io.BufferedReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import static org.junit.jupiter.api.Assertions.*;
+
+class CatalogExporterStressTest {
+
+    @Test
+    @Timeout(value = 180, unit = TimeUnit.SECONDS)
+    void testExportMappedCatalogWithSmallBudget(@TempDir Path dir) throws Exception {
+        int count = 1_000_000;
+        List<Book> books = new ArrayList<>(count);
+        Random random = new Random(7);
+        for (int i = 0; i < count; i++) {
+            books.add(new Book("Book " + random.nextInt(count) + " vol. " + (i % 13), "Author " + random.nextInt(5000), 1900 + random.nextInt(124)));
+        }
+        Path snapshot = dir.resolve("catalog.map");
+        MappedCatalog.write(snapshot, 0, Collections.emptyList(), books);
+        books = null;
+
+        // Каталог лежит в отображённом снимке, а прогон ограничен 16 МБ:
+        // в куче одновременно не бывает больше малой части каталога
+        LibraryService service = new LibraryService();
+        service.loadBase(MappedCatalog.open(snapshot));
+        CatalogExporter exporter = new CatalogExporter(service);
+        exporter.setMemoryBudget(16L << 20);
+        exporter.setTempDirectory(dir);
+        Path out = dir.resolve("export.tsv");
+        ExportStats stats = exporter.exportFile(out, CatalogExporter.SortKey.TITLE);
+
+        System.out.println("Export: " + stats);
+        assertEquals(count, stats.getBooks());
+        assertTrue(stats.getSpillFiles() > 1);
+        assertEquals(Files.size(out), stats.getBytesWritten());
+
+        try (BufferedReader reader = Files.newBufferedReader(out, StandardCharsets.UTF_8)) {
+            assertEquals("title\tauthor\tyear", reader.readLine());
+            String previous = "";
+            long lines = 0;
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                String title = line.substring(0, line.indexOf('\t'));
+                assertTrue(String.CASE_INSENSITIVE_ORDER.compare(previous, title) <= 0, previous + " > " + title);
+                previous = title;
+                lines++;
+            }
+            assertEquals(count, lines);
+        }
+        try (var files = Files.list(dir)) {
+            assertEquals(2, files.count());
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package org.library.io;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.library.model.Book;
+import org.library.service.LibraryService;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import static org.junit.jupiter.api.Assertions.*;
+
+class CatalogExporterTest {
+
+    private static LibraryService randomCatalog(int count) {
+        LibraryService service = new LibraryService();
+        Random random = new Random(42);
+        for (int i = 0; i < count; i++) {
+            service.addBook(new Book("Книга " + random.nextInt(count), "Автор " + random.nextInt(50), 1900 + random.nextInt(100)));
+        }
+        return service;
+    }
+
+    private static String export(CatalogExporter exporter, CatalogExporter.SortKey key, CatalogImporter.Format format) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        exporter.exportTo(out, key, format);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void testSortedOutputMatchesSortBooks() throws IOException {
+        LibraryService service = randomCatalog(2000);
+        CatalogExporter exporter = new CatalogExporter(service);
+        String[] sortTypes = {"1", "2", "3"};
+        CatalogExporter.SortKey[] keys = CatalogExporter.SortKey.values();
+        for (int k = 0; k < keys.length; k++) {
+            String[] lines = export(exporter, keys[k], CatalogImporter.Format.TSV).split("\n");
+            List<Book> expected = service.sortBooks(sortTypes[k], "2");
+            assertEquals("title\tauthor\tyear", lines[0]);
+            assertEquals(expected.size() + 1, lines.length);
+            for (int i = 0; i < expected.size(); i++) {
+                Book book = expected.get(i);
+                String[] fields = lines[i + 1].split("\t");
+                // Порядок внутри равных ключей зависит от обхода таблицы,
+                // поэтому сравниваем только ключ сортировки
+                switch (keys[k]) {
+                    case TITLE: assertEquals(book.getTitle().toLowerCase(), fields[0].toLowerCase()); break;
+                    case AUTHOR: assertEquals(book.getAuthor(), fields[1]); break;
+                    case YEAR: assertEquals(book.getYear(), Integer.parseInt(fields[2])); break;
+                }
+            }
+        }
+    }
+
+    @Test
+    void testExternalSortMatchesInMemory(@TempDir Path dir) throws IOException {
+        LibraryService service = randomCatalog(5000);
+        CatalogExporter exporter = new CatalogExporter(service);
+        exporter.setTempDirectory(dir);
+        for (CatalogExporter.SortKey key : CatalogExporter.SortKey.values()) {
+            String inMemory = export(exporter, key, CatalogImporter.Format.CSV);
+
+            CatalogExporter spilling = new CatalogExporter(service);
+            spilling.setTempDirectory(dir);
+            spilling.setMemoryBudget(20_000);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            ExportStats stats = spilling.exportTo(out, key, CatalogImporter.Format.CSV);
+
+            assertTrue(stats.getSpillFiles() > 10, "Ожидалась внешняя сортировка: " + stats);
+            assertEquals(service.getBookCount(), stats.getBooks());
+            assertEquals(out.size(), stats.getBytesWritten());
+            // Слияние устойчиво, поэтому совпадает даже порядок равных ключей
+            assertEquals(inMemory, out.toString(StandardCharsets.UTF_8));
+        }
+        // Временные файлы удалены
+        try (var files = Files.list(dir)) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    @Test
+    void testRoundTripThroughImporter(@TempDir Path dir) throws IOException {
+        LibraryService service = new LibraryService();
+        List<Book> books = new ArrayList<>();
+        books.add(new Book("Алгоритмы, структуры данных", "Никлаус \"Вирт\"", 1976));
+        books.add(new Book("Многострочное\nназвание", "Автор", 2001));
+        books.add(new Book("Эмодзи 📚 в названии", "Ё-автор", 2020));
+        books.add(new Book("Война и мир", "Лев Толстой", 1869));
+        for (Book book : books) service.addBook(book);
+
+        Path file = dir.resolve("catalog.csv");
+        ExportStats stats = new CatalogExporter(service).exportFile(file, CatalogExporter.SortKey.YEAR);
+        assertEquals(4, stats.getBooks());
+        assertEquals(Files.size(file), stats.getBytesWritten());
+
+        LibraryService restored = new LibraryService();
+        ImportStats imported = new CatalogImporter(restored).importFile(file);
+        assertEquals(4, imported.getImported());
+        assertEquals(0, imported.getRejected());
+        for (Book book : books) {
+            assertNotNull(restored.findBook(book.getTitle(), book.getAuthor(), book.getYear()), book.getTitle());
+        }
+    }
+
+    @Test
+    void testTsvChannelOutput() throws IOException {
+        LibraryService service = new LibraryService();
+        service.addBook(new Book("Табуляция\tв названии", "Автор", 2000));
+        service.addBook(new Book("Без особенностей", "\"Автор\"", 1999));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new CatalogExporter(service).exportTo(Channels.newChannel(out), CatalogExporter.SortKey.TITLE, CatalogImporter.Format.TSV);
+        assertEquals("title\tauthor\tyear\n"
+                + "Без особенностей\t\"Автор\"\t1999\n"
+                + "Табуляция в названии\tАвтор\t2000\n", out.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testForEachBookVisitsWholeCatalog() {
+        LibraryService service = randomCatalog(300);
+        List<Book> visited = new ArrayList<>();
+        service.forEachBook(visited::add);
+        Comparator<Book> order = Comparator.comparing(Book::toString);
+        List<Book> all = service.getAllBooks();
+        all.sort(order);
+        visited.sort(order);
+        assertEquals(all, visited);
+    }
+}
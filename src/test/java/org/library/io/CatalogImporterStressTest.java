@@ -0,0 +1,39 @@
+package org.library.io;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.io.TempDir;
+import org.library.service.LibraryService;
+import java.io.BufferedWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import static org.junit.jupiter.api.Assertions.*;
+
+class CatalogImporterStressTest {
+
+    @Test
+    @Timeout(value = 120, unit = TimeUnit.SECONDS)
+    void testLargeCsvImport(@TempDir Path dir) throws Exception {
+        int rows = 1_000_000;
+        Path file = dir.resolve("catalog.csv");
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writer.write("title,author,year\n");
+            for (int i = 0; i < rows; i++) {
+                writer.write("\"Book " + i + ", vol. " + (i % 7) + "\",Author " + (i % 5000) + "," + (1900 + i % 124) + "\n");
+            }
+        }
+
+        LibraryService service = new LibraryService();
+        ImportStats stats = new CatalogImporter(service).importFile(file);
+
+        System.out.println("CSV import: " + stats);
+        assertEquals(rows, stats.getImported());
+        assertEquals(0, stats.getRejected());
+        assertEquals(rows, service.getBookCount());
+        assertEquals(1, service.searchBooks("book 777777, vol").size());
+        // Поштучный addBook с расширениями таблиц по ходу заметно медленнее
+        assertTrue(stats.getRowsPerSecond() > 50_000, "Импорт слишком медленный: " + stats);
+    }
+}
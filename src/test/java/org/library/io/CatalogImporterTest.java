@@ -0,0 +1,100 @@
+package org.library.io;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.library.model.Book;
+import org.library.service.LibraryService;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import static org.junit.jupiter.api.Assertions.*;
+
+class CatalogImporterTest {
+
+    private static ImportStats importText(LibraryService service, String text, CatalogImporter.Format format) throws IOException {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        return new CatalogImporter(service).importFrom(Channels.newChannel(new ByteArrayInputStream(bytes)), format, bytes.length);
+    }
+
+    @Test
+    void testCsvWithQuotesAndHeader() throws IOException {
+        LibraryService service = new LibraryService();
+        String csv = "﻿title,author,year\r\n"
+                + "Война и мир,Лев Толстой,1869\r\n"
+                + "\"Алгоритмы, структуры данных\",\"Никлаус \"\"Вирт\"\"\",1976\r\n"
+                + "\"Многострочное\nназвание\",Автор, 2001 \r\n"
+                + "  1984  ,Джордж Оруэлл,1949,лишний столбец\n"
+                + "\n"
+                + "Без перевода строки,Автор,2020";
+        ImportStats stats = importText(service, csv, CatalogImporter.Format.CSV);
+
+        assertEquals(5, stats.getRowsRead());
+        assertEquals(5, stats.getImported());
+        assertEquals(0, stats.getRejected());
+        assertNotNull(service.findBook("Война и мир", "Лев Толстой", 1869));
+        assertNotNull(service.findBook("Алгоритмы, структуры данных", "Никлаус \"Вирт\"", 1976));
+        assertNotNull(service.findBook("Многострочное\nназвание", "Автор", 2001));
+        assertNotNull(service.findBook("1984", "Джордж Оруэлл", 1949));
+        assertNotNull(service.findBook("Без перевода строки", "Автор", 2020));
+        // Книги пакета видны и поиску по подстроке
+        assertEquals(1, service.searchBooks("оруэлл").size());
+    }
+
+    @Test
+    void testValidationMatchesConsole() throws IOException {
+        LibraryService service = new LibraryService();
+        String tsv = "Книга\tАвтор\t2000\n"
+                + "   \tАвтор\t2000\n"
+                + "Книга 2\t \t2000\n"
+                + "Книга 3\tАвтор\t999\n"
+                + "Книга 4\tАвтор\t2025\n"
+                + "Книга 5\tАвтор\tдвухтысячный\n"
+                + "Книга 6\tАвтор\n"
+                + "Книга, с запятой\t\"Автор\"\t2024\n";
+        ImportStats stats = importText(service, tsv, CatalogImporter.Format.TSV);
+
+        assertEquals(8, stats.getRowsRead());
+        assertEquals(2, stats.getImported());
+        assertEquals(6, stats.getRejected());
+        assertEquals(6, stats.getErrors().size());
+        assertTrue(stats.getErrors().get(0).startsWith("Строка 2:"));
+        assertTrue(stats.getErrors().get(0).contains("название"));
+        assertTrue(stats.getErrors().get(1).contains("автор"));
+        assertTrue(stats.getErrors().get(2).contains("между"));
+        assertTrue(stats.getErrors().get(4).contains("некорректный год"));
+        // В TSV кавычки — обычные символы
+        assertNotNull(service.findBook("Книга, с запятой", "\"Автор\"", 2024));
+    }
+
+    @Test
+    void testBatchesAndProgress(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("catalog.tsv");
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 60_000; i++) {
+            sb.append("Книга ").append(i).append('\t').append("Автор ").append(i % 100).append('\t').append(1900 + i % 100).append('\n');
+        }
+        Files.writeString(file, sb);
+
+        LibraryService service = new LibraryService();
+        CatalogImporter importer = new CatalogImporter(service);
+        importer.setBatchSize(1000);
+        List<ImportStats> reports = new ArrayList<>();
+        importer.setProgressListener(reports::add);
+        ImportStats stats = importer.importFile(file);
+
+        assertEquals(60_000, stats.getImported());
+        assertEquals(60_000, service.getBookCount());
+        assertEquals(Files.size(file), stats.getBytesRead());
+        // Файл больше буфера чтения: первый блок копится до оценки размера,
+        // дальше книги идут пакетами по 1000
+        assertTrue(reports.size() >= 2);
+        assertEquals(60_000, reports.get(reports.size() - 1).getImported());
+        Book book = service.binarySearchBookByTitle("книга 12345");
+        assertEquals("Автор 45", book.getAuthor());
+    }
+}
@@ -0,0 +1,205 @@
+package org.library.persistence;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.io.TempDir;
+import org.library.model.Book;
+import org.library.service.LibraryService;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import static org.junit.jupiter.api.Assertions.*;
+
+class AuditLogTest {
+
+    private static List<String> readAll(Path dir) throws IOException {
+        List<String> lines = new ArrayList<>();
+        for (long file : AuditLog.listFiles(dir)) {
+            lines.addAll(Files.readAllLines(AuditLog.auditFile(dir, file), StandardCharsets.UTF_8));
+        }
+        return lines;
+    }
+
+    @Test
+    void testWritesCirculationEvents(@TempDir Path dir) throws IOException {
+        LibraryService service = new LibraryService();
+        try (AuditLog log = AuditLog.open(dir, service)) {
+            service.addBook(new Book("Сказки \"Пушкина\"", "Александр\\Пушкин", 1830));
+            service.registerUser("reader", "secret");
+            String session = service.loginUser("reader", "secret");
+            assertTrue(service.borrowBook(session, "Сказки \"Пушкина\"").isSuccess());
+            assertTrue(service.returnBook(session, "Сказки \"Пушкина\"").isSuccess());
+            // Неудачная выдача в аудит не попадает
+            assertFalse(service.borrowBook(session, "Нет такой книги").isSuccess());
+            log.flush();
+            assertEquals(4, log.getWritten());
+        }
+
+        List<String> lines = readAll(dir);
+        assertEquals(4, lines.size());
+        assertTrue(lines.get(0).contains("\"event\":\"BOOK_ADDED\""));
+        assertTrue(lines.get(0).contains("\"title\":\"Сказки \\\"Пушкина\\\"\""));
+        assertTrue(lines.get(0).contains("\"author\":\"Александр\\\\Пушкин\""));
+        assertTrue(lines.get(0).contains("\"year\":1830"));
+        assertTrue(lines.get(1).contains("\"event\":\"USER_REGISTERED\""));
+        assertTrue(lines.get(1).contains("\"user\":\"reader\""));
+        // Пароль не пишется
+        assertFalse(String.join("\n", lines).contains("secret"));
+        assertTrue(lines.get(2).contains("\"event\":\"BOOK_BORROWED\""));
+        assertTrue(lines.get(3).contains("\"event\":\"BOOK_RETURNED\""));
+        assertTrue(lines.get(3).contains("\"user\":\"reader\""));
+        for (String line : lines) {
+            assertTrue(line.startsWith("{\"time\":\"") && line.endsWith("}"));
+        }
+    }
+
+    @Test
+    void testRotationAndReopen(@TempDir Path dir) throws IOException {
+        LibraryService service = new LibraryService();
+        try (AuditLog log = AuditLog.open(dir, service, 1024, AuditLog.Overflow.BLOCK, 4096, 10)) {
+            for (int i = 0; i < 500; i++) service.addBook(new Book("Book " + i, "Author", 2000));
+            log.flush();
+            assertEquals(500, log.getWritten());
+        }
+        long[] files = AuditLog.listFiles(dir);
+        assertTrue(files.length > 1);
+        for (long file : files) {
+            assertTrue(Files.size(AuditLog.auditFile(dir, file)) <= 4096);
+        }
+        assertEquals(500, readAll(dir).size());
+
+        // Новый запуск пишет в новый файл и не трогает старые
+        try (AuditLog log = AuditLog.open(dir, service)) {
+            service.addBook(new Book("Book 500", "Author", 2000));
+            log.flush();
+            assertEquals(1, log.getWritten());
+        }
+        long[] reopened = AuditLog.listFiles(dir);
+        assertEquals(files.length + 1, reopened.length);
+        assertEquals(files[files.length - 1] + 1, reopened[reopened.length - 1]);
+        List<String> lines = readAll(dir);
+        assertEquals(501, lines.size());
+        assertTrue(lines.get(500).contains("\"title\":\"Book 500\""));
+    }
+
+    @Test
+    void testDropWhenFull(@TempDir Path dir) throws IOException {
+        LibraryService service = new LibraryService();
+        // Писатель ещё не запущен, поэтому очередь заполняется предсказуемо
+        AuditLog log = new AuditLog(dir, service, 8, AuditLog.Overflow.DROP, 1 << 20, 10);
+        service.addListener(log);
+        for (int i = 0; i < 20; i++) service.addBook(new Book("Book " + i, "Author", 2000));
+        assertEquals(8, log.getAccepted());
+        assertEquals(12, log.getDropped());
+        assertEquals(8, log.getQueueDepth());
+        log.start();
+        log.close();
+
+        List<String> lines = readAll(dir);
+        assertEquals(8, lines.size());
+        assertTrue(lines.get(7).contains("\"title\":\"Book 7\""));
+    }
+
+    @Test
+    void testSampleAboveHalfCapacity(@TempDir Path dir) throws IOException {
+        LibraryService service = new LibraryService();
+        AuditLog log = new AuditLog(dir, service, 8, AuditLog.Overflow.SAMPLE, 1 << 20, 2);
+        service.addListener(log);
+        for (int i = 0; i < 20; i++) service.addBook(new Book("Book " + i, "Author", 2000));
+        // До половины очереди принимается всё, дальше — каждое второе, пока есть место
+        assertEquals(8, log.getAccepted());
+        assertEquals(12, log.getDropped());
+        log.start();
+        log.close();
+
+        List<String> lines = readAll(dir);
+        int[] expected = {0, 1, 2, 3, 5, 7, 9, 11};
+        assertEquals(expected.length, lines.size());
+        for (int i = 0; i < expected.length; i++) {
+            assertTrue(lines.get(i).contains("\"title\":\"Book " + expected[i] + "\""), lines.get(i));
+        }
+    }
+
+    @Test
+    @Timeout(value = 30, unit = TimeUnit.SECONDS)
+    void testBlockLosesNothingUnderLoad(@TempDir Path dir) throws Exception {
+        LibraryService service = new LibraryService();
+        int threads = 4;
+        int perThread = 5000;
+        // Очередь намного меньше потока событий: читатели упираются в писателя
+        try (AuditLog log = AuditLog.open(dir, service, 64, AuditLog.Overflow.BLOCK, 1 << 20, 10)) {
+            ExecutorService pool = Executors.newFixedThreadPool(threads);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int base = t * perThread;
+                futures.add(pool.submit(() -> {
+                    for (int i = base; i < base + perThread; i++) {
+                        service.addBook(new Book("Book " + i, "Author", 2000));
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> f : futures) f.get();
+            pool.shutdown();
+            log.flush();
+            assertEquals(threads * perThread, log.getWritten());
+            assertEquals(0, log.getDropped());
+            assertTrue(log.getMaxQueueDepth() <= 64);
+        }
+        assertEquals(threads * perThread, readAll(dir).size());
+    }
+
+    @Test
+    @Timeout(value = 30, unit = TimeUnit.SECONDS)
+    void testFailedWriterDoesNotBlockRequests(@TempDir Path dir) throws IOException {
+        LibraryService service = new LibraryService();
+        AuditLog log = new AuditLog(dir, service, 8, AuditLog.Overflow.BLOCK, 256, 10);
+        // Следующий файл занят каталогом: смена файла упадёт, и писатель остановится
+        Files.createDirectory(AuditLog.auditFile(dir, 1));
+        log.start();
+        service.addListener(log);
+        int events = 200;
+        for (int i = 0; i < events; i++) service.addBook(new Book("Book " + i, "Author", 2000));
+        // Очередь никто не разбирает, но добавление книг не зависло
+        assertEquals(events, service.getBookCount());
+        assertTrue(log.getDropped() > 0);
+        assertEquals(events, log.getAccepted() + log.getDropped());
+        assertThrows(IOException.class, log::flush);
+        assertThrows(IOException.class, log::close);
+    }
+
+    @Test
+    @Timeout(value = 30, unit = TimeUnit.SECONDS)
+    void testCloseWhilePublishingWritesEveryAcceptedEvent(@TempDir Path dir) throws Exception {
+        for (int round = 0; round < 20; round++) {
+            Path roundDir = dir.resolve("round" + round);
+            LibraryService service = new LibraryService();
+            AuditLog log = AuditLog.open(roundDir, service, 256, AuditLog.Overflow.DROP, 1 << 20, 10);
+            ExecutorService pool = Executors.newFixedThreadPool(4);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                int base = t * 100_000;
+                futures.add(pool.submit(() -> {
+                    for (int i = base; i < base + 2000; i++) {
+                        service.addBook(new Book("Book " + i, "Author", 2000));
+                    }
+                    return null;
+                }));
+            }
+            // Закрытие посреди потока событий: всё принятое должно оказаться в файле
+            Thread.sleep(round % 5);
+            log.close();
+            for (Future<?> f : futures) f.get();
+            pool.shutdown();
+            assertEquals(log.getAccepted(), log.getWritten());
+            assertEquals(log.getAccepted(), readAll(roundDir).size());
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package org.library.persistence;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.io.TempDir;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import static org.junit.jupiter.api.Assertions.*;
+
+class CatalogJournalTest {
+
+    private static byte[] bytes(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static List<String> readAll(Path file) throws IOException {
+        List<String> records = new ArrayList<>();
+        CatalogJournal.read(file, payload -> records.add(new String(payload, StandardCharsets.UTF_8)));
+        return records;
+    }
+
+    @Test
+    void testAppendAndRead(@TempDir Path dir) throws IOException {
+        try (CatalogJournal journal = new CatalogJournal(dir, 0)) {
+            for (int i = 0; i < 1000; i++) journal.append(bytes("event-" + i));
+            journal.sync();
+        }
+        List<String> records = readAll(CatalogJournal.segmentFile(dir, 0));
+        assertEquals(1000, records.size());
+        assertEquals("event-0", records.get(0));
+        assertEquals("event-999", records.get(999));
+    }
+
+    @Test
+    @Timeout(value = 20, unit = TimeUnit.SECONDS)
+    void testSupplierAppendsInJournalOrder(@TempDir Path dir) throws Exception {
+        int threads = 4;
+        int perThread = 5000;
+        // Счётчик читается внутри критической секции журнала, поэтому записи
+        // идут в журнале строго по возрастанию без внешней блокировки
+        int[] counter = new int[1];
+        try (CatalogJournal journal = new CatalogJournal(dir, 0)) {
+            List<Thread> writers = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                Thread writer = new Thread(() -> {
+                    for (int i = 0; i < perThread; i++) {
+                        journal.append(() -> bytes("event-" + counter[0]++));
+                    }
+                });
+                writers.add(writer);
+                writer.start();
+            }
+            for (Thread writer : writers) writer.join();
+            journal.sync();
+        }
+        List<String> records = readAll(CatalogJournal.segmentFile(dir, 0));
+        assertEquals(threads * perThread, records.size());
+        for (int i = 0; i < records.size(); i++) {
+            assertEquals("event-" + i, records.get(i));
+        }
+    }
+
+    @Test
+    void testTornTailIsIgnored(@TempDir Path dir) throws IOException {
+        try (CatalogJournal journal = new CatalogJournal(dir, 0)) {
+            journal.append(bytes("first"));
+            journal.append(bytes("second"));
+        }
+        Path file = CatalogJournal.segmentFile(dir, 0);
+        long fullSize = Files.size(file);
+        // Обрываем последнюю запись, как при сбое посреди записи
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(fullSize - 3);
+        }
+        List<String> records = new ArrayList<>();
+        long valid = CatalogJournal.read(file, payload -> records.add(new String(payload, StandardCharsets.UTF_8)));
+        assertEquals(List.of("first"), records);
+        assertEquals(8 + "first".length(), valid);
+
+        // Испорченная контрольная сумма тоже обрывает чтение
+        byte[] content = Files.readAllBytes(file);
+        content[content.length - 1] ^= 1;
+        Files.write(file, content);
+        assertEquals(List.of("first"), readAll(file));
+    }
+
+    @Test
+    void testRotateStartsNewSegment(@TempDir Path dir) throws IOException {
+        try (CatalogJournal journal = new CatalogJournal(dir, 5)) {
+            journal.append(bytes("old"));
+            assertEquals(6, journal.rotate());
+            journal.append(bytes("new"));
+            journal.sync();
+            assertEquals(6, journal.currentSegment());
+        }
+        assertArrayEquals(new long[] {5, 6}, CatalogJournal.listSegments(dir));
+        assertEquals(List.of("old"), readAll(CatalogJournal.segmentFile(dir, 5)));
+        assertEquals(List.of("new"), readAll(CatalogJournal.segmentFile(dir, 6)));
+    }
+
+    @Test
+    @Timeout(value = 60, unit = TimeUnit.SECONDS)
+    void testGroupCommitThroughput(@TempDir Path dir) throws Exception {
+        int threads = 4;
+        int perThread = 25_000;
+        long start = System.nanoTime();
+        long syncs;
+        try (CatalogJournal journal = new CatalogJournal(dir, 0)) {
+            List<Thread> workers = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int id = t;
+                Thread worker = new Thread(() -> {
+                    for (int i = 0; i < perThread; i++) {
+                        journal.append(bytes("borrow " + id + " " + i));
+                    }
+                });
+                workers.add(worker);
+                worker.start();
+            }
+            for (Thread worker : workers) worker.join();
+            journal.sync();
+            syncs = journal.syncCount();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        int total = threads * perThread;
+        System.out.printf("Журнал: %d событий за %.3f с (%.0f/с), fsync: %d%n", total, seconds, total / seconds, syncs);
+
+        assertEquals(total, readAll(CatalogJournal.segmentFile(dir, 0)).size());
+        // Пачки: fsync заметно меньше, чем событий, и тысячи событий в секунду
+        assertTrue(syncs < total / 10, "Слишком много fsync: " + syncs);
+        assertTrue(total / seconds > 10_000, "Журнал слишком медленный: " + total / seconds + " событий/с");
+    }
+}
@@ -0,0 +1,136 @@
+package org.library.persistence;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.library.model.Book;
+import org.library.service.LibraryListener;
+import org.library.service.LibraryService;
+import org.library.service.MappedCatalog;
+import org.library.utils.MyTable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import static org.junit.jupiter.api.Assertions.*;
+
+class LibraryStoreTest {
+
+    @Test
+    void testRestartRestoresCatalog(@TempDir Path dir) throws IOException {
+        LibraryService service = new LibraryService();
+        try (LibraryStore store = LibraryStore.open(dir, service)) {
+            service.addBook(new Book("Война и мир", "Лев Толстой", 1869));
+            service.addBook(new Book("1984", "Джордж Оруэлл", 1949));
+            service.registerUser("reader", "secret");
+            String session = service.loginUser("reader", "secret");
+            assertTrue(service.borrowBook(session, "1984").isSuccess());
+            assertTrue(service.borrowBook(session, "Война и мир").isSuccess());
+            assertTrue(service.returnBook(session, "Война и мир").isSuccess());
+            store.sync();
+        }
+
+        // Состояние восстанавливается при открытии, дальше хранилище не нужно
+        LibraryService restored = new LibraryService();
+        LibraryStore.open(dir, restored).close();
+        assertEquals(2, restored.getAllBooks().size());
+        assertNotNull(restored.loginUser("reader", "secret"));
+        Book borrowed = restored.findBook("1984", "Джордж Оруэлл", 1949);
+        assertTrue(borrowed.isBorrowed());
+        assertEquals("reader", borrowed.getBorrowedBy());
+        assertFalse(restored.findBook("Война и мир", "Лев Толстой", 1869).isBorrowed());
+    }
+
+    @Test
+    void testCheckpointAndJournalTail(@TempDir Path dir) throws IOException {
+        LibraryService service = new LibraryService();
+        try (LibraryStore store = LibraryStore.open(dir, service)) {
+            for (int i = 0; i < 100; i++) service.addBook(new Book("Book " + i, "Author", 2000));
+            service.registerUser("reader", "secret");
+            String session = service.loginUser("reader", "secret");
+            service.borrowBook(session, "Book 1");
+            store.checkpoint();
+            // Хвост после снимка
+            service.addBook(new Book("Book 100", "Author", 2000));
+            service.returnBook(session, "Book 1");
+            service.borrowBook(session, "Book 2");
+        }
+        // Сегменты, покрытые снимком, удалены
+        assertEquals(1, LibraryStore.listSnapshots(dir).length);
+        assertEquals(LibraryStore.listSnapshots(dir)[0], CatalogJournal.listSegments(dir)[0]);
+
+        LibraryService restored = new LibraryService();
+        LibraryStore.open(dir, restored).close();
+        assertEquals(101, restored.getAllBooks().size());
+        assertFalse(restored.findBook("Book 1", "Author", 2000).isBorrowed());
+        assertEquals("reader", restored.findBook("Book 2", "Author", 2000).getBorrowedBy());
+    }
+
+    @Test
+    void testAutomaticCheckpointAndCorruptSnapshot(@TempDir Path dir) throws Exception {
+        LibraryService service = new LibraryService();
+        try (LibraryStore store = LibraryStore.open(dir, service, 4096)) {
+            for (int i = 0; i < 2000; i++) service.addBook(new Book("Book " + i, "Author", 2000));
+            store.sync();
+        }
+        long[] snapshots = LibraryStore.listSnapshots(dir);
+        assertTrue(snapshots.length > 0, "Снимок не создан");
+
+        Path latest = LibraryStore.snapshotFile(dir, snapshots[snapshots.length - 1]);
+        LibraryService restored = new LibraryService();
+        LibraryStore.open(dir, restored).close();
+        assertEquals(2000, restored.getAllBooks().size());
+        byte[] content = Files.readAllBytes(latest);
+        // Портим заголовок: он защищён контрольной суммой
+        content[10] ^= 1;
+        Files.write(latest, content);
+        assertThrows(IOException.class, () -> MappedCatalog.open(latest));
+        // Повреждённый снимок пропускается, открытие не падает
+        try (LibraryStore store = LibraryStore.open(dir, new LibraryService())) {
+            assertNotNull(store.getJournal());
+        }
+    }
+
+    @Test
+    void testRequiresConcurrentEngine(@TempDir Path dir) {
+        // Снимок пишется фоновым потоком, однопоточные таблицы для этого не годятся
+        assertThrows(IllegalArgumentException.class,
+                () -> LibraryStore.open(dir, new LibraryService(MyTable.Engine.OPEN_ADDRESSING)));
+        assertThrows(IllegalArgumentException.class,
+                () -> LibraryStore.open(dir, new LibraryService(MyTable.Engine.CHAINING)));
+    }
+
+    @Test
+    void testJournalFailureUndoesCirculation(@TempDir Path dir) throws IOException {
+        LibraryService service = new LibraryService();
+        List<String> events = new ArrayList<>();
+        // Подписчик перед хранилищем получает событие раньше журнала
+        service.addListener(new LibraryListener() {
+            @Override
+            public void onBookBorrowed(Book book, String username) {
+                events.add("borrowed " + username);
+            }
+
+            @Override
+            public void onBookReturned(Book book, String username) {
+                events.add("returned " + username);
+            }
+        });
+        try (LibraryStore store = LibraryStore.open(dir, service)) {
+            service.addBook(new Book("1984", "Джордж Оруэлл", 1949));
+            service.addBook(new Book("Мы", "Евгений Замятин", 1920));
+            service.registerUser("reader", "secret");
+            String session = service.loginUser("reader", "secret");
+            assertTrue(service.borrowBook(session, "Мы").isSuccess());
+            events.clear();
+
+            // Журнал больше не принимает записи: выдача и возврат отменяются
+            store.getJournal().close();
+            assertThrows(IllegalStateException.class, () -> service.borrowBook(session, "1984"));
+            assertFalse(service.findBook("1984", "Джордж Оруэлл", 1949).isBorrowed());
+            assertThrows(IllegalStateException.class, () -> service.returnBook(session, "Мы"));
+            assertEquals("reader", service.findBook("Мы", "Евгений Замятин", 1920).getBorrowedBy());
+            assertEquals(List.of("borrowed reader", "returned reader", "returned reader", "borrowed reader"), events);
+        }
+    }
+}
@@ -3,11 +3,22 @@ package org.library.service;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.io.TempDir;
 import org.library.model.Book;
+import org.library.model.BookKey;
 import org.library.model.User;
+import org.library.persistence.LibraryStore;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
 import static org.junit.jupiter.api.Assertions.*;
 
 class LibraryServiceStressTest {
@@ -86,9 +97,10 @@ class LibraryServiceStressTest {
             String username = "user" + userIndex;
             String password = "password" + userIndex;
             
-            assertTrue(service.loginUser(username, password));
-            assertEquals(username, service.getLoggedInUser().getUsername());
-            service.logoutUser();
+            String session = service.loginUser(username, password);
+            assertNotNull(session);
+            assertEquals(username, service.getSessionUser(session).getUsername());
+            service.logoutUser(session);
         }
     }
 
@@ -112,15 +124,15 @@ class LibraryServiceStressTest {
             int bookIndex = random.nextInt(1000);
             
             // Вход пользователя
-            service.loginUser("user" + userIndex, "password" + userIndex);
+            String session = service.loginUser("user" + userIndex, "password" + userIndex);
             
             // Попытка выдачи книги
-            service.borrowBook("Book" + bookIndex);
+            service.borrowBook(session, "Book" + bookIndex);
             
             // Попытка возврата книги
-            service.returnBook("Book" + bookIndex);
+            service.returnBook(session, "Book" + bookIndex);
             
-            service.logoutUser();
+            service.logoutUser(session);
         }
     }
 
@@ -135,7 +147,7 @@ class LibraryServiceStressTest {
         
         // Тест всех алгоритмов сортировки
         String[] sortTypes = {"1", "2", "3"}; // Название, Автор, Год
-        String[] algorithms = {"1", "2", "3", "4"}; // Пузырьковая, Слиянием, Вставками, Встроенная
+        String[] algorithms = {"1", "2", "3", "4", "5"}; // Пузырьковая, Слиянием, Вставками, Встроенная, Параллельная
         
         for (String sortType : sortTypes) {
             for (String algorithm : algorithms) {
@@ -177,35 +189,151 @@ class LibraryServiceStressTest {
         assertTrue(searchTime < 5000); // Менее 5 секунд для 200 поисков
     }
 
+    @Test
+    @Timeout(value = 60, unit = TimeUnit.SECONDS)
+    void testIndexedSearchLargeCatalog() {
+        int bookCount = 1_000_000;
+        for (int i = 0; i < bookCount; i++) {
+            service.addBook(new Book("Book" + i + "Title", "Author" + (i % 5000) + "Name", 1900 + (i % 124)));
+        }
+
+        // Запросы, которые выбирают одну книгу, и запрос по автору (200 книг)
+        int queries = 1000;
+        long startTime = System.nanoTime();
+        for (int i = 0; i < queries; i++) {
+            int index = random.nextInt(bookCount);
+            List<Book> found = service.searchBooks("book" + index + "title");
+            assertEquals(1, found.size());
+        }
+        long nanosPerQuery = (System.nanoTime() - startTime) / queries;
+
+        List<Book> byAuthor = service.searchBooks("Author4999Name");
+        assertEquals(bookCount / 5000, byAuthor.size());
+
+        System.out.println("Indexed search over " + bookCount + " books: " + (nanosPerQuery / 1000) + " us/query");
+        // Полный перебор миллиона книг занимает сотни миллисекунд на запрос
+        assertTrue(nanosPerQuery < TimeUnit.MILLISECONDS.toNanos(5));
+    }
+
+    @Test
+    @Timeout(value = 90, unit = TimeUnit.SECONDS)
+    void testMappedCatalogColdStart(@TempDir Path dir) throws Exception {
+        int bookCount = 1_000_000;
+        List<Book> books = new ArrayList<>(bookCount);
+        for (int i = 0; i < bookCount; i++) {
+            books.add(new Book("Book" + i + "Title", "Author" + (i % 5000) + "Name", 1900 + (i % 124)));
+        }
+        Path file = dir.resolve("catalog.map");
+        MappedCatalog.write(file, 0, List.of(), books);
+        books = null;
+
+        // Холодный старт: открыть снимок и сразу ответить на запросы
+        long startTime = System.nanoTime();
+        LibraryService mapped = new LibraryService();
+        mapped.loadBase(MappedCatalog.open(file));
+        Book found = mapped.binarySearchBookByTitle("book777777title");
+        List<Book> byTitle = mapped.searchBooks("Book123456Title");
+        long startupMillis = (System.nanoTime() - startTime) / 1_000_000;
+
+        assertNotNull(found);
+        assertEquals("Book777777Title", found.getTitle());
+        assertEquals(1, byTitle.size());
+        assertEquals(bookCount, mapped.getBookCount());
+        assertEquals(bookCount / 5000, mapped.searchBooks("Author4999Name").size());
+
+        System.out.println("Mapped catalog cold start over " + bookCount + " books: " + startupMillis + " ms");
+        // Загрузка того же каталога через addBook занимает секунды
+        assertTrue(startupMillis < 1000, "Холодный старт слишком долгий: " + startupMillis + " мс");
+    }
+
     @Test
     @Timeout(value = 10, unit = TimeUnit.SECONDS)
-    void testConcurrentUserSessions() {
+    void testConcurrentUserSessions() throws Exception {
+        int threads = 16;
+        int rounds = 500;
         // Регистрация пользователей
-        for (int i = 0; i < 50; i++) {
+        for (int i = 0; i < threads; i++) {
             service.registerUser("user" + i, "password" + i);
         }
         
-        // Добавление книг
-        for (int i = 0; i < 100; i++) {
+        // Добавление книг: у каждого пользователя своя
+        for (int i = 0; i < threads; i++) {
             service.addBook(new Book("Book" + i, "Author" + i, 2000 + random.nextInt(24)));
         }
         
-        // Симуляция множественных сессий пользователей
-        for (int i = 0; i < 1000; i++) {
-            int userIndex = random.nextInt(50);
-            
-            // Вход
-            assertTrue(service.loginUser("user" + userIndex, "password" + userIndex));
-            assertNotNull(service.getLoggedInUser());
-            
-            // Операции
-            int bookIndex = random.nextInt(100);
-            service.searchBooks("Book" + bookIndex);
-            
-            // Выход
-            service.logoutUser();
-            assertNull(service.getLoggedInUser());
+        // Пользователи одновременно входят, берут и возвращают свою книгу и
+        // выходят; сессии одного сервиса не должны путаться между собой
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            String username = "user" + t;
+            String password = "password" + t;
+            String title = "Book" + t;
+            futures.add(pool.submit(() -> {
+                start.await();
+                for (int i = 0; i < rounds; i++) {
+                    String session = service.loginUser(username, password);
+                    assertNotNull(session);
+                    assertEquals(username, service.getSessionUser(session).getUsername());
+                    service.searchBooks(title);
+                    assertTrue(service.borrowBook(session, title).isSuccess());
+                    assertEquals(username, service.binarySearchBookByTitle(title).getBorrowedBy());
+                    assertTrue(service.returnBook(session, title).isSuccess());
+                    service.logoutUser(session);
+                    assertNull(service.getSessionUser(session));
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> f : futures) f.get();
+        pool.shutdown();
+        assertEquals(0, service.getSessionCount());
+    }
+
+    @Test
+    @Timeout(value = 30, unit = TimeUnit.SECONDS)
+    void testMultiThreadedCatalogAccess() throws Exception {
+        int threads = 8;
+        int booksPerThread = 2000;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+
+        // Параллельное добавление книг разными потоками
+        for (int t = 0; t < threads; t++) {
+            int base = t * booksPerThread;
+            futures.add(pool.submit(() -> {
+                start.await();
+                for (int i = base; i < base + booksPerThread; i++) {
+                    service.addBook(new Book("Book" + i, "Author" + (i % 100), 2000 + (i % 24)));
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> f : futures) f.get();
+        assertEquals(threads * booksPerThread, service.getAllBooks().size());
+
+        // Параллельная выдача: каждая книга запрашивается всеми потоками,
+        // выдана должна быть ровно один раз
+        String session = service.loginUser("admin", "adminpass");
+        assertNotNull(session);
+        AtomicInteger borrowed = new AtomicInteger();
+        int hotBooks = 200;
+        futures.clear();
+        for (int t = 0; t < threads; t++) {
+            futures.add(pool.submit(() -> {
+                for (int i = 0; i < hotBooks; i++) {
+                    if (service.borrowBook(session, "Book" + i).isSuccess()) borrowed.incrementAndGet();
+                }
+                return null;
+            }));
         }
+        for (Future<?> f : futures) f.get();
+        pool.shutdown();
+        assertEquals(hotBooks, borrowed.get());
     }
 
     @Test
@@ -280,4 +408,214 @@ class LibraryServiceStressTest {
         List<Book> allBooks = service.getAllBooks();
         assertTrue(allBooks.size() >= 1000);
     }
-} 
\ No newline at end of file
+
+    @Test
+    @Timeout(value = 60, unit = TimeUnit.SECONDS)
+    void testTopPageOfLargeCatalog() {
+        int count = 1_000_000;
+        service.ensureCapacity(count);
+        List<Book> batch = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            batch.add(new Book("Book " + random.nextInt(count), "Author " + random.nextInt(10_000), 1900 + random.nextInt(124)));
+            if (batch.size() == 10_000) {
+                service.addBooks(batch);
+                batch.clear();
+            }
+        }
+
+        long start = System.nanoTime();
+        Page page = service.sortBooksPage("1", 0, 20);
+        long topNanos = System.nanoTime() - start;
+        start = System.nanoTime();
+        List<Book> sorted = service.sortBooks("1", "2");
+        long fullNanos = System.nanoTime() - start;
+
+        System.out.printf("First 20 of %d books: top-K %d ms, full merge sort %d ms%n",
+                service.getBookCount(), topNanos / 1_000_000, fullNanos / 1_000_000);
+        assertEquals(sorted.subList(0, 20), page.getBooks());
+        assertEquals(sorted.size(), page.getTotal());
+    }
+
+    @Test
+    @Timeout(value = 60, unit = TimeUnit.SECONDS)
+    void testFullScanDoesNotAllocate() {
+        int count = 200_000;
+        List<Book> batch = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            batch.add(new Book("Book " + i, "Author " + (i % 1000), 1900 + i % 124));
+        }
+        service.addBooks(batch);
+        batch = null;
+
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) java.lang.management.ManagementFactory.getThreadMXBean();
+        long[] years = new long[1];
+        // Прогрев, чтобы обход был скомпилирован JIT
+        for (int i = 0; i < 20; i++) service.forEachBook(book -> years[0] += book.getYear());
+        long thread = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(thread);
+        service.forEachBook(book -> years[0] += book.getYear());
+        long allocated = threads.getThreadAllocatedBytes(thread) - before;
+
+        System.out.printf("Full scan of %d books allocated %d bytes%n", count, allocated);
+        assertTrue(years[0] > 0);
+        // Только сама лямбда и служебные объекты, ничего на каждую книгу
+        assertTrue(allocated < 64 * 1024, "Обход каталога выделил " + allocated + " байт");
+    }
+
+    @Test
+    @Timeout(value = 60, unit = TimeUnit.SECONDS)
+    void testParallelFilterLargeCatalog() {
+        int count = 1_000_000;
+        service.ensureCapacity(count);
+        List<Book> batch = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            batch.add(new Book("Book " + i, "Author " + random.nextInt(10_000), 1900 + random.nextInt(124)));
+            if (batch.size() == 10_000) {
+                service.addBooks(batch);
+                batch.clear();
+            }
+        }
+
+        service.setParallelThreshold(Integer.MAX_VALUE);
+        long start = System.nanoTime();
+        List<Book> sequential = service.filterBooks(book -> book.getAuthor().endsWith("42"));
+        long sequentialNanos = System.nanoTime() - start;
+        service.setParallelThreshold(0);
+        start = System.nanoTime();
+        List<Book> parallel = service.filterBooks(book -> book.getAuthor().endsWith("42"));
+        long parallelNanos = System.nanoTime() - start;
+
+        System.out.printf("Filter of %d books on %d cores: sequential %d ms, parallel %d ms, %d found%n",
+                count, Runtime.getRuntime().availableProcessors(),
+                sequentialNanos / 1_000_000, parallelNanos / 1_000_000, parallel.size());
+        assertEquals(sequential, parallel);
+    }
+
+    @Test
+    @Timeout(value = 60, unit = TimeUnit.SECONDS)
+    void testHotTitleContention(@TempDir Path dir) throws Exception {
+        int threads = 16;
+        int rounds = 2000;
+        int titles = 4;
+        int copies = 3;
+        try (LibraryStore store = LibraryStore.open(dir, service)) {
+            for (int t = 0; t < titles; t++) {
+                for (int c = 0; c < copies; c++) {
+                    service.addBook(new Book("Hot" + t, "Author" + c, 2000));
+                }
+            }
+            for (int i = 0; i < threads; i++) {
+                service.registerUser("user" + i, "password" + i);
+            }
+
+            // Сколько экземпляров каждого названия сейчас на руках по данным самих читателей
+            AtomicIntegerArray onLoan = new AtomicIntegerArray(titles);
+            AtomicInteger borrows = new AtomicInteger();
+            ExecutorService pool = Executors.newFixedThreadPool(threads);
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                int user = i;
+                futures.add(pool.submit(() -> {
+                    String session = service.loginUser("user" + user, "password" + user);
+                    Random local = new Random(user);
+                    boolean[] held = new boolean[titles];
+                    start.await();
+                    for (int r = 0; r < rounds; r++) {
+                        int t = local.nextInt(titles);
+                        if (held[t]) {
+                            onLoan.decrementAndGet(t);
+                            assertTrue(service.returnBook(session, "Hot" + t).isSuccess());
+                            held[t] = false;
+                        } else {
+                            CirculationResult result = service.borrowBook(session, "Hot" + t);
+                            if (result.isSuccess()) {
+                                // Больше экземпляров, чем есть, выдать нельзя
+                                assertTrue(onLoan.incrementAndGet(t) <= copies);
+                                held[t] = true;
+                                borrows.incrementAndGet();
+                            } else {
+                                // Отказ всегда называет читателя, у которого экземпляр
+                                assertEquals(CirculationStatus.ALREADY_BORROWED, result.getStatus());
+                                assertNotNull(result.getBorrowedBy());
+                            }
+                        }
+                    }
+                    // Чужую книгу вернуть нельзя, свои возвращаем все
+                    for (int t = 0; t < titles; t++) {
+                        if (held[t]) {
+                            onLoan.decrementAndGet(t);
+                            assertTrue(service.returnBook(session, "Hot" + t).isSuccess());
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> f : futures) f.get();
+            pool.shutdown();
+
+            assertTrue(borrows.get() > rounds);
+            for (Book book : service.getAllBooks()) {
+                assertFalse(book.isBorrowed());
+                assertNull(book.getBorrowedBy());
+            }
+            // Один экземпляр остаётся на руках: журнал должен восстановить именно его
+            String session = service.loginUser("user0", "password0");
+            assertTrue(service.borrowBook(session, "Hot0").isSuccess());
+            store.sync();
+        }
+
+        LibraryService restored = new LibraryService();
+        LibraryStore.open(dir, restored).close();
+        int borrowed = 0;
+        for (Book book : restored.getAllBooks()) {
+            if (book.isBorrowed()) {
+                borrowed++;
+                assertEquals("Hot0", book.getTitle());
+                assertEquals("user0", book.getBorrowedBy());
+            }
+        }
+        assertEquals(1, borrowed);
+        assertEquals(titles * copies, restored.getBookCount());
+    }
+
+    @Test
+    @Timeout(value = 60, unit = TimeUnit.SECONDS)
+    void testBookDropBatch() {
+        int count = 200_000;
+        int batchSize = 500;
+        List<Book> catalog = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            catalog.add(new Book("Book " + i, "Author " + (i % 1000), 1900 + i % 124));
+        }
+        service.addBooks(catalog);
+        service.registerUser("reader", "secret");
+        String session = service.loginUser("reader", "secret");
+
+        List<String> titles = new ArrayList<>(batchSize);
+        List<BookKey> keys = new ArrayList<>(batchSize);
+        for (int i = 0; i < batchSize; i++) {
+            int index = random.nextInt(count);
+            titles.add("Book " + index);
+            keys.add(catalog.get(index).getKey());
+        }
+
+        long start = System.nanoTime();
+        List<CirculationResult> borrowed = service.borrowBatch(session, titles);
+        long borrowNanos = System.nanoTime() - start;
+        start = System.nanoTime();
+        List<CirculationResult> returned = service.returnBatchByKey(session, keys);
+        long returnNanos = System.nanoTime() - start;
+
+        System.out.printf("Batch of %d over %d books: borrow %d ms, return by key %d ms%n",
+                batchSize, count, borrowNanos / 1_000_000, returnNanos / 1_000_000);
+        // Повторы в пачке: второй запрос того же названия получает отказ
+        long borrowedCount = borrowed.stream().filter(CirculationResult::isSuccess).count();
+        long returnedCount = returned.stream().filter(CirculationResult::isSuccess).count();
+        assertEquals(borrowedCount, returnedCount);
+        assertEquals(batchSize, borrowed.size());
+        for (Book book : catalog) assertFalse(book.isBorrowed());
+    }
+}
@@ -3,8 +3,13 @@ package org.library.service;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.library.model.Book;
+import org.library.model.BookKey;
 import org.library.model.User;
+import org.library.utils.MyTable;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 import static org.junit.jupiter.api.Assertions.*;
 
 class LibraryServiceTest {
@@ -21,29 +26,52 @@ class LibraryServiceTest {
         assertTrue(service.registerUser("testuser", "testpass"));
         assertFalse(service.registerUser("testuser", "anotherpass"));
 
-        assertTrue(service.loginUser("testuser", "testpass"));
-        assertNotNull(service.getLoggedInUser());
-        assertEquals("testuser", service.getLoggedInUser().getUsername());
-
-        assertFalse(service.loginUser("wronguser", "wrongpass"));
-        assertNull(service.getLoggedInUser());
-
-        assertFalse(service.loginUser("testuser", "wrongpass"));
-        assertNull(service.getLoggedInUser());
-
-        assertTrue(service.loginUser("admin", "adminpass"));
-        assertNotNull(service.getLoggedInUser());
-        assertEquals("admin", service.getLoggedInUser().getUsername());
-        service.logoutUser();
+        String session = service.loginUser("testuser", "testpass");
+        assertNotNull(session);
+        assertNotNull(service.getSessionUser(session));
+        assertEquals("testuser", service.getSessionUser(session).getUsername());
+
+        assertNull(service.loginUser("wronguser", "wrongpass"));
+        assertNull(service.loginUser("testuser", "wrongpass"));
+
+        String admin = service.loginUser("admin", "adminpass");
+        assertNotNull(admin);
+        assertEquals("admin", service.getSessionUser(admin).getUsername());
+        // Вход другого пользователя не трогает первую сессию
+        assertEquals("testuser", service.getSessionUser(session).getUsername());
+        assertNotEquals(session, admin);
+        service.logoutUser(admin);
     }
 
     @Test
     void testLogoutUser() {
         service.registerUser("logoutuser", "pass");
-        service.loginUser("logoutuser", "pass");
-        assertNotNull(service.getLoggedInUser());
-        service.logoutUser();
-        assertNull(service.getLoggedInUser());
+        String session = service.loginUser("logoutuser", "pass");
+        assertNotNull(service.getSessionUser(session));
+        service.logoutUser(session);
+        assertNull(service.getSessionUser(session));
+        assertNull(service.getSessionUser(null));
+    }
+
+    @Test
+    void testSessionIdleExpiry() throws InterruptedException {
+        service.registerUser("reader", "pass");
+        service.addBook(new Book("Book", "Author", 2000));
+        service.setSessionIdleTimeout(50, TimeUnit.MILLISECONDS);
+        String idle = service.loginUser("reader", "pass");
+        String active = service.loginUser("reader", "pass");
+        assertEquals(2, service.getSessionCount());
+        // Обращения продлевают сессию, брошенная истекает
+        for (int i = 0; i < 5; i++) {
+            Thread.sleep(20);
+            assertNotNull(service.getSessionUser(active));
+        }
+        assertFalse(service.borrowBook(idle, "Book").isSuccess());
+        assertTrue(service.borrowBook(active, "Book").isSuccess());
+        Thread.sleep(80);
+        assertEquals(1, service.expireSessions());
+        assertEquals(0, service.getSessionCount());
+        assertThrows(IllegalArgumentException.class, () -> service.setSessionIdleTimeout(0, TimeUnit.SECONDS));
     }
 
     @Test
@@ -102,36 +130,38 @@ class LibraryServiceTest {
     @Test
     void testBorrowAndReturnBook() {
         service.registerUser("borrower", "pass123");
-        service.loginUser("borrower", "pass123");
-        User currentUser = service.getLoggedInUser();
+        String session = service.loginUser("borrower", "pass123");
+        User currentUser = service.getSessionUser(session);
         assertNotNull(currentUser);
 
         Book book = new Book("Test Book", "Test Author", 2020);
         service.addBook(book);
 
-        assertTrue(service.borrowBook("Test Book"));
+        assertTrue(service.borrowBook(session, "Test Book").isSuccess());
         assertTrue(book.isBorrowed());
         assertEquals("borrower", book.getBorrowedBy());
 
-        assertFalse(service.borrowBook("Test Book"));
+        assertEquals(CirculationStatus.ALREADY_BORROWED, service.borrowBook(session, "Test Book").getStatus());
 
-        assertFalse(service.borrowBook("Nonexistent Book"));
+        assertEquals(CirculationStatus.NOT_FOUND, service.borrowBook(session, "Nonexistent Book").getStatus());
 
-        assertTrue(service.returnBook("Test Book"));
+        assertTrue(service.returnBook(session, "Test Book").isSuccess());
         assertFalse(book.isBorrowed());
         assertNull(book.getBorrowedBy());
 
-        assertFalse(service.returnBook("Test Book"));
+        assertEquals(CirculationStatus.NOT_BORROWED, service.returnBook(session, "Test Book").getStatus());
 
-        assertFalse(service.returnBook("Nonexistent Book"));
+        assertEquals(CirculationStatus.NOT_FOUND, service.returnBook(session, "Nonexistent Book").getStatus());
 
         Book book2 = new Book("Another Book", "Another Author", 2021);
         service.addBook(book2);
-        service.borrowBook("Another Book");
-        service.logoutUser();
+        service.borrowBook(session, "Another Book");
+        service.logoutUser(session);
         service.registerUser("otheruser", "otherpass");
-        service.loginUser("otheruser", "otherpass");
-        assertFalse(service.returnBook("Another Book"));
+        String other = service.loginUser("otheruser", "otherpass");
+        CirculationResult refused = service.returnBook(other, "Another Book");
+        assertEquals(CirculationStatus.NOT_OWNER, refused.getStatus());
+        assertEquals("borrower", refused.getBorrowedBy());
     }
 
     @Test
@@ -139,9 +169,9 @@ class LibraryServiceTest {
         Book book = new Book("Login Test Book", "Test Author", 2020);
         service.addBook(book);
 
-        service.logoutUser();
-        assertFalse(service.borrowBook("Login Test Book"));
-        assertFalse(service.returnBook("Login Test Book"));
+        assertEquals(CirculationStatus.NOT_LOGGED_IN, service.borrowBook(null, "Login Test Book").getStatus());
+        assertFalse(service.returnBook(null, "Login Test Book").isSuccess());
+        assertFalse(service.borrowBook("no-such-session", "Login Test Book").isSuccess());
     }
 
     @Test
@@ -173,11 +203,282 @@ class LibraryServiceTest {
         assertEquals("B", sortedByTitleBuiltIn.get(1).getTitle());
         assertEquals("C", sortedByTitleBuiltIn.get(2).getTitle());
 
+        List<Book> sortedByAuthorParallel = service.sortBooks("2", "5");
+        assertEquals("A", sortedByAuthorParallel.get(0).getAuthor());
+        assertEquals("B", sortedByAuthorParallel.get(1).getAuthor());
+        assertEquals("C", sortedByAuthorParallel.get(2).getAuthor());
+
         List<Book> originalBooks = new java.util.ArrayList<>(service.getAllBooks());
-        List<Book> invalidSortType = service.sortBooks("99", "1");
-        assertEquals(originalBooks.size(), invalidSortType.size());
+        assertThrows(IllegalArgumentException.class, () -> service.sortBooks("99", "1"));
+        assertThrows(IllegalArgumentException.class, () -> service.sortBooks("1", "99"));
+        assertThrows(IllegalArgumentException.class, () -> service.sortBooks("3", "99"));
+        assertThrows(IllegalArgumentException.class, () -> service.sortBooks("1", ""));
+        assertThrows(IllegalArgumentException.class, () -> service.sortBooks("1", "0"));
+        IllegalArgumentException error =
+                assertThrows(IllegalArgumentException.class, () -> service.sortBooks("1", "6"));
+        assertEquals("Некорректный алгоритм сортировки: 6", error.getMessage());
+        // Каталог от неудачных вызовов не меняется
+        assertEquals(originalBooks, service.getAllBooks());
+    }
+
+    @Test
+    void testOpenAddressingEngine() {
+        service = new LibraryService(MyTable.Engine.OPEN_ADDRESSING);
+        service.addBook(new Book("Java Programming", "Smith", 2010));
+        service.addBook(new Book("Python Basics", "Jones", 2015));
+        assertEquals(2, service.getAllBooks().size());
+        assertEquals(1, service.searchBooks("java").size());
+        assertNotNull(service.binarySearchBookByTitle("python basics"));
+
+        String session = service.loginUser("admin", "adminpass");
+        assertNotNull(session);
+        assertTrue(service.borrowBook(session, "Python Basics").isSuccess());
+        assertTrue(service.returnBook(session, "Python Basics").isSuccess());
+    }
+
+    @Test
+    void testTitleIndexCopiesAndReplacement() {
+        service.registerUser("reader", "pass");
+        String session = service.loginUser("reader", "pass");
+
+        Book first = new Book("Shared Title", "Author A", 2000);
+        Book second = new Book("shared title", "Author B", 2001);
+        service.addBook(first);
+        service.addBook(second);
+
+        // Поиск без учёта регистра, выдаются оба экземпляра по очереди
+        assertTrue(service.borrowBook(session, "SHARED TITLE").isSuccess());
+        assertTrue(service.borrowBook(session, "Shared Title").isSuccess());
+        assertFalse(service.borrowBook(session, "shared title").isSuccess());
+        assertTrue(first.isBorrowed());
+        assertTrue(second.isBorrowed());
+
+        assertTrue(service.returnBook(session, "Shared title").isSuccess());
+        assertTrue(service.returnBook(session, "Shared title").isSuccess());
+        assertFalse(service.returnBook(session, "Shared title").isSuccess());
+
+        // Книга с тем же ключом заменяет прежнюю и в индексе
+        Book replacement = new Book("Shared Title", "Author A", 2000);
+        service.addBook(replacement);
+        assertEquals(2, service.getAllBooks().size());
+        assertTrue(service.borrowBook(session, "Shared Title").isSuccess());
+        assertTrue(replacement.isBorrowed());
+        assertFalse(first.isBorrowed());
+    }
+
+    @Test
+    void testSearchBooksByTitlePrefix() {
+        service.addBook(new Book("Java Concurrency", "Goetz", 2006));
+        service.addBook(new Book("java puzzlers", "Bloch", 2005));
+        service.addBook(new Book("JavaScript", "Crockford", 2008));
+        service.addBook(new Book("Python Basics", "Jones", 2015));
+
+        List<Book> found = service.searchBooksByTitlePrefix("JAVA");
+        assertEquals(3, found.size());
+        assertEquals("Java Concurrency", found.get(0).getTitle());
+        assertEquals("java puzzlers", found.get(1).getTitle());
+        assertEquals("JavaScript", found.get(2).getTitle());
+
+        assertEquals(1, service.searchBooksByTitlePrefix("java p").size());
+        assertTrue(service.searchBooksByTitlePrefix("Ruby").isEmpty());
+    }
+
+    @Test
+    void testAuthorsAndBorrowersAreShared() {
+        service.registerUser(new String("reader"), "pass");
+        Book first = new Book("Война и мир", new String("Лев Николаевич Толстой"), 1869);
+        Book copy = new Book("Анна Каренина", new String("Лев Николаевич Толстой"), 1877);
+        // Пока книги не в каталоге, пул строк не пополняется. Пул общий для
+        // всех тестов, поэтому автор здесь не встречается больше нигде
+        assertNotSame(first.getAuthor(), copy.getAuthor());
+
+        service.addBook(first);
+        // Следующие книги автора из каталога получают ту же строку уже при создании
+        Book second = new Book("Анна Каренина", new String("Лев Николаевич Толстой"), 1877);
+        Book third = new Book("Воскресение", new String("Лев Николаевич Толстой"), 1899);
+        service.addBooks(List.of(second, third));
+        assertSame(first.getAuthor(), second.getAuthor());
+        assertSame(first.getAuthor(), third.getAuthor());
+        String session = service.loginUser("reader", "pass");
+        assertTrue(service.borrowBook(session, "Война и мир").isSuccess());
+        // Читатель хранится номером и возвращается той же строкой, что у пользователя
+        assertSame(service.getSessionUser(session).getUsername(), first.getBorrowedBy());
+        assertTrue(service.returnBook(session, "Война и мир").isSuccess());
+        assertNull(first.getBorrowedBy());
+    }
+
+    @Test
+    void testUnknownNamesStayOutOfUsernamePool() {
+        Book book = new Book("Пул имён", "Автор", 2000);
+        service.addBook(book);
+        // Возврат и неудачная выдача от незнакомого имени пул не пополняют
+        assertFalse(book.tryReturn(new String("незнакомец-пул")));
+        assertTrue(book.tryBorrow(new String("читатель-пул")));
+        assertFalse(book.tryBorrow(new String("незнакомец-пул")));
+        assertFalse(service.registerUser(new String("admin"), "other"));
+        assertNotSame(new User(new String("незнакомец-пул"), "p").getUsername(),
+                new User(new String("незнакомец-пул"), "p").getUsername());
+        // Состоявшаяся выдача и успешная регистрация имя добавляют
+        assertSame(book.getBorrowedBy(), new User(new String("читатель-пул"), "p").getUsername());
+        assertTrue(service.registerUser(new String("новичок-пул"), "p"));
+        assertSame(new User(new String("новичок-пул"), "p").getUsername(),
+                new User(new String("новичок-пул"), "p").getUsername());
+    }
+
+    @Test
+    void testCompositeKeyDoesNotCollide() {
+        // При склейке строк оба ключа были бы "ABC2000" и вторая книга заменила бы первую
+        Book first = new Book("AB", "C", 2000);
+        Book second = new Book("A", "BC", 2000);
+        Book third = new Book("Книга", "Автор1", 999);
+        Book fourth = new Book("Книга", "Автор", 1999);
+        service.addBook(first);
+        service.addBook(second);
+        service.addBook(third);
+        service.addBook(fourth);
+
+        assertEquals(4, service.getBookCount());
+        assertSame(first, service.findBook("AB", "C", 2000));
+        assertSame(second, service.findBook("A", "BC", 2000));
+        assertSame(fourth, service.findBook("Книга", "Автор", 1999));
+        assertNull(service.findBook("ABC", "", 2000));
+
+        assertNotEquals(first.getKey(), second.getKey());
+        assertEquals(new BookKey("AB", "C", 2000), first.getKey());
+        assertEquals(new BookKey("AB", "C", 2000).hashCode(), first.hashCode());
+        assertEquals(new Book("AB", "C", 2000), first);
+
+        // Упорядоченный вид каталога содержит все четыре книги
+        assertEquals(4, service.sortBooksByTitle().size());
+        assertEquals(4, service.getAllBooks().size());
+        assertSame(third, service.findBook("Книга", "Автор1", 999));
+    }
 
-        List<Book> invalidAlgoType = service.sortBooks("1", "99");
-        assertEquals("A", invalidAlgoType.get(0).getTitle());
+    @Test
+    void testSortBooksByTitleUsesIndexOrder() {
+        service.addBook(new Book("война и мир", "Лев Толстой", 1869));
+        service.addBook(new Book("Анна Каренина", "Лев Толстой", 1877));
+        service.addBook(new Book("Бесы", "Фёдор Достоевский", 1872));
+        service.addBook(new Book("Война и мир", "Лев Толстой", 1869));
+
+        List<Book> ordered = service.sortBooksByTitle();
+        assertEquals(4, ordered.size());
+        for (int i = 1; i < ordered.size(); i++) {
+            assertTrue(String.CASE_INSENSITIVE_ORDER.compare(ordered.get(i - 1).getTitle(), ordered.get(i).getTitle()) <= 0);
+        }
+        assertEquals("Анна Каренина", ordered.get(0).getTitle());
+        // Новая книга сразу видна в упорядоченном виде без перестроения
+        service.addBook(new Book("Азазель", "Борис Акунин", 1998));
+        assertEquals("Азазель", service.sortBooksByTitle().get(0).getTitle());
+    }
+
+    @Test
+    void testOrderedEngineKeepsInsertionOrder() {
+        service = new LibraryService(MyTable.Engine.CHAINING_ORDERED);
+        String[] titles = {"Война и мир", "Анна Каренина", "Бесы", "1984"};
+        for (String title : titles) {
+            service.addBook(new Book(title, "Автор", 1900));
+        }
+        List<Book> all = service.getAllBooks();
+        for (int i = 0; i < titles.length; i++) {
+            assertEquals(titles[i], all.get(i).getTitle());
+        }
+    }
+
+    @Test
+    void testPages() {
+        for (int i = 0; i < 45; i++) {
+            service.addBook(new Book("Книга " + (i % 9), "Автор " + (i % 4), 1950 + i % 7));
+        }
+        // Страницы каталога покрывают его целиком без повторов
+        List<Book> all = service.getAllBooks();
+        List<Book> paged = new ArrayList<>();
+        Page page = service.getBooksPage(0, 20);
+        while (true) {
+            assertEquals(45, page.getTotal());
+            paged.addAll(page.getBooks());
+            if (!page.hasNext()) break;
+            page = service.getBooksPage(page.getNextOffset(), 20);
+        }
+        assertEquals(all, paged);
+        assertTrue(service.getBooksPage(100, 20).getBooks().isEmpty());
+
+        // Страница сортировки совпадает с соответствующим отрезком полной сортировки
+        for (String sortType : new String[] {"1", "2", "3"}) {
+            List<Book> sorted = service.sortBooks(sortType, "2");
+            assertEquals(sorted.subList(0, 20), service.sortBooksPage(sortType, 0, 20).getBooks());
+            Page last = service.sortBooksPage(sortType, 40, 20);
+            assertEquals(sorted.subList(40, 45), last.getBooks());
+            assertFalse(last.hasNext());
+        }
+
+        Page found = service.searchBooksPage("книга 3", 0, 2);
+        assertEquals(2, found.getBooks().size());
+        assertEquals(5, found.getTotal());
+        assertThrows(IllegalArgumentException.class, () -> service.getBooksPage(-1, 20));
+        assertThrows(IllegalArgumentException.class, () -> service.sortBooksPage("1", 0, 0));
+        assertThrows(IllegalArgumentException.class, () -> service.sortBooksPage("9", 0, 20));
+    }
+
+    @Test
+    void testFilterBooksParallelMatchesSequential() {
+        // Параллельный перебор находит те же книги в том же порядке
+        for (MyTable.Engine engine : MyTable.Engine.values()) {
+            LibraryService service = new LibraryService(engine);
+            List<Book> batch = new ArrayList<>();
+            for (int i = 0; i < 30_000; i++) {
+                batch.add(new Book("Книга " + i, "Автор " + (i % 300), 1900 + i % 124));
+            }
+            service.addBooks(batch);
+
+            service.setParallelThreshold(Integer.MAX_VALUE);
+            List<Book> sequential = service.filterBooks(book -> String.valueOf(book.getYear()).contains("19"));
+            service.setParallelThreshold(0);
+            List<Book> parallel = service.filterBooks(book -> String.valueOf(book.getYear()).contains("19"));
+            assertEquals(sequential, parallel, engine.name());
+            assertFalse(parallel.isEmpty());
+            assertEquals(service.getBookCount(), service.filterBooks(book -> true).size());
+        }
+        assertThrows(IllegalArgumentException.class, () -> service.setParallelThreshold(-1));
+    }
+
+    @Test
+    void testBorrowAndReturnBatch() {
+        service.registerUser("reader", "pass");
+        service.registerUser("other", "pass");
+        service.addBook(new Book("Дюна", "Фрэнк Герберт", 1965));
+        service.addBook(new Book("Дюна", "Фрэнк Герберт", 1966));
+        service.addBook(new Book("Солярис", "Станислав Лем", 1961));
+        String reader = service.loginUser("reader", "pass");
+        String other = service.loginUser("other", "pass");
+
+        List<CirculationResult> borrowed = service.borrowBatch(reader, List.of("дюна", "Дюна", "ДЮНА", "Нет такой"));
+        assertEquals(List.of(CirculationStatus.BORROWED, CirculationStatus.BORROWED,
+                CirculationStatus.ALREADY_BORROWED, CirculationStatus.NOT_FOUND),
+                borrowed.stream().map(CirculationResult::getStatus).collect(Collectors.toList()));
+        assertEquals("reader", borrowed.get(0).getBorrowedBy());
+        assertEquals("reader", borrowed.get(2).getBorrowedBy());
+        assertNotSame(borrowed.get(0).getBook(), borrowed.get(1).getBook());
+        assertEquals("ДЮНА", borrowed.get(2).getTitle());
+
+        List<CirculationResult> returned = service.returnBatch(other, List.of("Дюна", "Солярис"));
+        assertEquals(CirculationStatus.NOT_OWNER, returned.get(0).getStatus());
+        assertEquals("reader", returned.get(0).getBorrowedBy());
+        assertEquals(CirculationStatus.NOT_BORROWED, returned.get(1).getStatus());
+
+        // Ящик возврата: конкретные экземпляры по ключам
+        BookKey second = borrowed.get(1).getBook().getKey();
+        returned = service.returnBatchByKey(reader, List.of(second, second, new BookKey("Дюна", "Другой", 1965)));
+        assertEquals(CirculationStatus.RETURNED, returned.get(0).getStatus());
+        assertEquals(CirculationStatus.NOT_BORROWED, returned.get(1).getStatus());
+        assertEquals(CirculationStatus.NOT_FOUND, returned.get(2).getStatus());
+        assertTrue(borrowed.get(0).getBook().isBorrowed());
+        assertFalse(borrowed.get(1).getBook().isBorrowed());
+
+        service.logoutUser(reader);
+        for (CirculationResult result : service.returnBatch(reader, List.of("Дюна", "Солярис"))) {
+            assertEquals(CirculationStatus.NOT_LOGGED_IN, result.getStatus());
+            assertFalse(result.isSuccess());
+        }
     }
-} 
\ No newline at end of file
+}
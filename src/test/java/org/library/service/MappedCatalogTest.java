@@ -0,0 +1,266 @@
+package org.library.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.library.model.Book;
+import org.library.model.User;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import static org.junit.jupiter.api.Assertions.*;
+
+class MappedCatalogTest {
+
+    private static List<Book> sampleBooks() {
+        String[] words = {"Война", "мир", "Java", "java", "Code", "Clean", "Мастер", "кот", "ab", "abc"};
+        Random random = new Random(42);
+        List<Book> books = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            String title = words[random.nextInt(words.length)] + " " + words[random.nextInt(words.length)] + (i % 700);
+            String author = words[random.nextInt(words.length)] + random.nextInt(50);
+            books.add(new Book(title, author, 1900 + random.nextInt(124)));
+        }
+        return books;
+    }
+
+    private static LibraryService serviceOver(Path file) throws IOException {
+        LibraryService service = new LibraryService();
+        service.loadBase(MappedCatalog.open(file));
+        return service;
+    }
+
+    @Test
+    void testRoundTrip(@TempDir Path dir) throws IOException {
+        List<Book> books = sampleBooks();
+        books.get(5).setBorrowedBy("reader");
+        Path file = dir.resolve("catalog.map");
+        MappedCatalog.write(file, 7, List.of(new User("reader", "secret")), books);
+
+        MappedCatalog catalog = MappedCatalog.open(file);
+        assertEquals(7, catalog.getReplayFrom());
+        assertEquals(books.size(), catalog.size());
+        assertEquals("reader", catalog.getUsers().get(0).getUsername());
+        for (int i = 0; i < books.size(); i++) {
+            assertEquals(books.get(i), catalog.peek(i));
+        }
+        Book borrowed = catalog.book(5);
+        assertTrue(borrowed.isBorrowed());
+        assertEquals("reader", borrowed.getBorrowedBy());
+        // Одна и та же книга при каждом обращении
+        assertSame(borrowed, catalog.book(5));
+        assertFalse(catalog.book(6).isBorrowed());
+
+        // Выданную книгу peek тоже отдаёт постоянной, свободную — временной копией
+        MappedCatalog reopened = MappedCatalog.open(file);
+        Book peeked = reopened.peek(5);
+        assertEquals("reader", peeked.getBorrowedBy());
+        assertSame(peeked, reopened.book(5));
+        assertNotSame(reopened.peek(7), reopened.peek(7));
+    }
+
+    @Test
+    void testRewriteFromServiceStream(@TempDir Path dir) throws IOException {
+        List<Book> books = sampleBooks();
+        Path first = dir.resolve("first.map");
+        MappedCatalog.write(first, 0, List.of(), books);
+        LibraryService service = serviceOver(first);
+        service.addBook(new Book("Новая книга", "Автор", 2000));
+        service.registerUser("reader", "secret");
+        String session = service.loginUser("reader", "secret");
+        assertTrue(service.borrowBook(session, "Новая книга").isSuccess());
+        assertTrue(service.borrowBook(session, books.get(3).getTitle()).isSuccess());
+
+        // Следующий снимок пишется прямо из обхода сервиса, поверх отображённого
+        Path second = dir.resolve("second.map");
+        MappedCatalog.write(second, 1, service.getAllUsers(), service::forEachBook);
+        LibraryService restored = serviceOver(second);
+        assertEquals(service.getAllBooks(), restored.getAllBooks());
+        assertEquals("reader", restored.findBook("Новая книга", "Автор", 2000).getBorrowedBy());
+        List<Book> before = service.getAllBooks();
+        List<Book> after = restored.getAllBooks();
+        for (int i = 0; i < before.size(); i++) {
+            assertEquals(before.get(i).getBorrowedBy(), after.get(i).getBorrowedBy());
+        }
+        assertEquals(service.binarySearchBookByTitle("Новая книга"), restored.binarySearchBookByTitle("Новая книга"));
+        assertEquals(service.searchBooks("java").size(), restored.searchBooks("java").size());
+    }
+
+    @Test
+    void testQueriesMatchInMemoryCatalog(@TempDir Path dir) throws IOException {
+        List<Book> books = sampleBooks();
+        Path file = dir.resolve("catalog.map");
+        MappedCatalog.write(file, 0, List.of(), books);
+        LibraryService mapped = serviceOver(file);
+        LibraryService memory = new LibraryService();
+        for (Book book : books) {
+            memory.addBook(new Book(book.getTitle(), book.getAuthor(), book.getYear()));
+        }
+
+        assertEquals(memory.getBookCount(), mapped.getBookCount());
+        String[] queries = {"", "a", "ab", "abc", "JAVA", "clean c", "мир", "МИР", "19", "2001", "кот1", "zzz", "Code12"};
+        for (String query : queries) {
+            assertEquals(memory.searchBooks(query), mapped.searchBooks(query), "Запрос: " + query);
+        }
+        for (String prefix : new String[] {"", "ja", "JAVA C", "мастер", "zzz"}) {
+            assertEquals(memory.searchBooksByTitlePrefix(prefix), mapped.searchBooksByTitlePrefix(prefix), "Префикс: " + prefix);
+        }
+        for (Book book : books) {
+            assertEquals(memory.binarySearchBookByTitle(book.getTitle().toUpperCase()),
+                    mapped.binarySearchBookByTitle(book.getTitle().toUpperCase()));
+        }
+        assertNull(mapped.binarySearchBookByTitle("Нет такой книги"));
+    }
+
+    @Test
+    void testSearchWithManyDistinctGrams(@TempDir Path dir) throws IOException {
+        // Случайные названия дают десятки тысяч разных триграмм, и таблица
+        // счётчиков расширяется много раз, в том числе посреди книги. Каждая
+        // половина названия повторяется, чтобы триграммы книги встречались
+        // и до расширения, и после него
+        String alphabet = "abcdefghijklmnopqrstuvwxyzабвгдежзиклмнопрстуфхцчшщэюя0123456789";
+        Random random = new Random(7);
+        List<Book> books = new ArrayList<>();
+        for (int i = 0; i < 1500; i++) {
+            StringBuilder title = new StringBuilder();
+            for (int j = 0; j < 20; j++) title.append(alphabet.charAt(random.nextInt(alphabet.length())));
+            books.add(new Book(title + " " + title, "Автор" + (i % 37), 1900 + random.nextInt(124)));
+        }
+        Path file = dir.resolve("catalog.map");
+        MappedCatalog.write(file, 0, List.of(), books);
+        LibraryService mapped = serviceOver(file);
+        LibraryService memory = new LibraryService();
+        for (Book book : books) {
+            memory.addBook(new Book(book.getTitle(), book.getAuthor(), book.getYear()));
+        }
+
+        // Повторно посчитанная триграмма портит лишь несколько списков,
+        // поэтому ищется каждая книга, а не случайная выборка
+        for (Book book : books) {
+            String query = book.getTitle();
+            assertEquals(memory.searchBooks(query), mapped.searchBooks(query), "Запрос: " + query);
+            query = query.substring(5, 12);
+            assertEquals(memory.searchBooks(query), mapped.searchBooks(query), "Запрос: " + query);
+        }
+        for (int i = 0; i < 200; i++) {
+            String query = "" + alphabet.charAt(random.nextInt(alphabet.length()))
+                    + alphabet.charAt(random.nextInt(alphabet.length()))
+                    + alphabet.charAt(random.nextInt(alphabet.length()));
+            assertEquals(memory.searchBooks(query), mapped.searchBooks(query), "Запрос: " + query);
+        }
+    }
+
+    @Test
+    void testOverlayOnTopOfSnapshot(@TempDir Path dir) throws IOException {
+        List<Book> books = List.of(
+                new Book("1984", "Джордж Оруэлл", 1949),
+                new Book("Мастер и Маргарита", "Михаил Булгаков", 1967));
+        Path file = dir.resolve("catalog.map");
+        MappedCatalog.write(file, 0, List.of(), books);
+        LibraryService service = serviceOver(file);
+        assertThrows(IllegalStateException.class, () -> service.loadBase(MappedCatalog.open(file)));
+
+        // Замена книги снимка книгой с тем же ключом скрывает старую
+        Book replacement = new Book("1984", "Джордж Оруэлл", 1949);
+        service.addBook(replacement);
+        service.addBook(new Book("1984", "Другой автор", 2000));
+        assertEquals(3, service.getBookCount());
+        assertEquals(3, service.getAllBooks().size());
+        assertSame(replacement, service.findBook("1984", "Джордж Оруэлл", 1949));
+        assertEquals(2, service.searchBooks("1984").size());
+
+        // Выдача книги из снимка меняет тот же объект, что возвращает поиск
+        service.registerUser("reader", "secret");
+        String session = service.loginUser("reader", "secret");
+        assertTrue(service.borrowBook(session, "мастер и маргарита").isSuccess());
+        Book master = service.findBook("Мастер и Маргарита", "Михаил Булгаков", 1967);
+        assertTrue(master.isBorrowed());
+        assertSame(master, service.searchBooks("Булгаков").get(0));
+        assertTrue(service.returnBook(session, "Мастер и Маргарита").isSuccess());
+        assertFalse(master.isBorrowed());
+    }
+
+    @Test
+    void testPagesOverSnapshotAndOverlay(@TempDir Path dir) throws IOException {
+        List<Book> books = sampleBooks();
+        Path file = dir.resolve("catalog.map");
+        MappedCatalog.write(file, 0, List.of(), books);
+        LibraryService service = serviceOver(file);
+        // Замена книги снимка и новые книги поверх него
+        service.addBook(new Book(books.get(5).getTitle(), books.get(5).getAuthor(), books.get(5).getYear()));
+        for (int i = 0; i < 30; i++) service.addBook(new Book("Новая " + i, "Автор", 2000));
+
+        List<Book> all = service.getAllBooks();
+        List<Book> paged = new ArrayList<>();
+        for (int offset = 0; offset < all.size(); offset += 128) {
+            paged.addAll(service.getBooksPage(offset, 128).getBooks());
+        }
+        assertEquals(all, paged);
+        for (String sortType : new String[] {"1", "2", "3"}) {
+            assertEquals(service.sortBooks(sortType, "2").subList(100, 120), service.sortBooksPage(sortType, 100, 20).getBooks());
+        }
+    }
+
+    @Test
+    void testPagesReturnLiveBooks(@TempDir Path dir) throws IOException {
+        List<Book> books = sampleBooks();
+        Path file = dir.resolve("catalog.map");
+        MappedCatalog.write(file, 0, List.of(), books);
+        LibraryService service = serviceOver(file);
+        service.addBook(new Book("Новая", "Автор", 2000));
+
+        // Книги страницы — те же объекты, что у findBook, а не копии снимка
+        List<Book> page = new ArrayList<>(service.getBooksPage(1990, 20).getBooks());
+        page.addAll(service.sortBooksPage("1", 0, 20).getBooks());
+        page.addAll(service.sortBooksPage("3", 500, 20).getBooks());
+        for (Book book : page) {
+            assertSame(service.findBook(book.getTitle(), book.getAuthor(), book.getYear()), book);
+        }
+        // Поэтому выдача после получения страницы видна на её книгах
+        Book first = page.get(0);
+        assertTrue(first.tryBorrow("reader"));
+        assertTrue(service.findBook(first.getTitle(), first.getAuthor(), first.getYear()).isBorrowed());
+    }
+
+    @Test
+    void testFilterBooksOverSnapshot(@TempDir Path dir) throws IOException {
+        List<Book> books = sampleBooks();
+        Path file = dir.resolve("catalog.map");
+        MappedCatalog.write(file, 0, List.of(), books);
+        LibraryService service = serviceOver(file);
+        service.addBook(new Book(books.get(7).getTitle(), books.get(7).getAuthor(), books.get(7).getYear()));
+        for (int i = 0; i < 30; i++) service.addBook(new Book("Новая java " + i, "Автор", 2000));
+
+        service.setParallelThreshold(Integer.MAX_VALUE);
+        List<Book> sequential = service.filterBooks(book -> book.getTitle().toLowerCase().contains("java"));
+        service.setParallelThreshold(0);
+        List<Book> parallel = service.filterBooks(book -> book.getTitle().toLowerCase().contains("java"));
+        assertEquals(sequential, parallel);
+        // Заменённая книга снимка не попадает в результат дважды
+        assertEquals(service.getBookCount(), service.filterBooks(book -> true).size());
+    }
+
+    @Test
+    void testFilterBooksReturnsLiveBooks(@TempDir Path dir) throws IOException {
+        List<Book> books = sampleBooks();
+        Path file = dir.resolve("catalog.map");
+        MappedCatalog.write(file, 0, List.of(), books);
+        LibraryService service = serviceOver(file);
+
+        // Книги снимка, к которым ещё не обращались: отбор, затем выдача
+        int[] thresholds = {Integer.MAX_VALUE, 0};
+        for (int k = 0; k < thresholds.length; k++) {
+            service.setParallelThreshold(thresholds[k]);
+            Book target = books.get(40 + k);
+            List<Book> found = service.filterBooks(book -> book.equals(target));
+            assertEquals(1, found.size());
+            Book book = found.get(0);
+            assertSame(service.findBook(target.getTitle(), target.getAuthor(), target.getYear()), book);
+            // Выдача после отбора видна на книге из результата
+            assertTrue(service.findBook(target.getTitle(), target.getAuthor(), target.getYear()).tryBorrow("reader"));
+            assertTrue(book.isBorrowed());
+            assertEquals("reader", book.getBorrowedBy());
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package org.library.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.library.model.Book;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import static org.junit.jupiter.api.Assertions.*;
+
+class SearchIndexTest {
+
+    private static List<Book> bruteForce(List<Book> books, String query) {
+        List<Book> result = new ArrayList<>();
+        for (Book book : books) {
+            if (book.getTitle().toLowerCase().contains(query.toLowerCase()) ||
+                book.getAuthor().toLowerCase().contains(query.toLowerCase()) ||
+                Integer.toString(book.getYear()).contains(query)) {
+                result.add(book);
+            }
+        }
+        return result;
+    }
+
+    @Test
+    void testMatchesFullScan() {
+        String[] words = {"Война", "мир", "Java", "java", "Code", "Clean", "Мастер", "кот", "ab", "abc"};
+        Random random = new Random(42);
+        SearchIndex index = new SearchIndex();
+        List<Book> books = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            String title = words[random.nextInt(words.length)] + " " + words[random.nextInt(words.length)] + i;
+            String author = words[random.nextInt(words.length)] + random.nextInt(50);
+            Book book = new Book(title, author, 1900 + random.nextInt(124));
+            books.add(book);
+            index.add(book);
+        }
+
+        String[] queries = {"", "a", "ab", "abc", "JAVA", "clean c", "мир", "МИР", "19", "2001", "1999",
+                "кот1", "java java", "zzz", "Code12", "a 1", "b"};
+        for (String query : queries) {
+            List<Book> expected = bruteForce(books, query);
+            List<Book> actual = index.search(query);
+            assertEquals(expected.size(), actual.size(), query);
+            assertTrue(actual.containsAll(expected), query);
+        }
+    }
+
+    @Test
+    void testReAddedBookKeepsSingleEntry() {
+        SearchIndex index = new SearchIndex();
+        Book original = new Book("Refactoring", "Fowler", 1999);
+        Book replacement = new Book("Refactoring", "Fowler", 1999);
+        index.add(original);
+        index.add(replacement);
+
+        List<Book> found = index.search("factor");
+        assertEquals(1, found.size());
+        assertSame(replacement, found.get(0));
+    }
+
+    @Test
+    void testResultsKeepInsertionOrder() {
+        // Книги разных полос возвращаются в порядке добавления, в том числе пакетом
+        SearchIndex index = new SearchIndex();
+        List<Book> books = new ArrayList<>();
+        for (int i = 0; i < 500; i++) books.add(new Book("Порядок " + i, "Автор " + (i % 7), 1950 + i % 60));
+        for (Book book : books.subList(0, 200)) index.add(book);
+        index.addAll(books.subList(200, books.size()));
+
+        assertEquals(books, index.search("порядок"));
+        assertEquals(bruteForce(books, "Автор 3"), index.search("Автор 3"));
+        assertEquals(bruteForce(books, "7"), index.search("7"));
+    }
+
+    @Test
+    @Timeout(value = 30, unit = TimeUnit.SECONDS)
+    void testSearchWhileAdding() throws InterruptedException {
+        SearchIndex index = new SearchIndex();
+        int writers = 4;
+        int perWriter = 5000;
+        AtomicReference<Throwable> error = new AtomicReference<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int w = 0; w < writers; w++) {
+            int writer = w;
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < perWriter; i++) {
+                    index.add(new Book("Поток" + writer + " книга " + i, "Автор", 2000));
+                }
+            }));
+        }
+        threads.add(new Thread(() -> {
+            // Поиск во время добавления видит только целые книги, без повторов
+            try {
+                for (int i = 0; i < 200; i++) {
+                    List<Book> found = index.search("поток1 ");
+                    for (Book book : found) assertTrue(book.getTitle().startsWith("Поток1 "));
+                    assertEquals(found.size(), found.stream().distinct().count());
+                }
+            } catch (Throwable t) {
+                error.set(t);
+            }
+        }));
+        for (Thread thread : threads) thread.start();
+        for (Thread thread : threads) thread.join();
+        assertNull(error.get());
+
+        assertEquals(perWriter, index.search("поток2 ").size());
+        assertEquals(writers * perWriter, index.search("книга").size());
+    }
+}
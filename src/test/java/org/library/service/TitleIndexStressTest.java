@@ -0,0 +1,73 @@
+package org.library.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.library.model.Book;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import static org.junit.jupiter.api.Assertions.*;
+
+class TitleIndexStressTest {
+
+    private LibraryService service;
+    private Random random;
+
+    @BeforeEach
+    void setUp() {
+        service = new LibraryService();
+        random = new Random(42);
+    }
+
+    @Test
+    @Timeout(value = 30, unit = TimeUnit.SECONDS)
+    void testBinarySearchLargeCatalog() {
+        int bookCount = 100_000;
+        List<String> titles = new ArrayList<>();
+        // Книги добавляются в случайном порядке, индекс сам держит их упорядоченными
+        for (int i = 0; i < bookCount; i++) titles.add("Book" + String.format("%06d", i));
+        List<String> shuffled = new ArrayList<>(titles);
+        Collections.shuffle(shuffled, random);
+        for (String title : shuffled) {
+            service.addBook(new Book(title, "Author" + random.nextInt(1000), 2000 + random.nextInt(24)));
+        }
+
+        for (int i = 0; i < 10000; i++) {
+            String title = titles.get(random.nextInt(bookCount));
+            Book found = service.binarySearchBookByTitle(title.toLowerCase());
+            assertNotNull(found, title);
+            assertEquals(title, found.getTitle());
+        }
+        // Названия между соседними и за границами каталога не находятся
+        assertNull(service.binarySearchBookByTitle("Book"));
+        assertNull(service.binarySearchBookByTitle("Book0000005"));
+        assertNull(service.binarySearchBookByTitle("Book" + bookCount));
+        assertNull(service.binarySearchBookByTitle("A"));
+        assertNull(service.binarySearchBookByTitle("Z"));
+    }
+
+    @Test
+    @Timeout(value = 30, unit = TimeUnit.SECONDS)
+    void testPrefixSearchLargeCatalog() {
+        int bookCount = 100_000;
+        for (int i = bookCount - 1; i >= 0; i--) {
+            service.addBook(new Book("Book" + String.format("%06d", i), "Author", 2000));
+        }
+
+        // Префикс выбирает ровно свою сотню книг, по порядку названий
+        for (int i = 0; i < 100; i++) {
+            int block = random.nextInt(bookCount / 100);
+            String prefix = "BOOK" + String.format("%04d", block);
+            List<Book> found = service.searchBooksByTitlePrefix(prefix);
+            assertEquals(100, found.size(), prefix);
+            for (int j = 0; j < found.size(); j++) {
+                assertEquals("Book" + String.format("%06d", block * 100 + j), found.get(j).getTitle());
+            }
+        }
+        assertEquals(bookCount, service.searchBooksByTitlePrefix("book").size());
+        assertTrue(service.searchBooksByTitlePrefix("Bookz").isEmpty());
+    }
+}
@@ -0,0 +1,98 @@
+package org.library.utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import static org.junit.jupiter.api.Assertions.*;
+
+class MyConcurrentHashTableStressTest {
+
+    @Test
+    @Timeout(value = 20, unit = TimeUnit.SECONDS)
+    void testMultiThreadedInsertion() throws Exception {
+        MyConcurrentHashTable<String, Integer> table = new MyConcurrentHashTable<>();
+        int threads = 8;
+        int perThread = 50000;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+
+        // Каждый поток пишет свой диапазон ключей, при этом сегменты
+        // расширяются одновременно с вставками из других потоков
+        for (int t = 0; t < threads; t++) {
+            int base = t * perThread;
+            futures.add(pool.submit(() -> {
+                start.await();
+                for (int i = base; i < base + perThread; i++) {
+                    table.put("key" + i, i);
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> f : futures) f.get();
+        pool.shutdown();
+
+        assertEquals(threads * perThread, table.size());
+        assertEquals(threads * perThread, table.values().size());
+        for (int i = 0; i < threads * perThread; i += 13) {
+            assertEquals(i, table.get("key" + i));
+        }
+    }
+
+    @Test
+    @Timeout(value = 30, unit = TimeUnit.SECONDS)
+    void testMixedWorkloadThroughput() throws Exception {
+        MyConcurrentHashTable<Integer, Integer> table = new MyConcurrentHashTable<>();
+        int keySpace = 100000;
+        for (int i = 0; i < keySpace; i++) table.put(i, i);
+
+        int threads = Math.max(4, Runtime.getRuntime().availableProcessors());
+        int opsPerThread = 500000;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger wrongReads = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+
+        // 90% чтений, 10% записей: значение по ключу всегда равно ключу,
+        // поэтому любое другое прочитанное значение — ошибка синхронизации
+        for (int t = 0; t < threads; t++) {
+            long seed = 42 + t;
+            futures.add(pool.submit(() -> {
+                Random random = new Random(seed);
+                start.await();
+                for (int i = 0; i < opsPerThread; i++) {
+                    int key = random.nextInt(keySpace);
+                    if (random.nextInt(10) == 0) {
+                        table.put(key, key);
+                    } else {
+                        Integer value = table.get(key);
+                        if (value == null || value != key) wrongReads.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+        long startTime = System.nanoTime();
+        start.countDown();
+        for (Future<?> f : futures) f.get();
+        long elapsed = System.nanoTime() - startTime;
+        pool.shutdown();
+
+        long totalOps = (long) threads * opsPerThread;
+        long opsPerSecond = totalOps * 1_000_000_000L / elapsed;
+        System.out.println("Concurrent table throughput (" + threads + " threads): " + opsPerSecond + " ops/s");
+
+        assertEquals(0, wrongReads.get());
+        assertEquals(keySpace, table.size());
+        assertTrue(opsPerSecond > 100_000);
+    }
+}
@@ -0,0 +1,117 @@
+package org.library.utils;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.stream.StreamSupport;
+
+class MyConcurrentHashTableTest {
+    @Test
+    void testPutAndGet() {
+        MyConcurrentHashTable<String, Integer> table = new MyConcurrentHashTable<>();
+        table.put("a", 1);
+        table.put("b", 2);
+        table.put("a", 3);
+        assertEquals(3, table.get("a"));
+        assertEquals(2, table.get("b"));
+        assertNull(table.get("c"));
+        assertEquals(2, table.size());
+    }
+
+    @Test
+    void testPutIfAbsent() {
+        MyConcurrentHashTable<String, Integer> table = new MyConcurrentHashTable<>();
+        assertNull(table.putIfAbsent("a", 1));
+        assertEquals(1, table.putIfAbsent("a", 2));
+        assertEquals(1, table.get("a"));
+    }
+
+    @Test
+    void testRemoveAndNullKey() {
+        MyConcurrentHashTable<String, Integer> table = new MyConcurrentHashTable<>();
+        table.put(null, 42);
+        table.put("a", 1);
+        assertEquals(42, table.get(null));
+        assertTrue(table.remove(null));
+        assertFalse(table.remove(null));
+        assertTrue(table.remove("a"));
+        assertEquals(0, table.size());
+    }
+
+    @Test
+    void testResizeAndValues() {
+        MyConcurrentHashTable<Integer, Integer> table = new MyConcurrentHashTable<>(4);
+        for (int i = 0; i < 10000; i++) table.put(i, i * 2);
+        for (int i = 0; i < 10000; i++) assertEquals(i * 2, table.get(i));
+        List<Integer> vals = table.values();
+        assertEquals(10000, vals.size());
+        table.clear();
+        assertEquals(0, table.size());
+        assertNull(table.get(1));
+    }
+
+    @Test
+    void testEnsureCapacity() {
+        // Расширение заранее не теряет уже вставленные элементы
+        MyConcurrentHashTable<Integer, Integer> table = new MyConcurrentHashTable<>();
+        for (int i = 0; i < 100; i++) table.put(i, i);
+        table.ensureCapacity(100_000);
+        for (int i = 100; i < 100_000; i++) table.put(i, i);
+        assertEquals(100_000, table.size());
+        for (int i = 0; i < 100_000; i++) assertEquals(i, table.get(i));
+        table.ensureCapacity(10);
+        assertEquals(100_000, table.size());
+    }
+
+    @Test
+    void testValueIterator() {
+        MyConcurrentHashTable<Integer, Integer> table = new MyConcurrentHashTable<>();
+        assertFalse(table.valueIterator().hasNext());
+        for (int i = 0; i < 5000; i++) table.put(i, i);
+        for (int i = 0; i < 5000; i += 4) table.remove(i);
+        // Обход без копирования даёт те же значения в том же порядке, что values()
+        List<Integer> iterated = new ArrayList<>();
+        Iterator<Integer> iterator = table.valueIterator();
+        while (iterator.hasNext()) iterated.add(iterator.next());
+        assertEquals(table.values(), iterated);
+        assertEquals(3750, iterated.size());
+        assertThrows(NoSuchElementException.class, iterator::next);
+    }
+
+    @Test
+    void testForEach() {
+        MyConcurrentHashTable<Integer, Integer> table = new MyConcurrentHashTable<>();
+        for (int i = 0; i < 3000; i++) table.put(i, i * 2);
+        for (int i = 0; i < 3000; i += 3) table.remove(i);
+        List<Integer> seen = new ArrayList<>();
+        table.forEach((key, value) -> {
+            assertEquals(key * 2, value);
+            seen.add(value);
+        });
+        assertEquals(table.values(), seen);
+        assertEquals(2000, seen.size());
+    }
+
+    @Test
+    void testSpliteratorSplitsBySegments() {
+        MyConcurrentHashTable<Integer, Integer> table = new MyConcurrentHashTable<>(16);
+        for (int i = 0; i < 10_000; i++) table.put(i, i);
+        // Части после деления покрывают таблицу без пропусков и повторов
+        Spliterator<Integer> right = table.spliterator();
+        Spliterator<Integer> left = right.trySplit();
+        assertNotNull(left);
+        boolean[] seen = new boolean[10_000];
+        int[] count = {0};
+        right.tryAdvance(v -> { assertFalse(seen[v]); seen[v] = true; count[0]++; });
+        left.forEachRemaining(v -> { assertFalse(seen[v]); seen[v] = true; count[0]++; });
+        right.forEachRemaining(v -> { assertFalse(seen[v]); seen[v] = true; count[0]++; });
+        assertEquals(10_000, count[0]);
+
+        long sum = StreamSupport.stream(table.spliterator(), true).mapToLong(Integer::longValue).sum();
+        assertEquals(10_000L * 9_999 / 2, sum);
+    }
+}
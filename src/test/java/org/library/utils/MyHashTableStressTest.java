@@ -31,6 +31,36 @@ class MyHashTableStressTest {
         assertEquals(size, values.size());
     }
 
+    @Test
+    @Timeout(value = 20, unit = TimeUnit.SECONDS)
+    void testIncrementalResizeLatency() {
+        MyHashTable<Integer, Integer> table = new MyHashTable<>(true);
+        int size = 1_000_000;
+        Integer[] keys = new Integer[size];
+        for (int i = 0; i < size; i++) keys[i] = i;
+
+        // Каждая вставка переносит корзину своего ключа и не больше MIGRATE_STEP
+        // корзин по порядку: ни одна операция не платит за перенос всей таблицы
+        int maxPerPut = 0;
+        for (int i = 0; i < size; i++) {
+            long before = table.migratedBuckets();
+            table.put(keys[i], keys[i]);
+            int moved = (int) (table.migratedBuckets() - before);
+            if (moved > maxPerPut) maxPerPut = moved;
+        }
+        long total = table.migratedBuckets();
+
+        for (int i = 0; i < size; i += 7) {
+            assertEquals(i, table.get(keys[i]));
+        }
+        assertEquals(size, table.size());
+        assertEquals(size, table.values().size());
+
+        assertTrue(maxPerPut <= MyHashTable.MIGRATE_STEP + 1, "Перенесено за одну вставку: " + maxPerPut);
+        // Расширения действительно были и шли через перенос по шагам
+        assertTrue(total > 0);
+    }
+
     @Test
     @Timeout(value = 15, unit = TimeUnit.SECONDS)
     void testLargeDataSetWithBooks() {
@@ -2,7 +2,13 @@ package org.library.utils;
 
 import org.junit.jupiter.api.Test;
 import static org.junit.jupiter.api.Assertions.*;
+import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.stream.StreamSupport;
 
 class MyHashTableTest {
     @Test
@@ -41,4 +47,198 @@ class MyHashTableTest {
         for (int i = 0; i < 100; i++) table.put(i, i * 2);
         for (int i = 0; i < 100; i++) assertEquals(i * 2, table.get(i));
     }
-} 
\ No newline at end of file
+
+    @Test
+    void testIncrementalResize() {
+        MyHashTable<Integer, Integer> table = new MyHashTable<>(true);
+        for (int i = 0; i < 1000; i++) table.put(i, i * 2);
+        for (int i = 0; i < 1000; i += 3) assertTrue(table.remove(i));
+        for (int i = 0; i < 1000; i++) table.put(i, i * 3);
+        assertEquals(1000, table.size());
+        assertEquals(1000, table.values().size());
+        for (int i = 0; i < 1000; i++) assertEquals(i * 3, table.get(i));
+        table.clear();
+        assertEquals(0, table.size());
+        assertNull(table.get(1));
+    }
+
+    @Test
+    void testCustomCapacityAndLoadFactor() {
+        for (double loadFactor : new double[] {0.25, 0.5, 0.9, 2.0}) {
+            MyHashTable<Integer, Integer> table = new MyHashTable<>(3, loadFactor, loadFactor < 1);
+            for (int i = 0; i < 500; i++) table.put(i, i);
+            assertEquals(500, table.size());
+            for (int i = 0; i < 500; i++) assertEquals(i, table.get(i));
+        }
+        assertThrows(IllegalArgumentException.class, () -> new MyHashTable<>(16, 0));
+        assertThrows(IllegalArgumentException.class, () -> new MyHashTable<>(-1, 0.75));
+    }
+
+    @Test
+    void testEnsureCapacity() {
+        // Расширение заранее не теряет уже вставленные элементы
+        MyHashTable<Integer, Integer> table = new MyHashTable<>(true);
+        for (int i = 0; i < 100; i++) table.put(i, i);
+        table.ensureCapacity(100_000);
+        for (int i = 100; i < 100_000; i++) table.put(i, i);
+        assertEquals(100_000, table.size());
+        for (int i = 0; i < 100_000; i++) assertEquals(i, table.get(i));
+        table.ensureCapacity(10);
+        assertEquals(100_000, table.size());
+    }
+
+    @Test
+    void testInsertionOrder() {
+        for (boolean incremental : new boolean[] {false, true}) {
+            MyHashTable<Integer, Integer> table = new MyHashTable<>(incremental, true);
+            List<Integer> expected = new ArrayList<>();
+            // Ключи в порядке, не совпадающем с порядком корзин; по ходу таблица несколько раз расширяется
+            for (int i = 0; i < 1000; i++) {
+                int key = (i * 7919) % 1000;
+                table.put(key, key);
+                expected.add(key);
+            }
+            assertEquals(expected, table.values());
+
+            // Повторный put сохраняет позицию, remove исключает из порядка
+            table.put(expected.get(10), -1);
+            expected.set(10, -1);
+            for (int i = 0; i < 1000; i += 3) {
+                assertTrue(table.remove((i * 7919) % 1000));
+            }
+            List<Integer> remaining = new ArrayList<>();
+            for (int i = 0; i < 1000; i++) {
+                if (i % 3 != 0) remaining.add(expected.get(i));
+            }
+            table.ensureCapacity(10_000);
+            table.put(5000, 5000);
+            remaining.add(5000);
+            assertEquals(remaining, table.values());
+
+            table.clear();
+            assertTrue(table.values().isEmpty());
+            table.put(1, 1);
+            assertEquals(List.of(1), table.values());
+        }
+    }
+
+    @Test
+    void testValueIterator() {
+        // Обход во время незавершённого инкрементального переноса видит все записи
+        for (boolean incremental : new boolean[] {false, true}) {
+            MyHashTable<Integer, Integer> table = new MyHashTable<>(incremental);
+            assertFalse(table.valueIterator().hasNext());
+            for (int i = 0; i < 3000; i++) table.put(i, i);
+            for (int i = 0; i < 3000; i += 4) table.remove(i);
+            List<Integer> iterated = new ArrayList<>();
+            Iterator<Integer> iterator = table.valueIterator();
+            while (iterator.hasNext()) iterated.add(iterator.next());
+            assertEquals(table.values(), iterated);
+            assertEquals(2250, iterated.size());
+            assertThrows(NoSuchElementException.class, iterator::next);
+        }
+        MyHashTable<Integer, Integer> ordered = new MyHashTable<>(true, true);
+        for (int i = 100; i > 0; i--) ordered.put(i, i);
+        Iterator<Integer> iterator = ordered.valueIterator();
+        for (int i = 100; i > 0; i--) assertEquals(i, iterator.next());
+        assertFalse(iterator.hasNext());
+    }
+
+    @Test
+    void testForEach() {
+        for (boolean incremental : new boolean[] {false, true}) {
+            MyHashTable<Integer, Integer> table = new MyHashTable<>(incremental);
+            for (int i = 0; i < 3000; i++) table.put(i, i * 2);
+            for (int i = 0; i < 3000; i += 3) table.remove(i);
+            List<Integer> seen = new ArrayList<>();
+            table.forEach((key, value) -> {
+                assertEquals(key * 2, value);
+                seen.add(value);
+            });
+            assertEquals(table.values(), seen);
+            assertEquals(2000, seen.size());
+        }
+    }
+
+    @Test
+    void testIteratorIsFailFast() {
+        for (boolean ordered : new boolean[] {false, true}) {
+            MyHashTable<Integer, Integer> table = new MyHashTable<>(false, ordered);
+            for (int i = 0; i < 100; i++) table.put(i, i);
+            Iterator<Integer> iterator = table.valueIterator();
+            iterator.next();
+            // Замена значения по существующему ключу не структурное изменение
+            table.put(0, 0);
+            iterator.next();
+            table.put(1000, 1000);
+            assertThrows(ConcurrentModificationException.class, iterator::next);
+            assertThrows(ConcurrentModificationException.class,
+                    () -> table.forEach((key, value) -> table.remove(key)));
+        }
+    }
+
+    @Test
+    void testIteratorRemove() {
+        for (boolean ordered : new boolean[] {false, true}) {
+            MyHashTable<Integer, Integer> table = new MyHashTable<>(false, ordered);
+            for (int i = 0; i < 1000; i++) table.put(i, i);
+            Iterator<Integer> iterator = table.valueIterator();
+            assertThrows(IllegalStateException.class, iterator::remove);
+            while (iterator.hasNext()) {
+                if (iterator.next() % 2 == 0) iterator.remove();
+            }
+            assertEquals(500, table.size());
+            for (int i = 0; i < 1000; i++) {
+                assertEquals(i % 2 == 0 ? null : Integer.valueOf(i), table.get(i));
+            }
+            if (ordered) assertEquals(1, table.values().get(0));
+        }
+    }
+
+    @Test
+    void testIteratorRemoveAfterHasNext() {
+        for (boolean ordered : new boolean[] {false, true}) {
+            MyHashTable<Integer, Integer> table = new MyHashTable<>(false, ordered);
+            // Ключи 0 и 64 попадают в одну корзину, остальные — по одному в корзину
+            for (int i = 0; i < 40; i++) table.put(i, i);
+            table.put(64, 64);
+            Iterator<Integer> iterator = table.valueIterator();
+            int removed = 0;
+            // hasNext между next и remove переходит к следующей корзине,
+            // а удаляться должна именно последняя выданная запись
+            while (iterator.hasNext()) {
+                Integer value = iterator.next();
+                boolean more = iterator.hasNext();
+                iterator.remove();
+                removed++;
+                assertNull(table.get(value));
+                assertEquals(more, iterator.hasNext());
+            }
+            assertEquals(41, removed);
+            assertEquals(0, table.size());
+            assertTrue(table.values().isEmpty());
+        }
+    }
+
+    @Test
+    void testSpliteratorSplitsByBuckets() {
+        MyHashTable<Integer, Integer> table = new MyHashTable<>(true);
+        for (int i = 0; i < 10_000; i++) table.put(i, i);
+        // Части после деления покрывают таблицу без пропусков и повторов
+        Spliterator<Integer> right = table.spliterator();
+        Spliterator<Integer> left = right.trySplit();
+        assertNotNull(left);
+        boolean[] seen = new boolean[10_000];
+        int[] count = {0};
+        left.forEachRemaining(v -> { assertFalse(seen[v]); seen[v] = true; count[0]++; });
+        while (right.tryAdvance(v -> { assertFalse(seen[v]); seen[v] = true; count[0]++; })) { }
+        assertEquals(10_000, count[0]);
+
+        long sum = StreamSupport.stream(table.spliterator(), true).mapToLong(Integer::longValue).sum();
+        assertEquals(10_000L * 9_999 / 2, sum);
+
+        Spliterator<Integer> spliterator = table.spliterator();
+        table.remove(5);
+        assertThrows(ConcurrentModificationException.class, () -> spliterator.forEachRemaining(v -> { }));
+    }
+}
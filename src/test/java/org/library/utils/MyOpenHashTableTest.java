@@ -0,0 +1,147 @@
+package org.library.utils;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+class MyOpenHashTableTest {
+    @Test
+    void testPutAndGet() {
+        MyOpenHashTable<String, Integer> table = new MyOpenHashTable<>();
+        table.put("a", 1);
+        table.put("b", 2);
+        table.put("a", 3);
+        assertEquals(3, table.get("a"));
+        assertEquals(2, table.get("b"));
+        assertNull(table.get("c"));
+        assertEquals(2, table.size());
+    }
+
+    @Test
+    void testRemoveKeepsProbeChain() {
+        MyOpenHashTable<Integer, Integer> table = new MyOpenHashTable<>();
+        for (int i = 0; i < 1000; i++) table.put(i, i);
+        for (int i = 0; i < 1000; i += 2) assertTrue(table.remove(i));
+        assertFalse(table.remove(0));
+        for (int i = 1; i < 1000; i += 2) assertEquals(i, table.get(i));
+        for (int i = 0; i < 1000; i += 2) assertNull(table.get(i));
+        assertEquals(500, table.size());
+    }
+
+    @Test
+    void testNullKey() {
+        MyOpenHashTable<String, Integer> table = new MyOpenHashTable<>();
+        table.put(null, 42);
+        assertEquals(42, table.get(null));
+        table.put(null, 100);
+        assertEquals(100, table.get(null));
+        assertEquals(1, table.size());
+
+        // forEach передаёт null, а не внутренний маркер, как и остальные движки
+        table.put("key", 1);
+        List<String> keys = new ArrayList<>();
+        table.forEach((key, value) -> keys.add(key));
+        assertEquals(2, keys.size());
+        assertTrue(keys.contains(null));
+        assertTrue(keys.contains("key"));
+
+        assertTrue(table.remove(null));
+        assertNull(table.get(null));
+    }
+
+    @Test
+    void testValuesAndClear() {
+        MyOpenHashTable<String, Integer> table = new MyOpenHashTable<>();
+        table.put("a", 1);
+        table.put("b", 2);
+        table.remove("a");
+        List<Integer> vals = table.values();
+        assertEquals(List.of(2), vals);
+        table.clear();
+        assertEquals(0, table.size());
+        assertTrue(table.values().isEmpty());
+        assertNull(table.get("b"));
+    }
+
+    @Test
+    void testChurnMatchesHashMap() {
+        // Много вставок и удалений подряд: надгробия должны переиспользоваться
+        // и вычищаться при перестроении, не ломая поиск
+        MyOpenHashTable<Integer, Integer> table = new MyOpenHashTable<>();
+        Map<Integer, Integer> expected = new HashMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 200000; i++) {
+            int key = random.nextInt(2000);
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(key) != null, table.remove(key));
+            } else {
+                table.put(key, i);
+                expected.put(key, i);
+            }
+        }
+        assertEquals(expected.size(), table.size());
+        for (Map.Entry<Integer, Integer> e : expected.entrySet()) {
+            assertEquals(e.getValue(), table.get(e.getKey()));
+        }
+    }
+
+    @Test
+    void testCustomCapacityAndLoadFactor() {
+        for (double loadFactor : new double[] {0.25, 0.75, 0.9}) {
+            MyOpenHashTable<Integer, Integer> table = new MyOpenHashTable<>(0, loadFactor);
+            for (int i = 0; i < 500; i++) table.put(i, i);
+            for (int i = 0; i < 500; i += 2) table.remove(i);
+            assertEquals(250, table.size());
+            for (int i = 1; i < 500; i += 2) assertEquals(i, table.get(i));
+        }
+        assertThrows(IllegalArgumentException.class, () -> new MyOpenHashTable<>(16, 1.0));
+    }
+
+    @Test
+    void testEnsureCapacity() {
+        // Расширение заранее не теряет уже вставленные элементы
+        MyOpenHashTable<Integer, Integer> table = new MyOpenHashTable<>();
+        for (int i = 0; i < 100; i++) table.put(i, i);
+        table.ensureCapacity(100_000);
+        for (int i = 100; i < 100_000; i++) table.put(i, i);
+        assertEquals(100_000, table.size());
+        for (int i = 0; i < 100_000; i++) assertEquals(i, table.get(i));
+        table.ensureCapacity(10);
+        assertEquals(100_000, table.size());
+    }
+
+    @Test
+    void testValueIterator() {
+        MyOpenHashTable<Integer, Integer> table = new MyOpenHashTable<>();
+        assertFalse(table.valueIterator().hasNext());
+        for (int i = 0; i < 5000; i++) table.put(i, i);
+        for (int i = 0; i < 5000; i += 4) table.remove(i);
+        // Обход без копирования даёт те же значения в том же порядке, что values()
+        List<Integer> iterated = new ArrayList<>();
+        Iterator<Integer> iterator = table.valueIterator();
+        while (iterator.hasNext()) iterated.add(iterator.next());
+        assertEquals(table.values(), iterated);
+        assertEquals(3750, iterated.size());
+        assertThrows(NoSuchElementException.class, iterator::next);
+    }
+
+    @Test
+    void testForEach() {
+        MyOpenHashTable<Integer, Integer> table = new MyOpenHashTable<>();
+        for (int i = 0; i < 3000; i++) table.put(i, i * 2);
+        for (int i = 0; i < 3000; i += 3) table.remove(i);
+        List<Integer> seen = new ArrayList<>();
+        table.forEach((key, value) -> {
+            assertEquals(key * 2, value);
+            seen.add(value);
+        });
+        assertEquals(table.values(), seen);
+        assertEquals(2000, seen.size());
+    }
+}
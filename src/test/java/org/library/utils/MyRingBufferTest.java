@@ -0,0 +1,105 @@
+package org.library.utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import static org.junit.jupiter.api.Assertions.*;
+
+class MyRingBufferTest {
+
+    @Test
+    void testFifoAndBounds() {
+        MyRingBuffer<Integer> ring = new MyRingBuffer<>(5);
+        // Ёмкость округляется до степени двойки
+        assertEquals(8, ring.capacity());
+        assertTrue(ring.isEmpty());
+        assertNull(ring.poll());
+
+        for (int i = 0; i < 8; i++) assertTrue(ring.offer(i));
+        assertFalse(ring.offer(8));
+        assertEquals(8, ring.size());
+
+        // Несколько кругов по кольцу
+        for (int round = 0; round < 3; round++) {
+            for (int i = 0; i < 8; i++) {
+                assertEquals(round * 8 + i, ring.poll());
+                assertTrue(ring.offer(round * 8 + 8 + i));
+            }
+        }
+        List<Integer> drained = new ArrayList<>();
+        assertEquals(5, ring.drain(drained::add, 5));
+        assertEquals(List.of(24, 25, 26, 27, 28), drained);
+        assertEquals(3, ring.size());
+
+        assertThrows(NullPointerException.class, () -> ring.offer(null));
+        assertThrows(IllegalArgumentException.class, () -> new MyRingBuffer<>(0));
+    }
+
+    @Test
+    @Timeout(value = 20, unit = TimeUnit.SECONDS)
+    void testConcurrentProducersAndConsumers() throws Exception {
+        MyRingBuffer<Integer> ring = new MyRingBuffer<>(64);
+        int producers = 4;
+        int consumers = 3;
+        int perProducer = 50000;
+        int total = producers * perProducer;
+        ExecutorService pool = Executors.newFixedThreadPool(producers + consumers);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger consumed = new AtomicInteger();
+        List<Future<BitSet>> results = new ArrayList<>();
+        List<Future<?>> writers = new ArrayList<>();
+
+        // Маленькое кольцо постоянно переполняется и опустошается
+        for (int p = 0; p < producers; p++) {
+            int base = p * perProducer;
+            writers.add(pool.submit(() -> {
+                start.await();
+                for (int i = base; i < base + perProducer; i++) {
+                    while (!ring.offer(i)) Thread.yield();
+                }
+                return null;
+            }));
+        }
+        for (int c = 0; c < consumers; c++) {
+            results.add(pool.submit(() -> {
+                start.await();
+                BitSet seen = new BitSet(total);
+                while (consumed.get() < total) {
+                    Integer value = ring.poll();
+                    if (value == null) {
+                        Thread.yield();
+                        continue;
+                    }
+                    assertFalse(seen.get(value), "Элемент получен дважды: " + value);
+                    seen.set(value);
+                    consumed.incrementAndGet();
+                }
+                return seen;
+            }));
+        }
+        start.countDown();
+        for (Future<?> f : writers) f.get();
+
+        // Каждый элемент получен ровно одним читателем
+        BitSet all = new BitSet(total);
+        int sum = 0;
+        for (Future<BitSet> f : results) {
+            BitSet seen = f.get();
+            assertFalse(all.intersects(seen));
+            all.or(seen);
+            sum += seen.cardinality();
+        }
+        pool.shutdown();
+        assertEquals(total, sum);
+        assertEquals(total, all.cardinality());
+        assertTrue(ring.isEmpty());
+    }
+}
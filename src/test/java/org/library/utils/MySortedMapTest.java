@@ -0,0 +1,97 @@
+package org.library.utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import static org.junit.jupiter.api.Assertions.*;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+class MySortedMapTest {
+    @Test
+    void testPutAndGet() {
+        MySortedMap<String, Integer> map = new MySortedMap<>(Comparator.naturalOrder());
+        assertNull(map.put("b", 2));
+        assertNull(map.put("a", 1));
+        assertEquals(2, map.put("b", 3));
+        assertEquals(1, map.get("a"));
+        assertEquals(3, map.get("b"));
+        assertNull(map.get("c"));
+        assertEquals(2, map.size());
+    }
+
+    @Test
+    void testOrderMatchesTreeMap() {
+        MySortedMap<Integer, Integer> map = new MySortedMap<>(Comparator.naturalOrder());
+        TreeMap<Integer, Integer> expected = new TreeMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 20000; i++) {
+            int key = random.nextInt(5000);
+            map.put(key, i);
+            expected.put(key, i);
+        }
+        assertEquals(expected.size(), map.size());
+        assertEquals(new ArrayList<>(expected.values()), map.values());
+
+        List<Integer> fromKeys = new ArrayList<>();
+        map.forEachFrom(2500, (key, value) -> {
+            fromKeys.add(key);
+            return fromKeys.size() < 10;
+        });
+        assertEquals(new ArrayList<>(expected.tailMap(2500).keySet()).subList(0, 10), fromKeys);
+    }
+
+    @Test
+    void testSortedInsertionStaysBalanced() {
+        // Вставка по возрастанию — худший случай для несбалансированного дерева
+        MySortedMap<Integer, Integer> map = new MySortedMap<>(Comparator.naturalOrder());
+        for (int i = 0; i < 200000; i++) map.put(i, i);
+        for (int i = 0; i < 200000; i += 17) assertEquals(i, map.get(i));
+    }
+
+    @Test
+    void testIterationSeesSnapshot() {
+        MySortedMap<Integer, Integer> map = new MySortedMap<>(Comparator.naturalOrder());
+        for (int i = 0; i < 100; i++) map.put(i * 2, i);
+        List<Integer> seen = new ArrayList<>();
+        // Вставки во время обхода не видны уже начатому обходу
+        map.forEachFrom(null, (key, value) -> {
+            map.put(key + 1, value);
+            seen.add(key);
+            return true;
+        });
+        assertEquals(100, seen.size());
+        assertEquals(200, map.size());
+    }
+
+    @Test
+    @Timeout(value = 30, unit = TimeUnit.SECONDS)
+    void testConcurrentPutsLoseNothing() throws InterruptedException {
+        MySortedMap<Integer, Integer> map = new MySortedMap<>(Comparator.naturalOrder());
+        int threads = 8;
+        int perThread = 5000;
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int offset = t;
+            // Ключи потоков перемежаются, так что вставки спорят за один корень
+            workers.add(new Thread(() -> {
+                for (int i = 0; i < perThread; i++) map.put(i * threads + offset, offset);
+            }));
+        }
+        for (Thread worker : workers) worker.start();
+        for (Thread worker : workers) worker.join();
+
+        assertEquals(threads * perThread, map.size());
+        List<Integer> keys = new ArrayList<>();
+        map.forEachFrom(null, (key, value) -> keys.add(key));
+        for (int i = 0; i < keys.size(); i++) {
+            assertEquals(i, (int) keys.get(i));
+            assertEquals(i % threads, (int) map.get(i));
+        }
+        assertEquals(3, (int) map.put(3, -1));
+        assertEquals(threads * perThread, map.size());
+    }
+}
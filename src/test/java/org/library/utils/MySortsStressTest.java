@@ -2,6 +2,7 @@ package org.library.utils;
 
 import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Random;
 import java.util.concurrent.TimeUnit;
@@ -71,6 +72,60 @@ class MySortsStressTest {
         assertEquals(originalBooks.size(), books.size());
     }
 
+    @Test
+    @Timeout(value = 30, unit = TimeUnit.SECONDS)
+    void testParallelMergeSortLargeDataSet() {
+        List<Book> books = generateLargeBookList(500_000);
+        List<Book> expected = new ArrayList<>(books);
+        Comparator<Book> byYear = Comparator.comparingInt(Book::getYear);
+        // Встроенная сортировка устойчива, как и сортировка слиянием
+        expected.sort(byYear);
+
+        long startTime = System.currentTimeMillis();
+        MySorts.parallelMergeSort(books, byYear, Runtime.getRuntime().availableProcessors());
+        long parallelTime = System.currentTimeMillis() - startTime;
+
+        // Совпадение по ссылкам проверяет и порядок, и устойчивость
+        for (int i = 0; i < books.size(); i++) {
+            assertTrue(expected.get(i) == books.get(i));
+        }
+        System.out.println("Parallel merge sort of " + books.size() + " books: " + parallelTime + " ms");
+    }
+
+    @Test
+    @Timeout(value = 10, unit = TimeUnit.SECONDS)
+    void testMergeSortLargeLinkedList() {
+        // Через get/set по индексу LinkedList сортировалась бы за квадратичное время
+        List<Book> books = new LinkedList<>(generateLargeBookList(200_000));
+        List<Book> expected = new ArrayList<>(books);
+        Comparator<Book> byTitle = Comparator.comparing(Book::getTitle);
+        expected.sort(byTitle);
+
+        MySorts.mergeSort(books, byTitle);
+
+        int i = 0;
+        for (Book book : books) {
+            assertTrue(expected.get(i++) == book);
+        }
+    }
+
+    @Test
+    @Timeout(value = 10, unit = TimeUnit.SECONDS)
+    void testCountingSortByYearLargeDataSet() {
+        List<Book> books = generateLargeBookList(1_000_000);
+        List<Book> expected = new ArrayList<>(books);
+        expected.sort(Comparator.comparingInt(Book::getYear));
+
+        long startTime = System.currentTimeMillis();
+        MySorts.countingSort(books, Book::getYear);
+        long countingTime = System.currentTimeMillis() - startTime;
+
+        for (int i = 0; i < books.size(); i++) {
+            assertTrue(expected.get(i) == books.get(i));
+        }
+        System.out.println("Counting sort of " + books.size() + " books by year: " + countingTime + " ms");
+    }
+
     @Test
     @Timeout(value = 20, unit = TimeUnit.SECONDS)
     void testSortingPerformanceComparison() {
@@ -4,10 +4,15 @@ import org.junit.jupiter.api.Test;
 import org.library.model.Book;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Comparator;
+import java.util.LinkedList;
 import java.util.List;
+import java.util.Random;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class MySortsTest {
 
@@ -55,4 +60,112 @@ class MySortsTest {
         assertEquals(1, books.size());
         assertEquals("Single Book", books.get(0).getTitle());
     }
-} 
\ No newline at end of file
+
+    @Test
+    void testParallelMergeSortByYear() {
+        List<Book> books = getSampleBooks();
+        MySorts.parallelMergeSort(books, Comparator.comparingInt(Book::getYear), 2);
+        assertEquals(1993, books.get(0).getYear());
+        assertEquals("The Pragmatic Programmer", books.get(1).getTitle());
+        assertEquals("Refactoring", books.get(2).getTitle());
+        assertEquals(2008, books.get(3).getYear());
+    }
+
+    @Test
+    void testMergeSortArrayRange() {
+        Integer[] numbers = {9, 8, 7, 6, 5, 4, 3, 2, 1, 0};
+        MySorts.mergeSort(numbers, 2, 8, Comparator.naturalOrder());
+        assertArrayEquals(new Integer[] {9, 8, 2, 3, 4, 5, 6, 7, 1, 0}, numbers);
+    }
+
+    @Test
+    void testArrayKernelsAgreeWithBuiltInSort() {
+        Integer[] original = new Integer[1000];
+        Random random = new Random(42);
+        for (int i = 0; i < original.length; i++) original[i] = random.nextInt(100);
+        Integer[] expected = original.clone();
+        Arrays.sort(expected);
+
+        Integer[] merged = original.clone();
+        MySorts.mergeSort(merged, Comparator.naturalOrder());
+        assertArrayEquals(expected, merged);
+
+        Integer[] inserted = original.clone();
+        MySorts.insertionSort(inserted, 0, inserted.length, Comparator.naturalOrder());
+        assertArrayEquals(expected, inserted);
+
+        Integer[] bubbled = original.clone();
+        MySorts.bubbleSort(bubbled, 0, bubbled.length, Comparator.naturalOrder());
+        assertArrayEquals(expected, bubbled);
+    }
+
+    @Test
+    void testMergeSortIndicesIsStable() {
+        int[] keys = new int[1000];
+        Random random = new Random(3);
+        for (int i = 0; i < keys.length; i++) keys[i] = random.nextInt(50);
+        int[] order = new int[keys.length];
+        for (int i = 0; i < order.length; i++) order[i] = i;
+        MySorts.mergeSort(order, (a, b) -> Integer.compare(keys[a], keys[b]));
+        for (int i = 1; i < order.length; i++) {
+            int previous = order[i - 1];
+            int current = order[i];
+            // Равные ключи остаются в исходном порядке номеров
+            assertTrue(keys[previous] < keys[current] || keys[previous] == keys[current] && previous < current);
+        }
+    }
+
+    @Test
+    void testSortLinkedListAndInsertionSort() {
+        List<Book> books = new LinkedList<>(getSampleBooks());
+        MySorts.mergeSort(books, Comparator.comparing(Book::getTitle));
+        assertEquals("Clean Code", books.get(0).getTitle());
+        assertEquals("The Pragmatic Programmer", books.get(3).getTitle());
+
+        List<Book> sample = getSampleBooks();
+        MySorts.insertionSort(sample, Comparator.comparingInt(Book::getYear));
+        assertEquals(1993, sample.get(0).getYear());
+        assertEquals("The Pragmatic Programmer", sample.get(1).getTitle());
+        assertEquals(2008, sample.get(3).getYear());
+    }
+
+    @Test
+    void testCountingSortByYearIsStable() {
+        List<Book> books = getSampleBooks();
+        MySorts.countingSort(books, Book::getYear);
+        assertEquals("Code Complete", books.get(0).getTitle());
+        assertEquals("The Pragmatic Programmer", books.get(1).getTitle());
+        assertEquals("Refactoring", books.get(2).getTitle());
+        assertEquals("Clean Code", books.get(3).getTitle());
+    }
+
+    @Test
+    void testCountingSortWideRangeUsesRadix() {
+        Integer[] numbers = {Integer.MAX_VALUE, -5, 0, Integer.MIN_VALUE, 1 << 30, -5, 42};
+        MySorts.countingSort(numbers, 0, numbers.length, Integer::intValue);
+        assertArrayEquals(new Integer[] {Integer.MIN_VALUE, -5, -5, 0, 42, 1 << 30, Integer.MAX_VALUE}, numbers);
+    }
+
+    @Test
+    void testTopKMatchesStableSortPrefix() {
+        Random random = new Random(7);
+        List<Book> books = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            // Много равных годов: проверяем, что при равенстве порядок тот же, что у устойчивой сортировки
+            books.add(new Book("Book " + i, "Author " + random.nextInt(40), 1990 + random.nextInt(30)));
+        }
+        Comparator<Book> byYear = Comparator.comparingInt(Book::getYear);
+        List<Book> sorted = new ArrayList<>(books);
+        MySorts.mergeSort(sorted, byYear);
+        for (int k : new int[] {0, 1, 20, 999, 3000, 5000}) {
+            List<Book> top = MySorts.topK(books.iterator(), k, byYear);
+            assertEquals(sorted.subList(0, Math.min(k, sorted.size())), top);
+        }
+        Comparator<Book> byAuthor = Comparator.comparing(Book::getAuthor, String.CASE_INSENSITIVE_ORDER);
+        MySorts.mergeSort(sorted, byAuthor);
+        // mergeSort устойчив: порядок равных авторов унаследован от сортировки по году
+        List<Book> byYearThenAuthor = new ArrayList<>(books);
+        MySorts.mergeSort(byYearThenAuthor, byYear);
+        assertEquals(sorted.subList(0, 50), MySorts.topK(byYearThenAuthor.iterator(), 50, byAuthor));
+    }
+}
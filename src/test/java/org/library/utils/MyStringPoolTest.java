@@ -0,0 +1,79 @@
+package org.library.utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import static org.junit.jupiter.api.Assertions.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+class MyStringPoolTest {
+    @Test
+    void testInternAndIds() {
+        MyStringPool pool = new MyStringPool();
+        String first = new String("Лев Толстой");
+        String second = new String("Лев Толстой");
+        assertNotSame(first, second);
+        assertSame(first, pool.intern(first));
+        assertSame(first, pool.intern(second));
+
+        int id = pool.idOf("Лев Толстой");
+        assertEquals(1, id);
+        assertEquals(2, pool.idOf("Фёдор Достоевский"));
+        assertEquals(id, pool.idOf(second));
+        assertSame(first, pool.get(id));
+        assertNull(pool.get(0));
+        assertNull(pool.intern(null));
+        assertEquals(2, pool.size());
+
+        // canonical находит экземпляр из пула, но новых строк не добавляет
+        assertSame(first, pool.canonical(new String("Лев Толстой")));
+        String unknown = new String("Антон Чехов");
+        assertSame(unknown, pool.canonical(unknown));
+        assertNull(pool.canonical(null));
+        assertEquals(-1, pool.find("Антон Чехов"));
+        assertEquals(id, pool.find(second));
+        assertEquals(2, pool.size());
+    }
+
+    @Test
+    void testGrowth() {
+        MyStringPool pool = new MyStringPool();
+        for (int i = 0; i < 10_000; i++) {
+            assertEquals(i + 1, pool.idOf("s" + i));
+        }
+        for (int i = 0; i < 10_000; i++) {
+            assertEquals("s" + i, pool.get(i + 1));
+            assertEquals(i + 1, pool.idOf("s" + i));
+        }
+        assertEquals(10_000, pool.size());
+    }
+
+    @Test
+    @Timeout(value = 20, unit = TimeUnit.SECONDS)
+    void testConcurrentInternReturnsOneInstance() throws InterruptedException {
+        MyStringPool pool = new MyStringPool();
+        int threads = 4;
+        String[][] seen = new String[threads][1000];
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            Thread worker = new Thread(() -> {
+                for (int i = 0; i < 1000; i++) {
+                    seen[thread][i] = pool.intern(new String("author" + i));
+                }
+            });
+            workers.add(worker);
+            worker.start();
+        }
+        for (Thread worker : workers) worker.join();
+
+        // Все потоки получили один и тот же экземпляр каждой строки
+        for (int i = 0; i < 1000; i++) {
+            for (int t = 1; t < threads; t++) {
+                assertSame(seen[0][i], seen[t][i]);
+            }
+        }
+        assertEquals(1000, pool.size());
+    }
+}